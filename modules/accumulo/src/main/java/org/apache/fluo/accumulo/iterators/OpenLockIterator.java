@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.accumulo.iterators;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.fluo.accumulo.util.ColumnType;
+import org.apache.fluo.accumulo.util.ReadLockUtil;
+import org.apache.fluo.accumulo.values.WriteValue;
+
+import static org.apache.fluo.accumulo.util.ColumnConstants.TIMESTAMP_MASK;
+
+/**
+ * Returns the open write and read locks of every column, for finding locks left behind by
+ * transactions that failed. A write lock is open if no write or delete lock entry in its column is
+ * for a transaction that started at or after it. Read locks are open if no delete read lock entry
+ * suppresses them, the same as {@link OpenReadLockIterator}.
+ */
+public class OpenLockIterator implements SortedKeyValueIterator<Key, Value> {
+
+  private TimestampSkippingIterator source;
+
+  private final Key curCol = new Key();
+  private boolean curColSet;
+  private long invalidationTime;
+  private Key lastDelete;
+
+  // when a scan continues from the middle of a column, keys up to this one were returned already
+  private Key resumeKey;
+  private boolean resumeInclusive;
+
+  private boolean isAfterResumeKey(Key key) {
+    if (resumeKey == null) {
+      return true;
+    }
+
+    int cmp = key.compareTo(resumeKey);
+    if (cmp > 0 || (cmp == 0 && resumeInclusive)) {
+      resumeKey = null;
+      return true;
+    }
+    return false;
+  }
+
+  private void findTop() throws IOException {
+    while (source.hasTop()) {
+      Key top = source.getTopKey();
+
+      if (!curColSet || !curCol.equals(top, PartialKey.ROW_COLFAM_COLQUAL_COLVIS)) {
+        curCol.set(top);
+        curColSet = true;
+        invalidationTime = -1;
+      }
+
+      ColumnType colType = ColumnType.from(top);
+      long ts = top.getTimestamp() & TIMESTAMP_MASK;
+
+      switch (colType) {
+        case TX_DONE: {
+          source.skipToPrefix(curCol, ColumnType.WRITE);
+          break;
+        }
+        case WRITE: {
+          // the most recent write is first, older writes can not invalidate a newer lock
+          long timePtr = WriteValue.getTimestamp(source.getTopValue().get());
+          invalidationTime = Math.max(invalidationTime, timePtr);
+          source.skipToPrefix(curCol, ColumnType.DEL_LOCK);
+          break;
+        }
+        case DEL_LOCK: {
+          invalidationTime = Math.max(invalidationTime, ts);
+          source.skipToPrefix(curCol, ColumnType.RLOCK);
+          break;
+        }
+        case RLOCK: {
+          if (ReadLockUtil.isDelete(top)) {
+            lastDelete.set(top);
+          } else if (!lastDelete.equals(top, PartialKey.ROW_COLFAM_COLQUAL_COLVIS)
+              || ReadLockUtil.decodeTs(ts) != ReadLockUtil
+                  .decodeTs(lastDelete.getTimestamp() & TIMESTAMP_MASK)) {
+            // found a read lock that is not suppressed by a delete read lock entry
+            if (isAfterResumeKey(top)) {
+              return;
+            }
+          }
+          source.next();
+          break;
+        }
+        case LOCK: {
+          if (ts > invalidationTime && isAfterResumeKey(top)) {
+            return;
+          }
+          source.skipColumn(curCol);
+          break;
+        }
+        case DATA:
+        case ACK: {
+          source.skipColumn(curCol);
+          break;
+        }
+        default:
+          throw new IllegalArgumentException("Unknown column type " + top);
+      }
+    }
+  }
+
+  @Override
+  public void init(SortedKeyValueIterator<Key, Value> source, Map<String, String> options,
+      IteratorEnvironment env) throws IOException {
+    this.source = new TimestampSkippingIterator(source);
+  }
+
+  @Override
+  public boolean hasTop() {
+    return source.hasTop();
+  }
+
+  @Override
+  public void next() throws IOException {
+    if (ColumnType.from(source.getTopKey()) == ColumnType.LOCK) {
+      // only the newest write lock in a column can be open
+      source.skipColumn(curCol);
+    } else {
+      source.next();
+    }
+    findTop();
+  }
+
+  @Override
+  public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
+      throws IOException {
+
+    lastDelete = new Key();
+    curColSet = false;
+    resumeKey = null;
+
+    Range newRange = range;
+    Key start = range.getStartKey();
+    if (start != null && start.getTimestamp() != Long.MAX_VALUE) {
+      // Whether a lock is open depends on entries earlier in its column, so read the column from
+      // its start and only return keys after the range start.
+      Key colStart = new Key(start);
+      colStart.setTimestamp(Long.MAX_VALUE);
+      newRange = new Range(colStart, true, range.getEndKey(), range.isEndKeyInclusive());
+      resumeKey = start;
+      resumeInclusive = range.isStartKeyInclusive();
+    }
+
+    Collection<ByteSequence> fams;
+    if (columnFamilies.isEmpty() && !inclusive) {
+      fams = SnapshotIterator.NOTIFY_CF_SET;
+      inclusive = false;
+    } else {
+      fams = columnFamilies;
+    }
+
+    source.seek(newRange, fams, inclusive);
+    findTop();
+  }
+
+  @Override
+  public Key getTopKey() {
+    return source.getTopKey();
+  }
+
+  @Override
+  public Value getTopValue() {
+    return source.getTopValue();
+  }
+
+  @Override
+  public SortedKeyValueIterator<Key, Value> deepCopy(IteratorEnvironment env) {
+    throw new UnsupportedOperationException();
+  }
+}
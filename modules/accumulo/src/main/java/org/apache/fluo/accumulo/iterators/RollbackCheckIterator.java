@@ -16,8 +16,11 @@
 package org.apache.fluo.accumulo.iterators;
 
 import java.io.IOException;
+import java.util.Base64;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.data.ByteSequence;
@@ -31,12 +34,17 @@ import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.fluo.accumulo.util.ColumnConstants;
 import org.apache.fluo.accumulo.util.ColumnType;
 import org.apache.fluo.accumulo.values.WriteValue;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
 
 public class RollbackCheckIterator implements SortedKeyValueIterator<Key, Value> {
   private static final String TIMESTAMP_OPT = "timestampOpt";
+  private static final String COLUMN_TIMESTAMPS_OPT = "columnTimestampsOpt";
 
   private TimestampSkippingIterator source;
   private long lockTime;
+  // when set, the lock time of each column seeked, keyed with a timestamp of zero
+  private Map<Key, Long> columnLockTimes = null;
 
   boolean hasTop = false;
   boolean checkAck = false;
@@ -48,11 +56,55 @@ public class RollbackCheckIterator implements SortedKeyValueIterator<Key, Value>
     cfg.addOption(TIMESTAMP_OPT, time + "");
   }
 
+  /**
+   * Sets a lock time per column, so one batch scan can check the primary columns of many
+   * transactions. Each range scanned must be a single column in the map.
+   */
+  public static void setLocktimes(IteratorSetting cfg, Map<RowColumn, Long> columnLockTimes) {
+    Base64.Encoder encoder = Base64.getEncoder();
+    StringBuilder sb = new StringBuilder();
+    for (Entry<RowColumn, Long> entry : columnLockTimes.entrySet()) {
+      long time = entry.getValue();
+      if (time < 0 || (ColumnConstants.PREFIX_MASK & time) != 0) {
+        throw new IllegalArgumentException();
+      }
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      Column col = entry.getKey().getColumn();
+      sb.append(encoder.encodeToString(entry.getKey().getRow().toArray())).append(':');
+      sb.append(encoder.encodeToString(col.getFamily().toArray())).append(':');
+      sb.append(encoder.encodeToString(col.getQualifier().toArray())).append(':');
+      sb.append(encoder.encodeToString(col.getVisibility().toArray())).append(':');
+      sb.append(time);
+    }
+    cfg.addOption(COLUMN_TIMESTAMPS_OPT, sb.toString());
+  }
+
+  private static Map<Key, Long> decodeLocktimes(String columnTimestamps) {
+    Base64.Decoder decoder = Base64.getDecoder();
+    Map<Key, Long> lockTimes = new HashMap<>();
+    if (!columnTimestamps.isEmpty()) {
+      for (String colTimestamp : columnTimestamps.split(",")) {
+        String[] fields = colTimestamp.split(":", -1);
+        lockTimes.put(new Key(decoder.decode(fields[0]), decoder.decode(fields[1]),
+            decoder.decode(fields[2]), decoder.decode(fields[3]), 0),
+            Long.parseLong(fields[4]));
+      }
+    }
+    return lockTimes;
+  }
+
   @Override
   public void init(SortedKeyValueIterator<Key, Value> source, Map<String, String> options,
       IteratorEnvironment env) throws IOException {
     this.source = new TimestampSkippingIterator(source);
-    this.lockTime = Long.parseLong(options.get(TIMESTAMP_OPT));
+    String columnTimestamps = options.get(COLUMN_TIMESTAMPS_OPT);
+    if (columnTimestamps != null) {
+      this.columnLockTimes = decodeLocktimes(columnTimestamps);
+    } else {
+      this.lockTime = Long.parseLong(options.get(TIMESTAMP_OPT));
+    }
   }
 
   @Override
@@ -68,8 +120,31 @@ public class RollbackCheckIterator implements SortedKeyValueIterator<Key, Value>
   @Override
   public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
       throws IOException {
+    hasTop = false;
+
+    Key resumeKey = range.getStartKey();
+    if (resumeKey != null && !range.isStartKeyInclusive()
+        && resumeKey.getTimestamp() != Long.MAX_VALUE) {
+      // a scan resumed after the key returned for this column, at most one key is returned per
+      // column so there is nothing left to return
+      return;
+    }
+
     range = IteratorUtil.maximizeStartKeyTimeStamp(range);
 
+    if (columnLockTimes != null) {
+      Key start = range.getStartKey();
+      Long colLockTime = start == null ? null
+          : columnLockTimes.get(new Key(start.getRowData().toArray(),
+              start.getColumnFamilyData().toArray(), start.getColumnQualifierData().toArray(),
+              start.getColumnVisibilityData().toArray(), 0));
+      if (colLockTime == null) {
+        // not a column being checked
+        return;
+      }
+      lockTime = colLockTime;
+    }
+
     if (columnFamilies.isEmpty() && !inclusive) {
       source.seek(range, SnapshotIterator.NOTIFY_CF_SET, false);
     } else {
@@ -16,9 +16,13 @@
 package org.apache.fluo.accumulo.iterators;
 
 import java.io.IOException;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -35,6 +39,7 @@ import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.fluo.accumulo.util.ColumnConstants;
 import org.apache.fluo.accumulo.util.ColumnType;
 import org.apache.fluo.accumulo.values.WriteValue;
+import org.apache.fluo.api.data.Column;
 
 public class SnapshotIterator implements SortedKeyValueIterator<Key, Value> {
 
@@ -43,6 +48,11 @@ public class SnapshotIterator implements SortedKeyValueIterator<Key, Value> {
 
   static final String RETURN_READLOCK_PRESENT_OPT = "rrlpOpt";
 
+  @VisibleForTesting
+  static final String ROW_TIMESTAMPS_OPT = "rowTimestampsOpt";
+
+  static final String COLUMNS_OPT = "columnsOpt";
+
   private static final ByteSequence NOTIFY_CF_BS =
       new ArrayByteSequence(ColumnConstants.NOTIFY_CF.toArray());
 
@@ -50,6 +60,11 @@ public class SnapshotIterator implements SortedKeyValueIterator<Key, Value> {
 
   private TimestampSkippingIterator source;
   private long snaptime;
+  // when set, each row is read at its own snapshot time and rows not in the map are skipped
+  private Map<ByteSequence, Long> rowSnaptimes = null;
+  // when set, only columns that exactly match one of these, including visibility, are returned.
+  // Maps family to qualifier to visibilities, so keys are checked without copying their data.
+  private Map<ByteSequence, Map<ByteSequence, Set<ByteSequence>>> columns = null;
   private boolean hasTop = false;
 
   private boolean returnReadLockPresent = false;
@@ -90,6 +105,20 @@ public class SnapshotIterator implements SortedKeyValueIterator<Key, Value> {
 
       curCol.set(source.getTopKey());
 
+      if (rowSnaptimes != null) {
+        Long rowSnaptime = rowSnaptimes.get(curCol.getRowData());
+        if (rowSnaptime == null) {
+          source.skipColumn(curCol);
+          continue;
+        }
+        snaptime = rowSnaptime;
+      }
+
+      if (columns != null && !isRequested(curCol)) {
+        source.skipColumn(curCol);
+        continue;
+      }
+
       while (source.hasTop()
           && curCol.equals(source.getTopKey(), PartialKey.ROW_COLFAM_COLQUAL_COLVIS)) {
         ColumnType colType = ColumnType.from(source.getTopKey());
@@ -191,7 +220,16 @@ public class SnapshotIterator implements SortedKeyValueIterator<Key, Value> {
   public void init(SortedKeyValueIterator<Key, Value> source, Map<String, String> options,
       IteratorEnvironment env) throws IOException {
     this.source = new TimestampSkippingIterator(source);
-    this.snaptime = Long.parseLong(options.get(TIMESTAMP_OPT));
+    String rowTimestamps = options.get(ROW_TIMESTAMPS_OPT);
+    if (rowTimestamps == null) {
+      this.snaptime = Long.parseLong(options.get(TIMESTAMP_OPT));
+    } else {
+      this.rowSnaptimes = decodeRowSnaptimes(rowTimestamps);
+    }
+    String columnsOpt = options.get(COLUMNS_OPT);
+    if (columnsOpt != null) {
+      this.columns = decodeColumns(columnsOpt);
+    }
     this.returnReadLockPresent =
         Boolean.parseBoolean(options.getOrDefault(RETURN_READLOCK_PRESENT_OPT, "false"));
     // TODO could require client to send version as a sanity check
@@ -290,6 +328,84 @@ public class SnapshotIterator implements SortedKeyValueIterator<Key, Value> {
     cfg.addOption(TIMESTAMP_OPT, time + "");
   }
 
+  /**
+   * Sets a snapshot time per row, allowing reads for many transactions to be done in one scan. Only
+   * the given rows are read.
+   */
+  public static void setRowSnaptimes(IteratorSetting cfg, Map<ByteSequence, Long> rowSnaptimes) {
+    StringBuilder sb = new StringBuilder();
+    for (Entry<ByteSequence, Long> entry : rowSnaptimes.entrySet()) {
+      long time = entry.getValue();
+      if (time < 0 || (ColumnConstants.PREFIX_MASK & time) != 0) {
+        throw new IllegalArgumentException();
+      }
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      sb.append(Base64.getEncoder().encodeToString(entry.getKey().toArray()));
+      sb.append(':');
+      sb.append(time);
+    }
+    cfg.addOption(ROW_TIMESTAMPS_OPT, sb.toString());
+  }
+
+  private static Map<ByteSequence, Long> decodeRowSnaptimes(String rowTimestamps) {
+    Map<ByteSequence, Long> rowSnaptimes = new HashMap<>();
+    if (!rowTimestamps.isEmpty()) {
+      for (String rowTimestamp : rowTimestamps.split(",")) {
+        int colon = rowTimestamp.indexOf(':');
+        byte[] row = Base64.getDecoder().decode(rowTimestamp.substring(0, colon));
+        rowSnaptimes.put(new ArrayByteSequence(row),
+            Long.parseLong(rowTimestamp.substring(colon + 1)));
+      }
+    }
+    return rowSnaptimes;
+  }
+
+  /**
+   * Only returns the given columns. Unlike fetching columns on a scanner, this compares column
+   * visibilities, so cells with other visibilities are filtered on the server.
+   */
+  public static void setColumns(IteratorSetting cfg, Collection<Column> columns) {
+    Base64.Encoder encoder = Base64.getEncoder();
+    StringBuilder sb = new StringBuilder();
+    for (Column col : columns) {
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      sb.append(encoder.encodeToString(col.getFamily().toArray())).append(':');
+      sb.append(encoder.encodeToString(col.getQualifier().toArray())).append(':');
+      sb.append(encoder.encodeToString(col.getVisibility().toArray()));
+    }
+    cfg.addOption(COLUMNS_OPT, sb.toString());
+  }
+
+  private static Map<ByteSequence, Map<ByteSequence, Set<ByteSequence>>> decodeColumns(
+      String columnsOpt) {
+    Base64.Decoder decoder = Base64.getDecoder();
+    Map<ByteSequence, Map<ByteSequence, Set<ByteSequence>>> columns = new HashMap<>();
+    if (!columnsOpt.isEmpty()) {
+      for (String col : columnsOpt.split(",")) {
+        String[] fields = col.split(":", -1);
+        ByteSequence family = new ArrayByteSequence(decoder.decode(fields[0]));
+        ByteSequence qualifier = new ArrayByteSequence(decoder.decode(fields[1]));
+        columns.computeIfAbsent(family, k -> new HashMap<>())
+            .computeIfAbsent(qualifier, k -> new HashSet<>())
+            .add(new ArrayByteSequence(decoder.decode(fields[2])));
+      }
+    }
+    return columns;
+  }
+
+  private boolean isRequested(Key key) {
+    Map<ByteSequence, Set<ByteSequence>> qualifiers = columns.get(key.getColumnFamilyData());
+    if (qualifiers == null) {
+      return false;
+    }
+    Set<ByteSequence> visibilities = qualifiers.get(key.getColumnQualifierData());
+    return visibilities != null && visibilities.contains(key.getColumnVisibilityData());
+  }
+
   public static void setReturnReadLockPresent(IteratorSetting cfg, boolean rrlp) {
     cfg.addOption(RETURN_READLOCK_PRESENT_OPT, rrlp + "");
   }
@@ -34,6 +34,8 @@ public class ZookeeperPath {
   public static final String ORACLE_MAX_TIMESTAMP = ORACLE + "/max-timestamp";
   public static final String ORACLE_GC_TIMESTAMP = ORACLE + "/gc-timestamp";
   public static final String ORACLE_SERVER = ORACLE + "/server";
+  // id of the oracle leader, written once it is ready to serve timestamps
+  public static final String ORACLE_LEADER = ORACLE + "/leader";
 
   public static final String TRANSACTOR = "/transactor";
   public static final String TRANSACTOR_COUNT = TRANSACTOR + "/count";
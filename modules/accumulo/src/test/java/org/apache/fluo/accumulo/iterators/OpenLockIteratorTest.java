@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.accumulo.iterators;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OpenLockIteratorTest {
+  OpenLockIterator newOLI(TestData input) {
+    OpenLockIterator oli = new OpenLockIterator();
+
+    IteratorEnvironment env = TestIteratorEnv.create(IteratorScope.scan, true);
+
+    try {
+      SortedKeyValueIterator<Key, Value> source = new SortedMapIterator(input.data);
+      oli.init(source, Collections.emptyMap(), env);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return oli;
+  }
+
+  @Test
+  public void testBasic() {
+    TestData input = new TestData();
+
+    // committed write lock and an open read lock
+    input.add("0 f q LOCK 11", "1 f q");
+    input.add("0 f q WRITE 16", "11");
+    input.add("0 f q DATA 11", "15");
+    input.add("0 f q RLOCK 23", " 0 f q");
+
+    // rolled back write lock followed by an open one
+    input.add("1 f q DEL_LOCK 11", "ABORT");
+    input.add("1 f q LOCK 20", "1 f q");
+    input.add("1 f q LOCK 11", "1 f q");
+    input.add("1 f q DATA 20", "17");
+    input.add("1 f q DATA 11", "15");
+
+    input.add("2 f q WRITE 16", "11");
+    input.add("2 f q DEL_RLOCK 25", "36");
+    input.add("2 f q RLOCK 25", " 0 f q");
+    input.add("2 f q RLOCK 24", " 0 f q");
+    input.add("2 f q LOCK 21", "1 f q");
+    input.add("2 f q ACK 11", "");
+    input.add("2 f q DATA 21", "19");
+    input.add("2 f q DATA 11", "15");
+
+    input.add("3 f q1 TX_DONE 16", "11");
+    input.add("3 f q LOCK 5", "1 f q");
+    input.add("3 f q DATA 5", "3");
+
+    // write lock rolled forward by a write for a later transaction
+    input.add("4 f q WRITE 30", "25");
+    input.add("4 f q LOCK 25", "1 f q");
+    input.add("4 f q DATA 25", "21");
+
+    TestData expected = new TestData();
+    expected.add("0 f q RLOCK 23", " 0 f q");
+    expected.add("1 f q LOCK 20", "1 f q");
+    expected.add("2 f q RLOCK 24", " 0 f q");
+    expected.add("2 f q LOCK 21", "1 f q");
+    expected.add("3 f q LOCK 5", "1 f q");
+
+    TestData output = new TestData(newOLI(input));
+    Assert.assertEquals(expected, output);
+
+    // continuing from each returned key must not return stale locks
+    output = new TestData(newOLI(input), new Range(), true);
+    Assert.assertEquals(expected, output);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.accumulo.iterators;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RollbackCheckIteratorTest {
+  RollbackCheckIterator newRCI(TestData input, IteratorSetting is) {
+    RollbackCheckIterator rci = new RollbackCheckIterator();
+
+    IteratorEnvironment env = TestIteratorEnv.create(IteratorScope.scan, true);
+
+    try {
+      SortedKeyValueIterator<Key, Value> source = new SortedMapIterator(input.data);
+      rci.init(source, is.getOptions(), env);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return rci;
+  }
+
+  RollbackCheckIterator newRCI(TestData input, long lockTime) {
+    IteratorSetting is = new IteratorSetting(10, RollbackCheckIterator.class);
+    RollbackCheckIterator.setLocktime(is, lockTime);
+    return newRCI(input, is);
+  }
+
+  RollbackCheckIterator newRCI(TestData input, Map<RowColumn, Long> lockTimes) {
+    IteratorSetting is = new IteratorSetting(10, RollbackCheckIterator.class);
+    RollbackCheckIterator.setLocktimes(is, lockTimes);
+    return newRCI(input, is);
+  }
+
+  /**
+   * Seeks a single column like a scanner, then resumes the scan after the key returned.
+   */
+  private static void checkColumn(RollbackCheckIterator rci, String row, String cq,
+      TestData output) throws IOException {
+    Range range = Range.exact(row, "f", cq);
+    rci.seek(range, Collections.emptySet(), false);
+    if (rci.hasTop()) {
+      Key top = rci.getTopKey();
+      output.data.put(top, rci.getTopValue());
+
+      rci.seek(new Range(top, false, range.getEndKey(), range.isEndKeyInclusive()),
+          Collections.emptySet(), false);
+      Assert.assertFalse(rci.hasTop());
+    }
+  }
+
+  private static TestData newInput() {
+    TestData input = new TestData();
+
+    // committed
+    input.add("0 f q WRITE 16", "11 PRIMARY");
+    input.add("0 f q DATA 11", "15");
+
+    // locked, after an earlier commit
+    input.add("0 f q2 WRITE 16", "11 PRIMARY");
+    input.add("0 f q2 LOCK 25", "0 f q2");
+    input.add("0 f q2 DATA 25", "17");
+    input.add("0 f q2 DATA 11", "15");
+
+    // rolled back and then locked by another transaction
+    input.add("1 f q DEL_LOCK 11", "ABORT PRIMARY");
+    input.add("1 f q LOCK 20", "1 f q");
+    input.add("1 f q LOCK 11", "1 f q");
+    input.add("1 f q DATA 20", "19");
+    input.add("1 f q DATA 11", "15");
+
+    // no trace of a transaction that started at 5
+    input.add("2 f q WRITE 16", "11 PRIMARY");
+    input.add("2 f q DATA 11", "15");
+
+    input.add("3 f q LOCK 7", "3 f q");
+    input.add("3 f q DATA 7", "15");
+
+    return input;
+  }
+
+  @Test
+  public void testColumnLocktimes() throws IOException {
+    TestData input = newInput();
+
+    Map<RowColumn, Long> lockTimes = new HashMap<>();
+    lockTimes.put(new RowColumn("0", new Column("f", "q")), 11L);
+    lockTimes.put(new RowColumn("0", new Column("f", "q2")), 25L);
+    lockTimes.put(new RowColumn("1", new Column("f", "q")), 11L);
+    lockTimes.put(new RowColumn("2", new Column("f", "q")), 5L);
+
+    TestData expected = new TestData();
+    expected.add("0 f q WRITE 16", "11 PRIMARY");
+    expected.add("0 f q2 LOCK 25", "0 f q2");
+    expected.add("1 f q DEL_LOCK 11", "ABORT PRIMARY");
+
+    // one iterator is seeked to every column, like a batch scan
+    RollbackCheckIterator rci = newRCI(input, lockTimes);
+    TestData output = new TestData();
+    checkColumn(rci, "0", "q", output);
+    checkColumn(rci, "0", "q2", output);
+    checkColumn(rci, "1", "q", output);
+    checkColumn(rci, "2", "q", output);
+    // a column without a lock time is not checked
+    checkColumn(rci, "3", "q", output);
+
+    Assert.assertEquals(expected, output);
+  }
+
+  @Test
+  public void testLocktime() throws IOException {
+    TestData input = newInput();
+
+    TestData output = new TestData();
+    checkColumn(newRCI(input, 11), "0", "q", output);
+    checkColumn(newRCI(input, 11), "0", "q2", output);
+    checkColumn(newRCI(input, 11), "1", "q", output);
+    checkColumn(newRCI(input, 7), "3", "q", output);
+
+    TestData expected = new TestData();
+    expected.add("0 f q WRITE 16", "11 PRIMARY");
+    expected.add("0 f q2 WRITE 16", "11 PRIMARY");
+    expected.add("1 f q DEL_LOCK 11", "ABORT PRIMARY");
+    expected.add("3 f q LOCK 7", "3 f q");
+
+    Assert.assertEquals(expected, output);
+  }
+}
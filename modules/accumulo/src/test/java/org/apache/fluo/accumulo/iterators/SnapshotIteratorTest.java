@@ -19,6 +19,10 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.google.common.collect.ImmutableSet;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
@@ -27,6 +31,8 @@ import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
 import org.apache.fluo.accumulo.util.ColumnType;
+import org.apache.fluo.accumulo.values.WriteValue;
+import org.apache.fluo.api.data.Column;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -284,6 +290,65 @@ public class SnapshotIteratorTest {
 
   }
 
+  @Test
+  public void testRowSnaptimes() throws IOException {
+    TestData input = new TestData();
+
+    for (String row : new String[] {"0", "1", "2"}) {
+      input.add(row + " f q WRITE 16", "11");
+      input.add(row + " f q DATA 11", "15");
+      input.add(row + " f q WRITE 10", "9");
+      input.add(row + " f q DATA 9", "14");
+    }
+
+    Map<ByteSequence, Long> rowSnaptimes = new HashMap<>();
+    rowSnaptimes.put(new ArrayByteSequence("0"), 11L);
+    rowSnaptimes.put(new ArrayByteSequence("1"), 17L);
+    IteratorSetting cfg = new IteratorSetting(10, SnapshotIterator.class);
+    SnapshotIterator.setRowSnaptimes(cfg, rowSnaptimes);
+    SnapshotIterator.setReturnReadLockPresent(cfg, true);
+
+    // row 2 has no snapshot time, so it is not read
+    TestData expected = new TestData().add("0 f q DATA 9", "14").add("1 f q DATA 11", "15");
+
+    for (boolean reseek : new boolean[] {false, true}) {
+      SnapshotIterator si = new SnapshotIterator();
+      si.init(new SortedMapIterator(input.data), cfg.getOptions(),
+          TestIteratorEnv.create(IteratorScope.scan, true));
+      Assert.assertEquals(expected, new TestData(si, new Range(), reseek));
+    }
+  }
+
+  @Test
+  public void testColumns() throws IOException {
+    TestData input = new TestData();
+    TestData expected = new TestData();
+
+    for (String vis : new String[] {"", "A", "B"}) {
+      for (String qual : new String[] {"q1", "q2"}) {
+        Key write = new Key("0", "f", qual, vis, ColumnType.WRITE.encode(16));
+        Key data = new Key("0", "f", qual, vis, ColumnType.DATA.encode(11));
+        input.data.put(write, new Value(WriteValue.encode(11, false, false)));
+        input.data.put(data, new Value(qual + vis));
+        if ((qual.equals("q1") && vis.equals("")) || (qual.equals("q2") && vis.equals("B"))) {
+          expected.data.put(data, new Value(qual + vis));
+        }
+      }
+    }
+
+    IteratorSetting cfg = new IteratorSetting(10, SnapshotIterator.class);
+    SnapshotIterator.setSnaptime(cfg, 17);
+    SnapshotIterator.setColumns(cfg,
+        ImmutableSet.of(new Column("f", "q1"), new Column("f", "q2", "B")));
+
+    for (boolean reseek : new boolean[] {false, true}) {
+      SnapshotIterator si = new SnapshotIterator();
+      si.init(new SortedMapIterator(input.data), cfg.getOptions(),
+          TestIteratorEnv.create(IteratorScope.scan, true));
+      Assert.assertEquals(expected, new TestData(si, new Range(), reseek));
+    }
+  }
+
   private void checkInput(TestData input, TestData expected, long startTs) {
     checkInput(input, expected, startTs, true);
   }
@@ -15,6 +15,8 @@
 
 package org.apache.fluo.api.client;
 
+import java.time.Duration;
+
 import org.apache.fluo.api.config.FluoConfiguration;
 import org.apache.fluo.api.config.SimpleConfiguration;
 import org.apache.fluo.api.metrics.MetricsReporter;
@@ -41,6 +43,20 @@ public interface FluoClient extends AutoCloseable {
    */
   Snapshot newSnapshot();
 
+  /**
+   * Creates a {@link Snapshot} that may reuse the start timestamp of a recent transaction instead
+   * of getting a new timestamp from the oracle. The snapshot will not see data committed after
+   * that timestamp, which was obtained at most {@code maxStaleness} ago. This is useful for read
+   * heavy clients that can tolerate slightly stale data. Use within a try-with-resources statement
+   * or call {@link Snapshot#close()} when you are finished using it.
+   *
+   * @param maxStaleness How long ago the snapshot's timestamp may have been obtained
+   * @since 2.1.0
+   */
+  default Snapshot newSnapshot(Duration maxStaleness) {
+    return newSnapshot();
+  }
+
   /**
    * Creates a {@link Transaction} for reading and writing data to Fluo. Unlike the transactions
    * provided by the {@link Loader} and {@link org.apache.fluo.api.observer.Observer}, users will
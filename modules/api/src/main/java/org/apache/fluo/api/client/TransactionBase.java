@@ -15,8 +15,12 @@
 
 package org.apache.fluo.api.client;
 
+import java.util.Collection;
+import java.util.Set;
+
 import org.apache.fluo.api.data.Bytes;
 import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
 import org.apache.fluo.api.exceptions.AlreadySetException;
 
 /**
@@ -61,6 +65,24 @@ public interface TransactionBase extends SnapshotBase {
    */
   void setWeakNotification(CharSequence row, Column col);
 
+  /**
+   * Starts reading the given cells in the background, so that later gets of them can be answered
+   * without waiting on a read. This is only a hint, an implementation may ignore it. Prefetching
+   * does not count as reading a cell, so a prefetched cell that is never read with a get does not
+   * cause collisions.
+   *
+   * @since 2.1.0
+   */
+  default void prefetch(Collection<RowColumn> rowColumns) {}
+
+  /**
+   * Starts reading the given columns of the given rows in the background. See
+   * {@link #prefetch(Collection)}.
+   *
+   * @since 2.1.0
+   */
+  default void prefetch(Collection<Bytes> rows, Set<Column> columns) {}
+
   /**
    * Normally when a Fluo transaction reads data and does not write to it, it will not collide with
    * other transactions making concurrent writes. When this method is called, all reads will acquire
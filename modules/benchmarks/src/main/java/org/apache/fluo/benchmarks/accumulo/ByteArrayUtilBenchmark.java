@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmarks.accumulo;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.fluo.accumulo.util.ByteArrayUtil;
+import org.apache.fluo.api.data.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link ByteArrayUtil} functions used to encode Fluo's values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteArrayUtilBenchmark {
+
+  byte[] concatenated;
+  long value;
+  byte[] dest;
+
+  @Setup
+  public void setup() {
+    concatenated = ByteArrayUtil.concat(Bytes.of("user:1234567890"), Bytes.of("attributes"),
+        Bytes.of("last_login"), Bytes.EMPTY, Bytes.of(new byte[] {1}),
+        Bytes.of(ByteArrayUtil.encode(123456789L)));
+    value = 987654321L;
+    dest = new byte[8];
+  }
+
+  @Benchmark
+  public List<Bytes> split() {
+    return ByteArrayUtil.split(concatenated);
+  }
+
+  @Benchmark
+  public byte[] encodeLong() {
+    return ByteArrayUtil.encode(value);
+  }
+
+  @Benchmark
+  public byte[] encodeLongInto() {
+    return ByteArrayUtil.encode(dest, 0, value);
+  }
+
+  @Benchmark
+  public long decodeLong() {
+    return ByteArrayUtil.decodeLong(dest);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmarks.accumulo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.fluo.accumulo.util.ColumnType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures encoding and decoding the column type held in the high bits of every timestamp Fluo
+ * writes. Iterators decode the type of every key they see.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColumnTypeBenchmark {
+
+  private static final int NUM_TIMESTAMPS = 1024;
+
+  long[] timestamps;
+  int next = 0;
+  long timestamp = 1_000_000L;
+
+  @Setup
+  public void setup() {
+    // cycle through all column types, so branch prediction does not hide the cost of decoding
+    ColumnType[] types = ColumnType.values();
+    timestamps = new long[NUM_TIMESTAMPS];
+    for (int i = 0; i < NUM_TIMESTAMPS; i++) {
+      timestamps[i] = types[(i * 7) % types.length].encode(1_000_000L + i);
+    }
+  }
+
+  private long nextTimestamp() {
+    next = (next + 1) & (NUM_TIMESTAMPS - 1);
+    return timestamps[next];
+  }
+
+  @Benchmark
+  public ColumnType from() {
+    return ColumnType.from(nextTimestamp());
+  }
+
+  @Benchmark
+  public long encode() {
+    return ColumnType.DATA.encode(timestamp++);
+  }
+}
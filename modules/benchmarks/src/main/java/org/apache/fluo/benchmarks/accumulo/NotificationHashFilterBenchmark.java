@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmarks.accumulo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.fluo.accumulo.iterators.NotificationHashFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link NotificationHashFilter#accept(Key, int, int)}, which workers use to divide up
+ * notifications and which runs for every notification scanned.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NotificationHashFilterBenchmark {
+
+  private static final int NUM_KEYS = 1024;
+
+  Key[] keys;
+  int next = 0;
+
+  @Setup
+  public void setup() {
+    keys = new Key[NUM_KEYS];
+    for (int i = 0; i < NUM_KEYS; i++) {
+      keys[i] = new Key(String.format("row:%08d", i), "ntfy", "attributes last_login");
+    }
+  }
+
+  @Benchmark
+  public boolean accept() {
+    next = (next + 1) & (NUM_KEYS - 1);
+    return NotificationHashFilter.accept(keys[next], 7, 3);
+  }
+}
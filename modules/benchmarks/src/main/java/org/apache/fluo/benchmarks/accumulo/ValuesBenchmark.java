@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmarks.accumulo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.fluo.accumulo.values.DelLockValue;
+import org.apache.fluo.accumulo.values.LockValue;
+import org.apache.fluo.accumulo.values.ReadLockValue;
+import org.apache.fluo.accumulo.values.WriteValue;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures encoding and decoding the values Fluo stores in lock, write, read lock and delete lock
+ * columns. Every transaction encodes these when committing and decodes them when reading.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValuesBenchmark {
+
+  Bytes primaryRow;
+  Column primaryColumn;
+  long transactor;
+  long timestamp;
+
+  byte[] lockValue;
+  byte[] writeValue;
+  byte[] readLockValue;
+  byte[] delLockValue;
+
+  @Setup
+  public void setup() {
+    primaryRow = Bytes.of("user:1234567890");
+    primaryColumn = new Column("attributes", "last_login", "");
+    transactor = 123456789L;
+    timestamp = 987654321L;
+
+    lockValue = LockValue.encode(primaryRow, primaryColumn, true, false, false, transactor);
+    writeValue = WriteValue.encode(timestamp, true, false);
+    readLockValue = ReadLockValue.encode(primaryRow, primaryColumn, transactor);
+    delLockValue = DelLockValue.encodeCommit(timestamp, true);
+  }
+
+  @Benchmark
+  public byte[] lockEncode() {
+    return LockValue.encode(primaryRow, primaryColumn, true, false, false, transactor);
+  }
+
+  @Benchmark
+  public LockValue lockDecode() {
+    return new LockValue(lockValue);
+  }
+
+  @Benchmark
+  public byte[] writeEncode() {
+    return WriteValue.encode(timestamp, true, false);
+  }
+
+  @Benchmark
+  public WriteValue writeDecode() {
+    return new WriteValue(writeValue);
+  }
+
+  @Benchmark
+  public byte[] readLockEncode() {
+    return ReadLockValue.encode(primaryRow, primaryColumn, transactor);
+  }
+
+  @Benchmark
+  public ReadLockValue readLockDecode() {
+    return new ReadLockValue(readLockValue);
+  }
+
+  @Benchmark
+  public byte[] delLockEncode() {
+    return DelLockValue.encodeCommit(timestamp, true);
+  }
+
+  @Benchmark
+  public DelLockValue delLockDecode() {
+    return new DelLockValue(delLockValue);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmarks.api;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.fluo.api.data.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures comparing, hashing and copying {@link Bytes}. The two compared values are equal except
+ * for their last byte, so comparisons examine every byte.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BytesBenchmark {
+
+  @Param({"8", "32", "256"})
+  int length;
+
+  byte[] array;
+  Bytes bytes1;
+  Bytes bytes2;
+  byte[] dest;
+
+  @Setup
+  public void setup() {
+    array = new byte[length];
+    new Random(42).nextBytes(array);
+    bytes1 = Bytes.of(array);
+    array[length - 1]++;
+    bytes2 = Bytes.of(array);
+    dest = new byte[length];
+  }
+
+  @Benchmark
+  public int compare() {
+    return bytes1.compareTo(bytes2);
+  }
+
+  @Benchmark
+  public int compareArray() {
+    return bytes1.compareTo(array);
+  }
+
+  @Benchmark
+  public boolean equal() {
+    return bytes1.equals(bytes2);
+  }
+
+  /**
+   * Bytes caches its hash code, so this hashes a new view of the same data each time.
+   */
+  @Benchmark
+  public int hash() {
+    return bytes1.subSequence(0, length).hashCode();
+  }
+
+  @Benchmark
+  public Bytes copyOf() {
+    return Bytes.of(array);
+  }
+
+  @Benchmark
+  public byte[] toArray() {
+    return bytes1.toArray();
+  }
+
+  @Benchmark
+  public byte[] copyTo() {
+    bytes1.copyTo(dest, 0);
+    return dest;
+  }
+}
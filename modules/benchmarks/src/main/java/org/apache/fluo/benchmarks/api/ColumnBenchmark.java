@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmarks.api;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.fluo.api.data.Column;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Column} equality, which is done for every column looked up in the maps a
+ * transaction keeps.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColumnBenchmark {
+
+  Column column;
+  Column equalColumn;
+  Column otherQualifier;
+  Column otherFamily;
+
+  @Setup
+  public void setup() {
+    column = new Column("family", "qualifier", "visibility");
+    equalColumn = new Column("family", "qualifier", "visibility");
+    otherQualifier = new Column("family", "qualifieR", "visibility");
+    otherFamily = new Column("familY", "qualifier", "visibility");
+  }
+
+  @Benchmark
+  public boolean equal() {
+    return column.equals(equalColumn);
+  }
+
+  @Benchmark
+  public boolean differentQualifier() {
+    return column.equals(otherQualifier);
+  }
+
+  @Benchmark
+  public boolean differentFamily() {
+    return column.equals(otherFamily);
+  }
+
+  @Benchmark
+  public int hash() {
+    return column.hashCode();
+  }
+
+  @Benchmark
+  public int compare() {
+    return column.compareTo(otherQualifier);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmarks.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.SortedMultiset;
+import com.google.common.collect.TreeMultiset;
+import org.apache.fluo.core.impl.ActiveTimestamps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how quickly many threads can add and remove active transaction timestamps, the work
+ * TimestampTracker does for every transaction. Each thread keeps a fixed number of transactions
+ * active, removing its oldest timestamp each time it adds a new one. Compares
+ * {@link ActiveTimestamps} with the synchronized sorted collection TimestampTracker used before it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ActiveTimestampsBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Shared {
+    // stands in for the oracle
+    final AtomicLong nextTimestamp = new AtomicLong(2);
+    final ActiveTimestamps activeTimestamps = new ActiveTimestamps();
+    final SortedMultiset<Long> sortedTimestamps = TreeMultiset.create();
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadState {
+    @Param({"16"})
+    int activePerThread;
+
+    long[] active;
+    int next = 0;
+
+    long swap(long ts) {
+      if (active == null) {
+        active = new long[activePerThread];
+      }
+      long oldest = active[next];
+      active[next] = ts;
+      next = (next + 1) % active.length;
+      return oldest;
+    }
+  }
+
+  @Benchmark
+  public long activeTimestamps(Shared shared, ThreadState state) {
+    long ts = shared.nextTimestamp.getAndIncrement();
+    shared.activeTimestamps.add(ts);
+    long oldest = state.swap(ts);
+    if (oldest != 0) {
+      shared.activeTimestamps.remove(oldest);
+    }
+    return ts;
+  }
+
+  @Benchmark
+  public long synchronizedMultiset(Shared shared, ThreadState state) {
+    long ts = shared.nextTimestamp.getAndIncrement();
+    synchronized (shared.sortedTimestamps) {
+      shared.sortedTimestamps.add(ts);
+    }
+    long oldest = state.swap(ts);
+    if (oldest != 0) {
+      synchronized (shared.sortedTimestamps) {
+        shared.sortedTimestamps.remove(oldest);
+      }
+    }
+    return ts;
+  }
+}
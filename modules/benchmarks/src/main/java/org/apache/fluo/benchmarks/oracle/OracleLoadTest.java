@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmarks.oracle;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.oracle.OracleClient;
+
+/**
+ * Load test for a running oracle. Starts a number of simulated clients in this process, each with
+ * its own {@link OracleClient} and request threads, and reports the timestamps per second obtained
+ * and the latency of getting a timestamp.
+ *
+ * <p>
+ * Run with
+ * {@code java -cp benchmarks.jar org.apache.fluo.benchmarks.oracle.OracleLoadTest <fluo.properties> <clients> <threadsPerClient> <seconds>}.
+ * The properties file must set the connection properties and application name of an initialized
+ * Fluo application whose oracle is running.
+ */
+public class OracleLoadTest {
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 4) {
+      System.err.println("Usage: " + OracleLoadTest.class.getSimpleName()
+          + " <fluo.properties> <clients> <threadsPerClient> <seconds>");
+      System.exit(1);
+    }
+
+    FluoConfiguration config = new FluoConfiguration(new File(args[0]));
+    int numClients = Integer.parseInt(args[1]);
+    int threadsPerClient = Integer.parseInt(args[2]);
+    long seconds = Long.parseLong(args[3]);
+
+    Recorder recorder = new Recorder(3);
+    List<Thread> threads = new ArrayList<>();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+    try (Environment env = new Environment(config)) {
+      // clients use the environment, so they are closed before it is
+      List<OracleClient> clients = new ArrayList<>();
+      try {
+        for (int c = 0; c < numClients; c++) {
+          OracleClient client = new OracleClient(env);
+          clients.add(client);
+          for (int t = 0; t < threadsPerClient; t++) {
+            Thread thread = new Thread(() -> {
+              while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                client.getStamp();
+                recorder.recordValue(System.nanoTime() - start);
+              }
+            });
+            thread.setDaemon(true);
+            threads.add(thread);
+          }
+        }
+
+        long start = System.nanoTime();
+        threads.forEach(Thread::start);
+
+        Histogram total = new Histogram(3);
+        while (System.nanoTime() < deadline) {
+          Thread.sleep(1000);
+          Histogram interval = recorder.getIntervalHistogram();
+          report("interval", interval, interval.getEndTimeStamp() - interval.getStartTimeStamp());
+          total.add(interval);
+        }
+
+        for (Thread thread : threads) {
+          thread.join();
+        }
+
+        total.add(recorder.getIntervalHistogram());
+        report("total", total, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      } finally {
+        clients.forEach(OracleClient::close);
+      }
+    }
+  }
+
+  private static void report(String label, Histogram histogram, long elapsedMs) {
+    double stampsPerSec = histogram.getTotalCount() * 1000.0 / Math.max(1, elapsedMs);
+    System.out.printf("%-8s stamps/sec: %,12.0f  p50: %,8dus  p99: %,8dus  max: %,8dus%n", label,
+        stampsPerSec, TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(50)),
+        TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99)),
+        TimeUnit.NANOSECONDS.toMicros(histogram.getMaxValue()));
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.benchmarks.oracle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.fluo.core.oracle.Stamp;
+import org.apache.fluo.core.oracle.StampRequestQueue;
+import org.apache.fluo.core.util.FluoThreadFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how quickly many threads can obtain timestamps from a local stub oracle that answers
+ * every batch immediately, so the cost measured is the hand off between client threads and the
+ * thread talking to the oracle. Compares {@link StampRequestQueue} with the blocking queue and per
+ * request latch that OracleClient used before it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class StampRequestBenchmark {
+
+  private static final long GC_TIMESTAMP = 1;
+
+  /**
+   * Stands in for the oracle and the thread that fetches timestamps from it.
+   */
+  private abstract static class StubOracle implements Runnable {
+    private Thread thread;
+    volatile boolean stopped;
+    long nextTimestamp = 2;
+
+    void start() {
+      thread = new FluoThreadFactory("stub oracle").newThread(this);
+      thread.start();
+    }
+
+    void stop() throws InterruptedException {
+      stopped = true;
+      thread.interrupt();
+      thread.join();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class RequestQueueState extends StubOracle {
+    final StampRequestQueue queue = new StampRequestQueue();
+
+    @Setup(Level.Trial)
+    public void setup() {
+      start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+      stop();
+    }
+
+    @Override
+    public void run() {
+      List<StampRequestQueue.Request> batch = new ArrayList<>();
+      while (!stopped) {
+        batch.clear();
+        queue.drainTo(batch, 100, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < batch.size(); i++) {
+          batch.get(i).complete(nextTimestamp++, GC_TIMESTAMP);
+        }
+      }
+    }
+  }
+
+  /**
+   * Has the same fields as {@link Stamp}, whose constructor is not visible here, so the baseline
+   * allocates one per request just as OracleClient did.
+   */
+  private static final class OldStamp {
+    final long txStamp;
+    final long gcStamp;
+
+    OldStamp(long txStamp, long gcStamp) {
+      this.txStamp = txStamp;
+      this.gcStamp = gcStamp;
+    }
+  }
+
+  private static final class TimeRequest {
+    CountDownLatch cdl = new CountDownLatch(1);
+    AtomicReference<OldStamp> stampRef = new AtomicReference<>();
+  }
+
+  @State(Scope.Benchmark)
+  public static class BlockingQueueState extends StubOracle {
+    final ArrayBlockingQueue<TimeRequest> queue = new ArrayBlockingQueue<>(10000);
+
+    @Setup(Level.Trial)
+    public void setup() {
+      start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+      stop();
+    }
+
+    @Override
+    public void run() {
+      List<TimeRequest> batch = new ArrayList<>();
+      while (!stopped) {
+        batch.clear();
+        try {
+          TimeRequest tr = queue.poll(100, TimeUnit.MILLISECONDS);
+          if (tr == null) {
+            continue;
+          }
+          batch.add(tr);
+        } catch (InterruptedException e) {
+          continue;
+        }
+        queue.drainTo(batch);
+        for (TimeRequest tr : batch) {
+          tr.stampRef.set(new OldStamp(nextTimestamp++, GC_TIMESTAMP));
+          tr.cdl.countDown();
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public Stamp requestQueue(RequestQueueState state) throws InterruptedException {
+    StampRequestQueue.Request request = state.queue.add();
+    while (!request.await(1, TimeUnit.SECONDS)) {
+      if (state.stopped) {
+        state.queue.abandon(request);
+        return null;
+      }
+    }
+    return request.getStamp();
+  }
+
+  @Benchmark
+  public long blockingQueue(BlockingQueueState state) throws InterruptedException {
+    TimeRequest tr = new TimeRequest();
+    state.queue.put(tr);
+    while (!tr.cdl.await(1, TimeUnit.SECONDS)) {
+      if (state.stopped) {
+        return -1;
+      }
+    }
+    return tr.stampRef.get().txStamp;
+  }
+}
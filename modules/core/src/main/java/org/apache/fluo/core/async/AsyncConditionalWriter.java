@@ -15,41 +15,186 @@
 
 package org.apache.fluo.core.async;
 
+import java.nio.ByteBuffer;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableList.Builder;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import org.apache.accumulo.core.client.ConditionalWriter;
 import org.apache.accumulo.core.client.ConditionalWriter.Result;
+import org.apache.accumulo.core.data.Condition;
 import org.apache.accumulo.core.data.ConditionalMutation;
+import org.apache.fluo.api.config.FluoConfiguration;
 import org.apache.fluo.core.impl.Environment;
 import org.apache.fluo.core.impl.FluoConfigurationImpl;
+import org.apache.fluo.core.metrics.MetricNames;
+import org.apache.fluo.core.metrics.MetricsUtil;
 import org.apache.fluo.core.util.FluoExecutors;
-import org.apache.fluo.core.util.Limit;
+import org.apache.fluo.core.util.FluoThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Writes conditional mutations without blocking the caller. The size of the mutations given to
+ * the conditional writer at once is limited, mutations over the limit wait in a queue. When a group
+ * window is configured, the mutations of concurrent calls are gathered for up to the window and
+ * written with one call to the conditional writer, which sends one batch per tablet server. Each
+ * caller gets only the results of its own mutations.
+ */
 public class AsyncConditionalWriter {
 
+  private static final Logger log = LoggerFactory.getLogger(AsyncConditionalWriter.class);
+
+  private class PendingWrite {
+    final Collection<ConditionalMutation> mutations;
+    final CompletableFuture<Iterator<Result>> result = new CompletableFuture<>();
+    final List<Result> results;
+    final long size;
+    final long createTime = System.nanoTime();
+    volatile long startTime = 0;
+    // guarded by the AsyncConditionalWriter
+    boolean admitted = false;
+
+    PendingWrite(Collection<ConditionalMutation> mutations) {
+      this.mutations = mutations;
+      this.results = new ArrayList<>(mutations.size());
+      long size = 0;
+      for (ConditionalMutation cm : mutations) {
+        size += estimateSize(cm);
+      }
+      this.size = size;
+    }
+
+    void started() {
+      startTime = System.nanoTime();
+      queueTime.update(startTime - createTime, TimeUnit.NANOSECONDS);
+    }
+
+    void add(Result r) {
+      results.add(r);
+      if (results.size() == mutations.size() && result.complete(results.iterator())) {
+        finished(this);
+      }
+    }
+
+    void fail(Throwable t) {
+      if (result.completeExceptionally(t)) {
+        finished(this);
+      }
+    }
+  }
+
+  // a task that writes a group, so close can fail the groups of tasks that never ran
+  private class GroupWrite implements Runnable {
+    final List<PendingWrite> group;
+
+    GroupWrite(List<PendingWrite> group) {
+      this.group = group;
+    }
+
+    @Override
+    public void run() {
+      writeGroup(group);
+    }
+  }
+
   private final ConditionalWriter cw;
   private final ExecutorService es;
-  private final Limit semaphore;
+  private final long maxMemory;
+  private long memoryUsed = 0;
+  private final Deque<PendingWrite> waiting = new ArrayDeque<>();
+  private final long groupWindowNanos;
+  private final int groupMaxMutations;
+  private final BlockingQueue<PendingWrite> queue;
+  private final Thread dispatcher;
+  private final Histogram groupSizes;
+  private final Counter bytesInFlight;
+  private final Timer queueTime;
+  private final Timer resultTime;
+  private volatile boolean closed = false;
 
+  public AsyncConditionalWriter(Environment env, ConditionalWriter cw, MetricRegistry registry) {
+    this(env, cw, registry, true);
+  }
 
-  public AsyncConditionalWriter(Environment env, ConditionalWriter cw) {
+  /**
+   * @param group if false, mutations of concurrent calls are written as they are admitted even when
+   *        a group window is configured
+   */
+  public AsyncConditionalWriter(Environment env, ConditionalWriter cw, MetricRegistry registry,
+      boolean group) {
+    this(env.getConfiguration(), env.getMetricNames(), cw, registry, group);
+  }
+
+  @VisibleForTesting
+  AsyncConditionalWriter(FluoConfiguration conf, MetricNames metricNames, ConditionalWriter cw,
+      MetricRegistry registry) {
+    this(conf, metricNames, cw, registry, true);
+  }
+
+  private AsyncConditionalWriter(FluoConfiguration conf, MetricNames metricNames,
+      ConditionalWriter cw, MetricRegistry registry, boolean group) {
     this.cw = cw;
-    int numThreads = env.getConfiguration().getInt(FluoConfigurationImpl.ASYNC_CW_THREADS,
+    int numThreads = conf.getInt(FluoConfigurationImpl.ASYNC_CW_THREADS,
         FluoConfigurationImpl.ASYNC_CW_THREADS_DEFAULT);
-    int numPermits = env.getConfiguration().getInt(FluoConfigurationImpl.ASYNC_CW_LIMIT,
-        FluoConfigurationImpl.ASYNC_CW_LIMIT_DEFAULT);
     this.es = FluoExecutors.newFixedThreadPool(numThreads, "asyncCw");
-    // the conditional writer currently has not memory limits... give it too much and it blows out
-    // memory.. need to fix this in conditional writer
-    // for now this needs to be memory based
-    this.semaphore = new Limit(numPermits);
+    // the conditional writer has no memory limits of its own
+    this.maxMemory = FluoConfigurationImpl.getAsyncCwMemory(conf);
+
+    this.groupWindowNanos = group
+        ? TimeUnit.MICROSECONDS.toNanos(FluoConfigurationImpl.getAsyncCwGroupWindow(conf)) : 0;
+    this.groupMaxMutations = conf.getInt(FluoConfigurationImpl.ASYNC_CW_GROUP_MAX,
+        FluoConfigurationImpl.ASYNC_CW_GROUP_MAX_DEFAULT);
+    Preconditions.checkArgument(groupMaxMutations > 0, "Bad value for %s %s",
+        FluoConfigurationImpl.ASYNC_CW_GROUP_MAX, groupMaxMutations);
+
+    this.groupSizes = MetricsUtil.getHistogram(conf, registry, metricNames.getCommitGroupSize());
+    this.bytesInFlight = registry.counter(metricNames.getCwBytesInFlight());
+    this.queueTime = MetricsUtil.getTimer(conf, registry, metricNames.getCwQueueTime());
+    this.resultTime = MetricsUtil.getTimer(conf, registry, metricNames.getCwResultTime());
+
+    if (groupWindowNanos > 0) {
+      this.queue = new LinkedBlockingQueue<>();
+      this.dispatcher = new FluoThreadFactory("asyncCwGroup").newThread(this::dispatch);
+      this.dispatcher.start();
+    } else {
+      this.queue = null;
+      this.dispatcher = null;
+    }
+  }
+
+  /**
+   * An estimate of the memory used by a mutation, including its conditions.
+   */
+  @VisibleForTesting
+  static long estimateSize(ConditionalMutation cm) {
+    long size = cm.numBytes();
+    for (Condition cond : cm.getConditions()) {
+      size += 64 + cond.getFamily().length() + cond.getQualifier().length()
+          + cond.getVisibility().length() + (cond.getValue() == null ? 0 : cond.getValue().length())
+          + 128 * cond.getIterators().length;
+    }
+    return size;
   }
 
   public CompletableFuture<Iterator<Result>> apply(Collection<ConditionalMutation> input) {
@@ -57,24 +202,205 @@ public class AsyncConditionalWriter {
       return CompletableFuture.completedFuture(Collections.<Result>emptyList().iterator());
     }
 
-    semaphore.acquire(input.size());
-    Iterator<Result> iter = cw.write(input.iterator());
-    return CompletableFuture.supplyAsync(() -> {
+    PendingWrite pw = new PendingWrite(input);
+    boolean admitted;
+    synchronized (this) {
+      admitted = waiting.isEmpty() && canAdmit(pw);
+      if (admitted) {
+        admit(pw);
+      } else {
+        waiting.add(pw);
+      }
+    }
+
+    if (admitted) {
+      start(pw);
+    } else if (closed) {
+      // close may have already failed the waiting writes
+      pw.fail(new IllegalStateException("Conditional writer is closed"));
+    }
+    return pw.result;
+  }
+
+  // must hold lock, a write larger than the limit is admitted when nothing else is in flight
+  private boolean canAdmit(PendingWrite pw) {
+    return memoryUsed == 0 || memoryUsed + pw.size <= maxMemory;
+  }
+
+  // must hold lock
+  private void admit(PendingWrite pw) {
+    pw.admitted = true;
+    memoryUsed += pw.size;
+    bytesInFlight.inc(pw.size);
+  }
+
+  private void start(PendingWrite pw) {
+    if (closed) {
+      pw.fail(new IllegalStateException("Conditional writer is closed"));
+      return;
+    }
+
+    if (queue != null) {
+      queue.add(pw);
+      if (closed) {
+        // the dispatcher may have already drained the queue
+        pw.fail(new IllegalStateException("Conditional writer is closed"));
+      }
+    } else {
       try {
-        Builder<Result> imlb = ImmutableList.builder();
-        while (iter.hasNext()) {
-          Result result = iter.next();
-          imlb.add(result);
+        es.execute(new GroupWrite(Collections.singletonList(pw)));
+      } catch (RejectedExecutionException e) {
+        pw.fail(e);
+      }
+    }
+  }
+
+  private void finished(PendingWrite pw) {
+    if (pw.startTime != 0) {
+      resultTime.update(System.nanoTime() - pw.startTime, TimeUnit.NANOSECONDS);
+    }
+
+    List<PendingWrite> toStart = new ArrayList<>();
+    synchronized (this) {
+      if (!pw.admitted) {
+        return;
+      }
+      memoryUsed -= pw.size;
+      bytesInFlight.dec(pw.size);
+      while (!waiting.isEmpty() && canAdmit(waiting.peek())) {
+        PendingWrite next = waiting.poll();
+        admit(next);
+        toStart.add(next);
+      }
+    }
+
+    toStart.forEach(this::start);
+  }
+
+  private void dispatch() {
+    List<PendingWrite> group = new ArrayList<>();
+    while (!closed) {
+      try {
+        PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+
+        group = new ArrayList<>();
+        group.add(first);
+        int numMutations = first.mutations.size();
+        long deadline = System.nanoTime() + groupWindowNanos;
+        while (numMutations < groupMaxMutations) {
+          PendingWrite pw = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (pw == null) {
+            break;
+          }
+          group.add(pw);
+          numMutations += pw.mutations.size();
+        }
+
+        groupSizes.update(group.size());
+        List<PendingWrite> toWrite = group;
+        group = new ArrayList<>();
+        try {
+          es.execute(new GroupWrite(toWrite));
+        } catch (RejectedExecutionException e) {
+          toWrite.forEach(pw -> pw.fail(e));
         }
-        return imlb.build().iterator();
-      } finally {
-        semaphore.release(input.size());
+      } catch (InterruptedException e) {
+        break;
+      } catch (RuntimeException e) {
+        log.warn("Failed to dispatch conditional mutations", e);
       }
-    }, es);
+    }
+
+    // includes a group that was being gathered when closed
+    List<PendingWrite> remaining = new ArrayList<>(group);
+    queue.drainTo(remaining);
+    remaining.forEach(pw -> pw.fail(new IllegalStateException("Conditional writer is closed")));
+  }
+
+  private void writeGroup(List<PendingWrite> group) {
+    List<ConditionalMutation> mutations = new ArrayList<>();
+    Map<ByteBuffer, List<Entry<ConditionalMutation, PendingWrite>>> owners = new HashMap<>();
+    for (PendingWrite pw : group) {
+      pw.started();
+      for (ConditionalMutation cm : pw.mutations) {
+        mutations.add(cm);
+        owners.computeIfAbsent(ByteBuffer.wrap(cm.getRow()), k -> new ArrayList<>(1))
+            .add(new SimpleImmutableEntry<>(cm, pw));
+      }
+    }
+
+    RuntimeException failure = null;
+    try {
+      Iterator<Result> iter = cw.write(mutations.iterator());
+      while (iter.hasNext()) {
+        Result result = iter.next();
+        claimOwner(owners, result.getMutation()).add(result);
+      }
+    } catch (RuntimeException e) {
+      failure = e;
+    }
+
+    for (PendingWrite pw : group) {
+      if (!pw.result.isDone()) {
+        pw.fail(failure != null ? failure
+            : new IllegalStateException("Missing conditional mutation results"));
+      }
+    }
+  }
+
+  /**
+   * Finds the call that a result is for. A result holds a copy of the mutation written, so when
+   * more than one call wrote to a row the mutations are compared.
+   */
+  private static PendingWrite claimOwner(
+      Map<ByteBuffer, List<Entry<ConditionalMutation, PendingWrite>>> owners,
+      ConditionalMutation written) {
+    List<Entry<ConditionalMutation, PendingWrite>> candidates =
+        owners.getOrDefault(ByteBuffer.wrap(written.getRow()), Collections.emptyList());
+    Iterator<Entry<ConditionalMutation, PendingWrite>> iter = candidates.iterator();
+    while (iter.hasNext()) {
+      Entry<ConditionalMutation, PendingWrite> candidate = iter.next();
+      if (candidates.size() == 1 || sameMutation(candidate.getKey(), written)) {
+        iter.remove();
+        return candidate.getValue();
+      }
+    }
+    throw new IllegalStateException("Result for a mutation that was not written");
+  }
+
+  private static boolean sameMutation(ConditionalMutation cm1, ConditionalMutation cm2) {
+    return cm1.getConditions().equals(cm2.getConditions())
+        && cm1.getUpdates().equals(cm2.getUpdates());
   }
 
   public void close() {
-    es.shutdownNow();
+    closed = true;
+    if (dispatcher != null) {
+      dispatcher.interrupt();
+      try {
+        dispatcher.join(5000);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    List<PendingWrite> notStarted;
+    synchronized (this) {
+      notStarted = new ArrayList<>(waiting);
+      waiting.clear();
+    }
+    notStarted.forEach(pw -> pw.fail(new IllegalStateException("Conditional writer is closed")));
+
+    // groups that were waiting for a thread
+    for (Runnable task : es.shutdownNow()) {
+      if (task instanceof GroupWrite) {
+        ((GroupWrite) task).group
+            .forEach(pw -> pw.fail(new IllegalStateException("Conditional writer is closed")));
+      }
+    }
     try {
       es.awaitTermination(5, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
@@ -15,6 +15,7 @@
 
 package org.apache.fluo.core.client;
 
+import java.time.Duration;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -85,6 +86,17 @@ public final class FluoClientImpl implements FluoClient {
     return tx;
   }
 
+  @Override
+  public Snapshot newSnapshot(Duration maxStaleness) {
+    Objects.requireNonNull(maxStaleness);
+    Preconditions.checkArgument(!maxStaleness.isNegative(), "maxStaleness cannot be negative");
+    TransactionImpl tx = new TransactionImpl(env, maxStaleness);
+    if (TracingTransaction.isTracingEnabled()) {
+      return new TracingTransaction(tx);
+    }
+    return tx;
+  }
+
   @Override
   public Transaction newTransaction() {
     TransactionImpl tx = new TransactionImpl(env) {
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A concurrent multiset of active timestamps that can report the oldest timestamp. Timestamps are
+ * spread over lock striped sorted arrays of primitive longs, so concurrent transactions rarely
+ * contend and timestamps are not boxed. Timestamps from the oracle mostly arrive in increasing
+ * order and the oldest are usually removed first, so adds and removes are usually at the ends of an
+ * array.
+ */
+public class ActiveTimestamps {
+
+  private static final class Stripe {
+    // the timestamps in this stripe are sorted and stored in timestamps[start, end)
+    private long[] timestamps = new long[16];
+    private int start = 0;
+    private int end = 0;
+
+    synchronized void add(long ts) {
+      if (end == timestamps.length) {
+        makeRoom();
+      }
+
+      if (start == end || ts >= timestamps[end - 1]) {
+        timestamps[end++] = ts;
+      } else {
+        int pos = Arrays.binarySearch(timestamps, start, end, ts);
+        if (pos < 0) {
+          pos = -(pos + 1);
+        }
+        System.arraycopy(timestamps, pos, timestamps, pos + 1, end - pos);
+        timestamps[pos] = ts;
+        end++;
+      }
+    }
+
+    private void makeRoom() {
+      int size = end - start;
+      if (size > timestamps.length / 2) {
+        timestamps = Arrays.copyOfRange(timestamps, start, start + timestamps.length * 2);
+      } else {
+        System.arraycopy(timestamps, start, timestamps, 0, size);
+      }
+      start = 0;
+      end = size;
+    }
+
+    synchronized boolean remove(long ts) {
+      if (start == end) {
+        return false;
+      }
+
+      if (timestamps[start] == ts) {
+        start++;
+      } else {
+        int pos = Arrays.binarySearch(timestamps, start, end, ts);
+        if (pos < 0) {
+          return false;
+        }
+        System.arraycopy(timestamps, pos + 1, timestamps, pos, end - pos - 1);
+        end--;
+      }
+
+      if (start == end) {
+        start = end = 0;
+      }
+      return true;
+    }
+
+    synchronized long oldest() {
+      return start == end ? Long.MAX_VALUE : timestamps[start];
+    }
+  }
+
+  private final Stripe[] stripes;
+  private final int mask;
+
+  public ActiveTimestamps() {
+    this(Runtime.getRuntime().availableProcessors() * 2);
+  }
+
+  /**
+   * @param concurrency The expected number of threads concurrently using this, rounded up to a
+   *        power of two to get the number of stripes
+   */
+  public ActiveTimestamps(int concurrency) {
+    Preconditions.checkArgument(concurrency > 0, "concurrency must be positive");
+    int numStripes = Integer.highestOneBit(Math.min(concurrency, 1 << 16) * 2 - 1);
+    stripes = new Stripe[numStripes];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new Stripe();
+    }
+    mask = numStripes - 1;
+  }
+
+  private Stripe getStripe(long ts) {
+    // timestamps from the oracle are sequential, so the low bits spread them evenly
+    return stripes[(int) ts & mask];
+  }
+
+  public void add(long ts) {
+    getStripe(ts).add(ts);
+  }
+
+  /**
+   * Removes one occurrence of the timestamp.
+   *
+   * @return false if the timestamp was not present
+   */
+  public boolean remove(long ts) {
+    return getStripe(ts).remove(ts);
+  }
+
+  /**
+   * @return the oldest timestamp, or {@link Long#MAX_VALUE} if there are no timestamps. The result
+   *         may not reflect adds and removes that happen while this runs.
+   */
+  public long oldest() {
+    long oldest = Long.MAX_VALUE;
+    for (Stripe stripe : stripes) {
+      oldest = Math.min(oldest, stripe.oldest());
+    }
+    return oldest;
+  }
+
+  public boolean isEmpty() {
+    return oldest() == Long.MAX_VALUE;
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.core.util.FluoExecutors;
+
+/**
+ * A bounded thread pool shared by the {@link AsyncReader}s of all transactions. Before reading, an
+ * async reader can linger so that more gets queue up and are read in one batch. When closed, the
+ * gets of readers with a batch scheduled or being read fail.
+ */
+public class AsyncReadExecutor implements AutoCloseable {
+
+  private final ExecutorService executor;
+  private final Executor lingerExecutor;
+  private final int maxBatchSize;
+  // readers with a batch scheduled or being read
+  private final Set<AsyncReader> activeReaders = ConcurrentHashMap.newKeySet();
+  private volatile boolean closed = false;
+
+  AsyncReadExecutor(FluoConfiguration conf) {
+    int threads = conf.getInt(FluoConfigurationImpl.ASYNC_READ_THREADS,
+        FluoConfigurationImpl.ASYNC_READ_THREADS_DEFAULT);
+    long lingerMicros = conf.getLong(FluoConfigurationImpl.ASYNC_READ_LINGER,
+        FluoConfigurationImpl.ASYNC_READ_LINGER_DEFAULT);
+    maxBatchSize = conf.getInt(FluoConfigurationImpl.ASYNC_READ_BATCH_MAX,
+        FluoConfigurationImpl.ASYNC_READ_BATCH_MAX_DEFAULT);
+
+    Preconditions.checkArgument(threads > 0, "Bad value for %s %s",
+        FluoConfigurationImpl.ASYNC_READ_THREADS, threads);
+    Preconditions.checkArgument(lingerMicros >= 0, "Bad value for %s %s",
+        FluoConfigurationImpl.ASYNC_READ_LINGER, lingerMicros);
+    Preconditions.checkArgument(maxBatchSize > 0, "Bad value for %s %s",
+        FluoConfigurationImpl.ASYNC_READ_BATCH_MAX, maxBatchSize);
+
+    executor = FluoExecutors.newFixedThreadPool(threads, "async-reads");
+    if (lingerMicros > 0) {
+      lingerExecutor = CompletableFuture.delayedExecutor(lingerMicros, TimeUnit.MICROSECONDS,
+          read -> {
+            try {
+              executor.execute(read);
+            } catch (RejectedExecutionException e) {
+              // closed while lingering, close failed the gets of the read
+            }
+          });
+    } else {
+      lingerExecutor = executor;
+    }
+  }
+
+  /**
+   * Runs a read after the configured linger time.
+   */
+  void execute(Runnable read) {
+    lingerExecutor.execute(read);
+  }
+
+  /**
+   * Runs a read without lingering, used when gets are already queued.
+   */
+  void executeNow(Runnable read) {
+    executor.execute(read);
+  }
+
+  int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * Called before a reader schedules a batch.
+   *
+   * @throws RejectedExecutionException if closed
+   */
+  void readerStarted(AsyncReader reader) {
+    activeReaders.add(reader);
+    if (closed) {
+      // close may have already failed the active readers
+      activeReaders.remove(reader);
+      throw new RejectedExecutionException("Async read executor is closed");
+    }
+  }
+
+  /**
+   * Called after a reader's batch is read.
+   */
+  void readerFinished(AsyncReader reader) {
+    activeReaders.remove(reader);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    // reads queued for a thread are dropped, and a read that is running may wait on tasks that are
+    // dropped, so fail the gets of every active reader
+    executor.shutdownNow();
+    RejectedExecutionException closedException =
+        new RejectedExecutionException("Async read executor is closed");
+    activeReaders.forEach(reader -> reader.fail(closedException));
+    activeReaders.clear();
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
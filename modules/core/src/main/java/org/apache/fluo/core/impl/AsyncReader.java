@@ -17,28 +17,55 @@ package org.apache.fluo.core.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Collections2;
 import org.apache.fluo.api.data.Bytes;
 import org.apache.fluo.api.data.Column;
 import org.apache.fluo.api.data.RowColumn;
 
+/**
+ * Reads a transaction's async gets in batches on the shared {@link AsyncReadExecutor}. At most one
+ * batch per transaction is read at a time, gets queued while a batch is read go in the next batch.
+ * When the {@link ReadMultiplexer} is enabled, batches from concurrent transactions share its
+ * scans, even though each transaction reads at its own start timestamp.
+ */
 public class AsyncReader {
-  private BlockingQueue<AsyncGet> asyncGetsQueue;
-  private ExecutorService executorService;
-  private TransactionImpl tx;
-
-  public AsyncReader(TransactionImpl tx) {
-    this.tx = tx;
-    asyncGetsQueue = new LinkedBlockingQueue<>();
-    executorService = Executors.newSingleThreadExecutor();
+
+  /**
+   * Reads a batch of gets, running scans and transaction status lookups on the given executor.
+   */
+  interface BatchReader {
+    CompletableFuture<Map<RowColumn, Bytes>> read(Collection<RowColumn> rowColumns,
+        Executor executor);
+  }
+
+  private final Queue<AsyncGet> asyncGetsQueue = new ConcurrentLinkedQueue<>();
+  // true while a batch is scheduled or being read
+  private final AtomicBoolean readScheduled = new AtomicBoolean(false);
+  // the gets of the batch being read
+  private volatile List<AsyncGet> reading = Collections.emptyList();
+  private final AsyncReadExecutor executor;
+  private final BatchReader reader;
+
+  public AsyncReader(TransactionImpl tx, AsyncReadExecutor executor) {
+    this(tx::getAsync, executor);
+  }
+
+  @VisibleForTesting
+  AsyncReader(BatchReader reader, AsyncReadExecutor executor) {
+    this.reader = reader;
+    this.executor = executor;
   }
 
   public CompletableFuture<Bytes> get(Bytes row, Column column) {
@@ -48,28 +75,85 @@ public class AsyncReader {
   public CompletableFuture<Bytes> get(Bytes row, Column column, Bytes defaultValue) {
     AsyncGet curAsyncGet = new AsyncGet(row, column, defaultValue);
     asyncGetsQueue.add(curAsyncGet);
+    scheduleRead(true);
+    return curAsyncGet.res;
+  }
 
-    executorService.submit(() -> {
-      List<AsyncGet> getsList = new ArrayList<>();
-      asyncGetsQueue.drainTo(getsList);
-
+  private void scheduleRead(boolean linger) {
+    if (readScheduled.compareAndSet(false, true)) {
       try {
-        Collection<RowColumn> rowColumns = Collections2.transform(getsList, ag -> ag.rc);
-
-        Map<RowColumn, Bytes> getsMap = tx.get(rowColumns);
-
-        for (AsyncGet asyncGet : getsList) {
-          Bytes result = getsMap.get(asyncGet.rc);
-          asyncGet.res.complete(result == null ? asyncGet.defaultValue : result);
+        executor.readerStarted(this);
+        if (linger) {
+          executor.execute(this::readBatch);
+        } else {
+          executor.executeNow(this::readBatch);
         }
-      } catch (Exception e) {
+      } catch (RejectedExecutionException e) {
+        executor.readerFinished(this);
+        List<AsyncGet> getsList = new ArrayList<>(asyncGetsQueue);
+        asyncGetsQueue.removeAll(getsList);
+        readScheduled.set(false);
         for (AsyncGet asyncGet : getsList) {
           asyncGet.res.completeExceptionally(e);
         }
       }
-    });
+    }
+  }
 
-    return curAsyncGet.res;
+  /**
+   * Fails the gets being read and queued, called when the executor is closed.
+   */
+  void fail(Throwable t) {
+    List<AsyncGet> getsList = new ArrayList<>(reading);
+    AsyncGet asyncGet;
+    while ((asyncGet = asyncGetsQueue.poll()) != null) {
+      getsList.add(asyncGet);
+    }
+    // later gets are rejected by the closed executor
+    readScheduled.set(false);
+    for (AsyncGet ag : getsList) {
+      ag.res.completeExceptionally(t);
+    }
+  }
+
+  private void readBatch() {
+    List<AsyncGet> getsList = new ArrayList<>();
+    AsyncGet asyncGet;
+    while (getsList.size() < executor.getMaxBatchSize()
+        && (asyncGet = asyncGetsQueue.poll()) != null) {
+      getsList.add(asyncGet);
+    }
+    reading = getsList;
+
+    CompletableFuture<Map<RowColumn, Bytes>> read;
+    try {
+      Collection<RowColumn> rowColumns = Collections2.transform(getsList, ag -> ag.rc);
+      // waiting for locks does not hold an executor thread
+      read = reader.read(rowColumns, executor::executeNow);
+    } catch (Exception e) {
+      read = CompletableFuture.failedFuture(e);
+    }
+
+    read.whenComplete((getsMap, e) -> {
+      try {
+        for (AsyncGet ag : getsList) {
+          if (e == null) {
+            Bytes result = getsMap.get(ag.rc);
+            ag.res.complete(result == null ? ag.defaultValue : result);
+          } else {
+            ag.res.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+          }
+        }
+      } finally {
+        reading = Collections.emptyList();
+        executor.readerFinished(this);
+        readScheduled.set(false);
+        // gets queued while this batch was read already waited, so do not linger for them
+        if (!asyncGetsQueue.isEmpty()) {
+          scheduleRead(false);
+        }
+      }
+    });
   }
 
   public CompletableFuture<String> gets(String row, Column column) {
@@ -81,10 +165,6 @@ public class AsyncReader {
     return get(Bytes.of(row), column, defaultValueBytes).thenApply(b -> b.toString());
   }
 
-  public void close() {
-    executorService.shutdown();
-  }
-
   static class AsyncGet {
     RowColumn rc;
     CompletableFuture<Bytes> res;
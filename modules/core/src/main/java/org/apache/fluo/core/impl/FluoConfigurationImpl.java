@@ -28,6 +28,12 @@ public class FluoConfigurationImpl {
   public static final String FLUO_IMPL_PREFIX = FluoConfiguration.FLUO_PREFIX + ".impl";
 
   public static final String ORACLE_PORT_PROP = FLUO_IMPL_PREFIX + ".oracle.port";
+  // Bounds on the number of timestamps the oracle reserves in Zookeeper at once. The oracle starts
+  // with the min and grows towards the max as demand for timestamps increases.
+  public static final String ORACLE_MIN_BLOCK_SIZE_PROP = FLUO_IMPL_PREFIX + ".oracle.block.min";
+  public static final long ORACLE_MIN_BLOCK_SIZE_DEFAULT = 1000;
+  public static final String ORACLE_MAX_BLOCK_SIZE_PROP = FLUO_IMPL_PREFIX + ".oracle.block.max";
+  public static final long ORACLE_MAX_BLOCK_SIZE_DEFAULT = 1_000_000;
   public static final String WORKER_FINDER_PROP = FLUO_IMPL_PREFIX + ".worker.finder";
   public static final String WORKER_PARTITION_GROUP_SIZE =
       FLUO_IMPL_PREFIX + ".worker.finder.partition.groupSize";
@@ -45,9 +51,16 @@ public class FluoConfigurationImpl {
 
   // Time period that each client will update ZK with their oldest active timestamp
   // If period is too short, Zookeeper may be overloaded. If too long, garbage collection
-  // may keep older versions of table data unnecessarily.
+  // may keep older versions of table data unnecessarily. A client with no active timestamps
+  // removes its node after this period.
   public static final String ZK_UPDATE_PERIOD_PROP = FLUO_IMPL_PREFIX + ".timestamp.update.period";
   public static final long ZK_UPDATE_PERIOD_MS_DEFAULT = 60000;
+  // Time period that each client checks if its oldest active timestamp changed. The timestamp is
+  // only written to ZK when it changed, at most once per period. The oracle checks these
+  // timestamps every second, so this period bounds how far the GC timestamp lags behind.
+  public static final String ZK_PUBLISH_PERIOD_PROP =
+      FLUO_IMPL_PREFIX + ".timestamp.publish.period";
+  public static final long ZK_PUBLISH_PERIOD_MS_DEFAULT = 1000;
 
   // CW is short for ConditionalWriter
   public static final String CW_MIN_THREADS_PROP = FLUO_IMPL_PREFIX + ".cw.threads.min";
@@ -70,6 +83,60 @@ public class FluoConfigurationImpl {
     return numThreads;
   }
 
+  public static long getOracleMinBlockSize(FluoConfiguration conf) {
+    long min = conf.getLong(ORACLE_MIN_BLOCK_SIZE_PROP, ORACLE_MIN_BLOCK_SIZE_DEFAULT);
+    if (min <= 0) {
+      throw new IllegalArgumentException("Bad value for " + ORACLE_MIN_BLOCK_SIZE_PROP + " " + min);
+    }
+    return min;
+  }
+
+  public static long getOracleMaxBlockSize(FluoConfiguration conf) {
+    long min = getOracleMinBlockSize(conf);
+    long max = conf.getLong(ORACLE_MAX_BLOCK_SIZE_PROP, ORACLE_MAX_BLOCK_SIZE_DEFAULT);
+    if (max < min) {
+      throw new IllegalArgumentException("Bad oracle block size props " + min + " " + max);
+    }
+    return max;
+  }
+
+  // Type of Thrift server the oracle runs. The hsha server has one selector thread that reads all
+  // requests and hands them to a worker pool. The selector server spreads connections over
+  // multiple selector threads, which scales better when many clients are connected.
+  public static final String ORACLE_SERVER_TYPE_PROP = FLUO_IMPL_PREFIX + ".oracle.server.type";
+  public static final String ORACLE_SERVER_TYPE_HSHA = "hsha";
+  public static final String ORACLE_SERVER_TYPE_SELECTOR = "selector";
+  public static final String ORACLE_SERVER_TYPE_DEFAULT = ORACLE_SERVER_TYPE_HSHA;
+  public static final String ORACLE_SERVER_SELECTOR_THREADS_PROP =
+      FLUO_IMPL_PREFIX + ".oracle.server.selector.threads";
+  public static final int ORACLE_SERVER_SELECTOR_THREADS_DEFAULT = 2;
+  public static final String ORACLE_SERVER_WORKER_THREADS_PROP =
+      FLUO_IMPL_PREFIX + ".oracle.server.worker.threads";
+  public static final int ORACLE_SERVER_WORKER_THREADS_DEFAULT = 5;
+
+  public static String getOracleServerType(FluoConfiguration conf) {
+    String type = conf.getString(ORACLE_SERVER_TYPE_PROP, ORACLE_SERVER_TYPE_DEFAULT);
+    if (!type.equals(ORACLE_SERVER_TYPE_HSHA) && !type.equals(ORACLE_SERVER_TYPE_SELECTOR)) {
+      throw new IllegalArgumentException("Bad value for " + ORACLE_SERVER_TYPE_PROP + " " + type);
+    }
+    return type;
+  }
+
+  // Number of batches of timestamp requests an oracle client may have outstanding at once. Each
+  // batch in flight uses its own connection to the oracle.
+  public static final String ORACLE_CLIENT_MAX_INFLIGHT_PROP =
+      FLUO_IMPL_PREFIX + ".oracle.client.inflight.max";
+  public static final int ORACLE_CLIENT_MAX_INFLIGHT_DEFAULT = 1;
+
+  public static int getOracleClientMaxInFlight(FluoConfiguration conf) {
+    int m = conf.getInt(ORACLE_CLIENT_MAX_INFLIGHT_PROP, ORACLE_CLIENT_MAX_INFLIGHT_DEFAULT);
+    if (m <= 0) {
+      throw new IllegalArgumentException(
+          "Bad value for " + ORACLE_CLIENT_MAX_INFLIGHT_PROP + " " + m);
+    }
+    return m;
+  }
+
   // BW is short for BatchWriter
   public static final String BW_MIN_THREADS_PROP = FLUO_IMPL_PREFIX + ".bw.threads.min";
   public static final int BW_MIN_THREADS_DEFAULT = 3;
@@ -104,6 +171,24 @@ public class FluoConfigurationImpl {
     return m;
   }
 
+  // max number of cells a transaction will cache from its reads, zero disables the cache
+  public static final String TX_READ_CACHE_MAX_CELLS_PROP =
+      FLUO_IMPL_PREFIX + ".tx.read.cache.cells.max";
+  public static final int TX_READ_CACHE_MAX_CELLS_DEFAULT = 10_000;
+
+  public static int getTxReadCacheMaxCells(FluoConfiguration conf) {
+    int m = conf.getInt(TX_READ_CACHE_MAX_CELLS_PROP, TX_READ_CACHE_MAX_CELLS_DEFAULT);
+    if (m < 0) {
+      throw new IllegalArgumentException("Bad value for " + TX_READ_CACHE_MAX_CELLS_PROP + " " + m);
+    }
+    return m;
+  }
+
+  // commit transactions whose updates are all in one row with fewer round trips
+  public static final String TX_SINGLE_ROW_COMMIT_ENABLED =
+      FLUO_IMPL_PREFIX + ".tx.commit.single.row.enabled";
+  public static final boolean TX_SINGLE_ROW_COMMIT_ENABLED_DEFAULT = true;
+
   public static final String TX_INFO_CACHE_WEIGHT = FLUO_IMPL_PREFIX + ".tx.failed.cache.weight.mb";
   public static final long TX_INFO_CACHE_WEIGHT_DEFAULT = 10_000_000;
 
@@ -222,12 +307,154 @@ public class FluoConfigurationImpl {
 
   public static final String ASYNC_CW_THREADS = FLUO_IMPL_PREFIX + ".async.cw.threads";
   public static final int ASYNC_CW_THREADS_DEFAULT = 8;
-  public static final String ASYNC_CW_LIMIT = FLUO_IMPL_PREFIX + ".async.cw.limit";
-  public static final int ASYNC_CW_LIMIT_DEFAULT = 100000;
+  // max size of the mutations the async conditional writer has written and not received results
+  // for, more mutations wait until results arrive
+  public static final String ASYNC_CW_MEMORY = FLUO_IMPL_PREFIX + ".async.cw.memory";
+  public static final long ASYNC_CW_MEMORY_DEFAULT = 20 * 1024 * 1024;
+
+  public static long getAsyncCwMemory(FluoConfiguration conf) {
+    long m = conf.getLong(ASYNC_CW_MEMORY, ASYNC_CW_MEMORY_DEFAULT);
+    if (m <= 0) {
+      throw new IllegalArgumentException("Bad value for " + ASYNC_CW_MEMORY + " " + m);
+    }
+    return m;
+  }
+
+  // time to gather conditional mutations from concurrent commits into one write, zero disables
+  public static final String ASYNC_CW_GROUP_WINDOW = FLUO_IMPL_PREFIX + ".async.cw.group.window.us";
+  public static final long ASYNC_CW_GROUP_WINDOW_DEFAULT = 0;
+  public static final String ASYNC_CW_GROUP_MAX = FLUO_IMPL_PREFIX + ".async.cw.group.max";
+  public static final int ASYNC_CW_GROUP_MAX_DEFAULT = 10000;
+
+  public static long getAsyncCwGroupWindow(FluoConfiguration conf) {
+    long window = conf.getLong(ASYNC_CW_GROUP_WINDOW, ASYNC_CW_GROUP_WINDOW_DEFAULT);
+    if (window < 0) {
+      throw new IllegalArgumentException("Bad value for " + ASYNC_CW_GROUP_WINDOW + " " + window);
+    }
+    return window;
+  }
 
   public static final String ASYNC_COMMIT_THREADS = FLUO_IMPL_PREFIX + ".tx.commit.threads.async";
   public static final int ASYNC_COMMIT_THREADS_DEFAULT = 8;
-
+  // threads that check commits that collided for orphaned locks, these checks may wait on locks
   public static final String SYNC_COMMIT_THREADS = FLUO_IMPL_PREFIX + ".tx.commit.threads.sync";
   public static final int SYNC_COMMIT_THREADS_DEFAULT = 32;
+  // threads that read the status of commits that had unknown results, each reads one batch of
+  // lookups at a time
+  public static final String COMMIT_STATUS_THREADS =
+      FLUO_IMPL_PREFIX + ".tx.commit.threads.status";
+  public static final int COMMIT_STATUS_THREADS_DEFAULT = 4;
+
+  public static int getCommitStatusThreads(FluoConfiguration conf) {
+    int m = conf.getInt(COMMIT_STATUS_THREADS, COMMIT_STATUS_THREADS_DEFAULT);
+    if (m <= 0) {
+      throw new IllegalArgumentException("Bad value for " + COMMIT_STATUS_THREADS + " " + m);
+    }
+    return m;
+  }
+
+  public static final String ASYNC_READ_THREADS = FLUO_IMPL_PREFIX + ".tx.read.threads.async";
+  public static final int ASYNC_READ_THREADS_DEFAULT = 16;
+  // time an async get waits for other gets from its transaction so they can be read in one batch
+  public static final String ASYNC_READ_LINGER = FLUO_IMPL_PREFIX + ".tx.read.async.linger.us";
+  public static final long ASYNC_READ_LINGER_DEFAULT = 0;
+  public static final String ASYNC_READ_BATCH_MAX = FLUO_IMPL_PREFIX + ".tx.read.async.batch.max";
+  public static final int ASYNC_READ_BATCH_MAX_DEFAULT = 1000;
+
+  // time to gather single row reads from concurrent transactions into one scan, zero disables
+  public static final String READ_COALESCE_WINDOW =
+      FLUO_IMPL_PREFIX + ".tx.read.coalesce.window.us";
+  public static final long READ_COALESCE_WINDOW_DEFAULT = 0;
+  public static final String READ_COALESCE_BATCH_MAX =
+      FLUO_IMPL_PREFIX + ".tx.read.coalesce.batch.max";
+  public static final int READ_COALESCE_BATCH_MAX_DEFAULT = 1000;
+  public static final String READ_COALESCE_THREADS = FLUO_IMPL_PREFIX + ".tx.read.coalesce.threads";
+  public static final int READ_COALESCE_THREADS_DEFAULT = 4;
+
+  // max query threads a multi-row read uses, one is used per tablet the read touches
+  public static final String PARALLEL_SCAN_THREADS_MAX =
+      FLUO_IMPL_PREFIX + ".tx.read.parallel.threads.max";
+  public static final int PARALLEL_SCAN_THREADS_MAX_DEFAULT = 8;
+  // query threads beyond the first one of each multi-row read are taken from this shared budget
+  public static final String PARALLEL_SCAN_THREADS_BUDGET =
+      FLUO_IMPL_PREFIX + ".tx.read.parallel.threads.budget";
+  public static final int PARALLEL_SCAN_THREADS_BUDGET_DEFAULT = 64;
+  // how long the table splits used to count the tablets a read touches are cached
+  public static final String PARALLEL_SCAN_SPLITS_REFRESH =
+      FLUO_IMPL_PREFIX + ".tx.read.parallel.splits.refresh.ms";
+  public static final long PARALLEL_SCAN_SPLITS_REFRESH_DEFAULT = 60000;
+
+  public static int getParallelScanMaxThreads(FluoConfiguration conf) {
+    int max = conf.getInt(PARALLEL_SCAN_THREADS_MAX, PARALLEL_SCAN_THREADS_MAX_DEFAULT);
+    if (max <= 0) {
+      throw new IllegalArgumentException("Bad value for " + PARALLEL_SCAN_THREADS_MAX + " " + max);
+    }
+    return max;
+  }
+
+  // zero is allowed, every multi-row read then uses a single query thread
+  public static int getParallelScanThreadBudget(FluoConfiguration conf) {
+    int budget = conf.getInt(PARALLEL_SCAN_THREADS_BUDGET, PARALLEL_SCAN_THREADS_BUDGET_DEFAULT);
+    if (budget < 0) {
+      throw new IllegalArgumentException(
+          "Bad value for " + PARALLEL_SCAN_THREADS_BUDGET + " " + budget);
+    }
+    return budget;
+  }
+
+  public static long getParallelScanSplitsRefresh(FluoConfiguration conf) {
+    long refresh = conf.getLong(PARALLEL_SCAN_SPLITS_REFRESH, PARALLEL_SCAN_SPLITS_REFRESH_DEFAULT);
+    if (refresh <= 0) {
+      throw new IllegalArgumentException(
+          "Bad value for " + PARALLEL_SCAN_SPLITS_REFRESH + " " + refresh);
+    }
+    return refresh;
+  }
+
+  // time a reader first waits for locks it can not resolve, later waits double up to the max
+  public static final String LOCK_WAIT_INITIAL = FLUO_IMPL_PREFIX + ".tx.lock.wait.initial.ms";
+  public static final long LOCK_WAIT_INITIAL_DEFAULT = 50;
+  public static final String LOCK_WAIT_MAX = FLUO_IMPL_PREFIX + ".tx.lock.wait.max.ms";
+  public static final long LOCK_WAIT_MAX_DEFAULT = 60000;
+
+  // time between a worker's sweeps of its partition for locks left by failed transactions, zero
+  // disables sweeping
+  public static final String WORKER_LOCK_SWEEP_INTERVAL =
+      FLUO_IMPL_PREFIX + ".worker.lock.sweep.interval.ms";
+  public static final long WORKER_LOCK_SWEEP_INTERVAL_DEFAULT = 0;
+
+  // learn the cells each observer reads relative to its notification row and prefetch them
+  public static final String WORKER_PREFETCH_ENABLED =
+      FLUO_IMPL_PREFIX + ".worker.prefetch.enabled";
+  public static final boolean WORKER_PREFETCH_ENABLED_DEFAULT = false;
+  // percent of an observer's recent notifications that must read a cell before it is prefetched
+  public static final String WORKER_PREFETCH_MIN_PERCENT =
+      FLUO_IMPL_PREFIX + ".worker.prefetch.percent.min";
+  public static final int WORKER_PREFETCH_MIN_PERCENT_DEFAULT = 50;
+
+  public static long getReadCoalesceWindow(FluoConfiguration conf) {
+    long window = conf.getLong(READ_COALESCE_WINDOW, READ_COALESCE_WINDOW_DEFAULT);
+    if (window < 0) {
+      throw new IllegalArgumentException("Bad value for " + READ_COALESCE_WINDOW + " " + window);
+    }
+    return window;
+  }
+
+  public static int getWorkerPrefetchMinPercent(FluoConfiguration conf) {
+    int percent = conf.getInt(WORKER_PREFETCH_MIN_PERCENT, WORKER_PREFETCH_MIN_PERCENT_DEFAULT);
+    if (percent <= 0 || percent > 100) {
+      throw new IllegalArgumentException(
+          "Bad value for " + WORKER_PREFETCH_MIN_PERCENT + " " + percent);
+    }
+    return percent;
+  }
+
+  public static long getLockSweepInterval(FluoConfiguration conf) {
+    long interval = conf.getLong(WORKER_LOCK_SWEEP_INTERVAL, WORKER_LOCK_SWEEP_INTERVAL_DEFAULT);
+    if (interval < 0) {
+      throw new IllegalArgumentException(
+          "Bad value for " + WORKER_LOCK_SWEEP_INTERVAL + " " + interval);
+    }
+    return interval;
+  }
 }
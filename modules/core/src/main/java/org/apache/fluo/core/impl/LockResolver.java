@@ -16,16 +16,20 @@
 package org.apache.fluo.core.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.BatchScanner;
-import org.apache.accumulo.core.client.ConditionalWriter;
 import org.apache.accumulo.core.client.ConditionalWriter.Status;
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.data.ByteSequence;
@@ -45,6 +49,7 @@ import org.apache.fluo.accumulo.values.ReadLockValue;
 import org.apache.fluo.api.data.Bytes;
 import org.apache.fluo.api.data.Column;
 import org.apache.fluo.api.data.RowColumn;
+import org.apache.fluo.core.async.AsyncConditionalWriter;
 import org.apache.fluo.core.util.ByteUtil;
 import org.apache.fluo.core.util.ColumnUtil;
 import org.apache.fluo.core.util.ConditionalFlutation;
@@ -131,11 +136,40 @@ public class LockResolver {
    */
   static boolean resolveLocks(Environment env, long startTs, TxStats stats,
       List<Entry<Key, Value>> locksKVs, long startTime) {
-    // check if transactor is still alive
+    return join(resolveLocksAsync(env, startTs, stats, locksKVs, startTime, Runnable::run));
+  }
 
-    int numResolved = 0;
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
 
-    Map<ByteSequence, Mutation> mutations = new HashMap<>();
+  /**
+   * Same as {@link #resolveLocks(Environment, long, TxStats, List, long)}, except it does not wait
+   * for transaction status lookups and rollforward or rollback writes.
+   *
+   * @param executor runs transaction status lookups
+   * @return a future that completes with true if all locks passed in were resolved
+   */
+  static CompletableFuture<Boolean> resolveLocksAsync(Environment env, long startTs,
+      TxStats stats, List<Entry<Key, Value>> locksKVs, long startTime, Executor executor) {
+    return resolveLocksAsync(env, startTs, stats, locksKVs, startTime, executor,
+        resolved -> resolved.size() == locksKVs.size());
+  }
+
+  /**
+   * @param onResolved is given the locks that were resolved
+   */
+  private static <T> CompletableFuture<T> resolveLocksAsync(Environment env, long startTs,
+      TxStats stats, List<Entry<Key, Value>> locksKVs, long startTime, Executor executor,
+      Function<List<LockInfo>, T> onResolved) {
+    // check if transactor is still alive
 
     boolean timedOut = false;
 
@@ -175,38 +209,97 @@ public class LockResolver {
       }
     }
 
+    if (groupedLocks.isEmpty()) {
+      return CompletableFuture.completedFuture(onResolved.apply(Collections.emptyList()));
+    }
+
     TxInfoCache txiCache = env.getSharedResources().getTxInfoCache();
-    Set<Entry<PrimaryRowColumn, List<LockInfo>>> es = groupedLocks.entrySet();
-    for (Entry<PrimaryRowColumn, List<LockInfo>> group : es) {
-      TxInfo txInfo = txiCache.getTransactionInfo(group.getKey());
-      switch (txInfo.getStatus()) {
-        case COMMITTED:
-          commitColumns(env, group.getKey(), group.getValue(), txInfo.getCommitTs(), mutations);
-          numResolved += group.getValue().size();
-          break;
-        case LOCKED:
-          if (rollbackPrimary(env, startTs, group.getKey(), txInfo.getLockValue())) {
-            rollback(env, startTs, group.getKey(), group.getValue(), mutations);
-            numResolved += group.getValue().size();
+    return txiCache.getTransactionInfosAsync(groupedLocks.keySet(), executor)
+        .thenCompose(txInfos -> {
+          // groups of locks that can be rolled back once their primary lock is rolled back
+          Map<PrimaryRowColumn, CompletableFuture<Boolean>> primaryRollbacks = new HashMap<>();
+          for (Entry<PrimaryRowColumn, TxInfo> entry : txInfos.entrySet()) {
+            TxInfo txInfo = entry.getValue();
+            switch (txInfo.getStatus()) {
+              case COMMITTED:
+              case ROLLED_BACK:
+                break;
+              case LOCKED:
+                primaryRollbacks.put(entry.getKey(),
+                    rollbackPrimary(env, startTs, entry.getKey(), txInfo.getLockValue()));
+                break;
+              case UNKNOWN:
+              default:
+                throw new IllegalStateException(
+                    "can not abort : " + entry.getKey() + " (" + txInfo.getStatus() + ")");
+            }
           }
-          break;
-        case ROLLED_BACK:
-          // TODO ensure this if ok if there concurrent rollback
-          rollback(env, startTs, group.getKey(), group.getValue(), mutations);
-          numResolved += group.getValue().size();
-          break;
-        case UNKNOWN:
-        default:
-          throw new IllegalStateException(
-              "can not abort : " + group.getKey() + " (" + txInfo.getStatus() + ")");
+
+          return CompletableFuture
+              .allOf(primaryRollbacks.values().toArray(new CompletableFuture<?>[0]))
+              .thenCompose(v -> {
+                List<LockInfo> resolved = new ArrayList<>();
+                Map<ByteSequence, Mutation> mutations = new HashMap<>();
+
+                for (Entry<PrimaryRowColumn, List<LockInfo>> group : groupedLocks.entrySet()) {
+                  TxInfo txInfo = txInfos.get(group.getKey());
+                  CompletableFuture<Boolean> primaryRollback =
+                      primaryRollbacks.get(group.getKey());
+                  if (txInfo.getStatus() == TxStatus.COMMITTED) {
+                    commitColumns(env, group.getKey(), group.getValue(), txInfo.getCommitTs(),
+                        mutations);
+                    resolved.addAll(group.getValue());
+                  } else if (primaryRollback == null || primaryRollback.join()) {
+                    // Readers may resolve the same transaction concurrently. Only one conditional
+                    // rollback of the primary is accepted, a reader whose rollback was rejected
+                    // leaves the other locks alone. Readers that saw the primary already rolled
+                    // back may all get here, which is harmless as they write the same entries.
+                    rollback(env, startTs, group.getKey(), group.getValue(), mutations);
+                    resolved.addAll(group.getValue());
+                  }
+                }
+
+                return env.getSharedResources().getBatchWriter()
+                    .writeMutationsAsyncFuture(new ArrayList<>(mutations.values()))
+                    .thenApply(v2 -> onResolved.apply(resolved));
+              });
+        });
+  }
+
+  /**
+   * Resolves the locks in a list that were left by dead or timed out transactions, and ignores the
+   * others. Used by workers to clean up locks before a reader runs into them.
+   *
+   * @param startTs A timestamp from the oracle, newer than the locks
+   * @return the start timestamps of the locks resolved. The locks of a transaction whose primary
+   *         lock could not be rolled back are not resolved.
+   */
+  public static List<Long> resolveOrphanedLocks(Environment env, long startTs,
+      List<Entry<Key, Value>> locksKVs) {
+    TransactorCache transactorCache = env.getSharedResources().getTransactorCache();
+
+    List<Entry<Key, Value>> orphaned = new ArrayList<>();
+    for (Entry<Key, Value> kve : locksKVs) {
+      LockInfo lockInfo = new LockInfo(kve);
+      if (lockInfo.lockTs >= startTs) {
+        continue;
+      }
+      if (transactorCache.checkTimedout(lockInfo.transactorId, lockInfo.lockTs)
+          || !transactorCache.checkExists(lockInfo.transactorId)) {
+        orphaned.add(kve);
       }
     }
 
-    if (!mutations.isEmpty()) {
-      env.getSharedResources().getBatchWriter().writeMutations(new ArrayList<>(mutations.values()));
+    if (orphaned.isEmpty()) {
+      return Collections.emptyList();
     }
 
-    return numResolved == locks.size();
+    return join(resolveLocksAsync(env, startTs, new TxStats(env), orphaned,
+        System.currentTimeMillis(), Runnable::run, resolved -> {
+          List<Long> lockTimestamps = new ArrayList<>(resolved.size());
+          resolved.forEach(lockInfo -> lockTimestamps.add(lockInfo.lockTs));
+          return lockTimestamps;
+        }));
   }
 
   private static void rollback(Environment env, long startTs, PrimaryRowColumn prc,
@@ -232,8 +325,8 @@ public class LockResolver {
 
   }
 
-  private static boolean rollbackPrimary(Environment env, long startTs, PrimaryRowColumn prc,
-      byte[] lockValue) {
+  private static CompletableFuture<Boolean> rollbackPrimary(Environment env, long startTs,
+      PrimaryRowColumn prc, byte[] lockValue) {
     // TODO review use of PrewriteIter here
 
     IteratorSetting iterConf = new IteratorSetting(10, PrewriteIterator.class);
@@ -244,18 +337,16 @@ public class LockResolver {
     delLockMutation.put(prc.pcol, ColumnType.DEL_LOCK.encode(prc.startTs),
         DelLockValue.encodeRollback(true, true));
 
-    ConditionalWriter cw = null;
-
-    cw = env.getSharedResources().getConditionalWriter();
+    AsyncConditionalWriter acw = env.getSharedResources().getLockResolutionConditionalWriter();
 
     // TODO handle other conditional writer cases
-    try {
-      return cw.write(delLockMutation).getStatus() == Status.ACCEPTED;
-    } catch (AccumuloException e) {
-      throw new RuntimeException(e);
-    } catch (AccumuloSecurityException e) {
-      throw new RuntimeException(e);
-    }
+    return acw.apply(Collections.singletonList(delLockMutation)).thenApply(results -> {
+      try {
+        return results.next().getStatus() == Status.ACCEPTED;
+      } catch (AccumuloException | AccumuloSecurityException e) {
+        throw new CompletionException(e);
+      }
+    });
   }
 
   private static void commitColumns(Environment env, PrimaryRowColumn prc, List<LockInfo> value,
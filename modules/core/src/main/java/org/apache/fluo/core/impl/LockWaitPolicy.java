@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * How long to wait between attempts to resolve locks that could not be rolled forward or back, or
+ * to learn the outcome of a conditional write whose result was unknown. The first wait is the
+ * initial time, and each later wait doubles up to the max. A policy whose initial and max times are
+ * equal waits a fixed time. Each reader or commit that waits uses its own instance.
+ */
+class LockWaitPolicy {
+
+  private final long maxWait;
+  private long nextWait;
+
+  LockWaitPolicy(long initialWait, long maxWait) {
+    Preconditions.checkArgument(initialWait > 0 && maxWait >= initialWait,
+        "Bad lock wait times, initial %s max %s", initialWait, maxWait);
+    this.nextWait = initialWait;
+    this.maxWait = maxWait;
+  }
+
+  /**
+   * @return the time in milliseconds to wait before the next attempt
+   */
+  long nextWait() {
+    long wait = nextWait;
+    nextWait = Math.min(maxWait, nextWait * 2);
+    return wait;
+  }
+}
@@ -24,9 +24,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.ByteSequence;
@@ -43,9 +48,13 @@ import org.apache.fluo.core.util.CachedBytesConverter;
 import org.apache.fluo.core.util.CachedColumnConverter;
 import org.apache.fluo.core.util.ColumnUtil;
 import org.apache.fluo.core.util.UtilWaitThread;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ParallelSnapshotScanner {
 
+  private static final Logger log = LoggerFactory.getLogger(ParallelSnapshotScanner.class);
+
   private Environment env;
   private long startTs;
   private Collection<Bytes> rows;
@@ -112,23 +121,50 @@ public class ParallelSnapshotScanner {
     this.authorizations = authorizations;
   }
 
-  private BatchScanner setupBatchScanner() {
+  /**
+   * Chooses one query thread per tablet the ranges touch, so a read that spans many tablets reads
+   * from them in parallel. Threads beyond the first come from a budget shared by all transactions
+   * and are only used if available.
+   */
+  private int acquireQueryThreads(List<Range> ranges) {
+    SharedResources resources = env.getSharedResources();
+    int maxThreads = resources.getParallelScanMaxThreads();
+    Semaphore budget = resources.getParallelScanThreadBudget();
+    // no need to count tablets when only one thread can be used
+    if (ranges.size() < 2 || maxThreads < 2 || budget.availablePermits() == 0) {
+      return 1;
+    }
 
-    BatchScanner scanner;
+    int tablets;
     try {
-      // TODO hardcoded number of threads!
-      // one thread is probably good.. going for throughput
-      scanner = env.getAccumuloClient().createBatchScanner(env.getTable(), this.authorizations, 1);
-    } catch (TableNotFoundException e) {
-      throw new RuntimeException(e);
+      tablets = resources.getTableSplitCache().countTablets(ranges, maxThreads);
+    } catch (RuntimeException e) {
+      log.debug("Unable to read table splits, using one query thread", e);
+      return 1;
     }
 
-    scanner.clearColumns();
-    scanner.clearScanIterators();
+    return acquireQueryThreads(tablets, maxThreads, budget);
+  }
+
+  @VisibleForTesting
+  static int acquireQueryThreads(int wanted, int maxThreads, Semaphore budget) {
+    int threads = 1;
+    while (threads < Math.min(wanted, maxThreads) && budget.tryAcquire()) {
+      threads++;
+    }
+    return threads;
+  }
 
+  @VisibleForTesting
+  static void releaseQueryThreads(int threads, Semaphore budget) {
+    if (threads > 1) {
+      budget.release(threads - 1);
+    }
+  }
+
+  private List<Range> getRanges() {
     if (!rangesToScan.isEmpty()) {
-      scanner.setRanges(rangesToScan);
-      SnapshotScanner.setupScanner(scanner, Collections.<Column>emptySet(), startTs, true);
+      return rangesToScan;
     } else if (rows != null) {
       List<Range> ranges = new ArrayList<>(rows.size());
 
@@ -136,19 +172,38 @@ public class ParallelSnapshotScanner {
         ranges.add(Range.exact(ByteUtil.toText(row)));
       }
 
-      scanner.setRanges(ranges);
-
-      SnapshotScanner.setupScanner(scanner, columns, startTs, true);
+      return ranges;
     } else {
       return null;
     }
+  }
+
+  private BatchScanner setupBatchScanner(List<Range> ranges, int queryThreads) {
+
+    BatchScanner scanner;
+    try {
+      scanner = env.getAccumuloClient().createBatchScanner(env.getTable(), this.authorizations,
+          queryThreads);
+    } catch (TableNotFoundException e) {
+      throw new RuntimeException(e);
+    }
+
+    scanner.clearColumns();
+    scanner.clearScanIterators();
+    scanner.setRanges(ranges);
+
+    if (!rangesToScan.isEmpty()) {
+      SnapshotScanner.setupScanner(scanner, Collections.<Column>emptySet(), startTs, true);
+    } else {
+      SnapshotScanner.setupScanner(scanner, columns, startTs, true);
+    }
 
     return scanner;
   }
 
   Map<Bytes, Map<Column, Bytes>> scan() {
 
-    long waitTime = SnapshotScanner.INITIAL_WAIT_TIME;
+    LockWaitPolicy waitPolicy = env.getSharedResources().newLockWaitPolicy();
     long startTime = System.currentTimeMillis();
 
     Map<Bytes, Map<Column, Bytes>> ret = new HashMap<>();
@@ -163,36 +218,84 @@ public class ParallelSnapshotScanner {
         boolean resolvedAll = LockResolver.resolveLocks(env, startTs, stats, locks, startTime);
 
         if (!resolvedAll) {
+          long waitTime = waitPolicy.nextWait();
           UtilWaitThread.sleep(waitTime);
           stats.incrementLockWaitTime(waitTime);
-          waitTime = Math.min(SnapshotScanner.MAX_WAIT_TIME, waitTime * 2);
-        }
-
-        // retain the rows that were locked for future scans
-        rangesToScan.clear();
-        rows = null;
-        for (Entry<Key, Value> entry : locks) {
-          Key start = new Key(entry.getKey());
-          start.setTimestamp(Long.MAX_VALUE);
-          Key end = new Key(entry.getKey());
-          end.setTimestamp(Long.MIN_VALUE);
-          rangesToScan.add(new Range(start, true, end, true));
         }
 
+        retainLocked(locks);
         continue;
       }
 
-      for (Map<Column, Bytes> cols : ret.values()) {
-        stats.incrementEntriesReturned(cols.size());
+      return countReturned(ret);
+    }
+  }
+
+  /**
+   * Same as {@link #scan()}, except it waits for locks without holding a thread.
+   *
+   * @param executor runs scans and transaction status lookups
+   */
+  CompletableFuture<Map<Bytes, Map<Column, Bytes>>> scanAsync(Executor executor) {
+    return scanAsync(executor, new HashMap<>(), env.getSharedResources().newLockWaitPolicy(),
+        System.currentTimeMillis());
+  }
+
+  private CompletableFuture<Map<Bytes, Map<Column, Bytes>>> scanAsync(Executor executor,
+      Map<Bytes, Map<Column, Bytes>> ret, LockWaitPolicy waitPolicy, long startTime) {
+    List<Entry<Key, Value>> locks = new ArrayList<>();
+
+    return CompletableFuture.runAsync(() -> scan(ret, locks), executor).thenCompose(v -> {
+      if (locks.isEmpty()) {
+        return CompletableFuture.completedFuture(countReturned(ret));
       }
 
-      return ret;
+      return LockResolver.resolveLocksAsync(env, startTs, stats, locks, startTime, executor)
+          .thenCompose(resolvedAll -> {
+            retainLocked(locks);
+            if (resolvedAll) {
+              return scanAsync(executor, ret, waitPolicy, startTime);
+            }
+
+            long waitTime = waitPolicy.nextWait();
+            stats.incrementLockWaitTime(waitTime);
+            Executor delayed = CompletableFuture.delayedExecutor(waitTime, TimeUnit.MILLISECONDS);
+            // no thread is held while waiting, the scan after the wait runs on the executor
+            return CompletableFuture.runAsync(() -> {
+            }, delayed).thenCompose(v2 -> scanAsync(executor, ret, waitPolicy, startTime));
+          });
+    });
+  }
+
+  // retain the rows that were locked for future scans
+  private void retainLocked(List<Entry<Key, Value>> locks) {
+    rangesToScan.clear();
+    rows = null;
+    for (Entry<Key, Value> entry : locks) {
+      Key start = new Key(entry.getKey());
+      start.setTimestamp(Long.MAX_VALUE);
+      Key end = new Key(entry.getKey());
+      end.setTimestamp(Long.MIN_VALUE);
+      rangesToScan.add(new Range(start, true, end, true));
+    }
+  }
+
+  private Map<Bytes, Map<Column, Bytes>> countReturned(Map<Bytes, Map<Column, Bytes>> ret) {
+    for (Map<Column, Bytes> cols : ret.values()) {
+      stats.incrementEntriesReturned(cols.size());
     }
+    return ret;
   }
 
   private void scan(Map<Bytes, Map<Column, Bytes>> ret, List<Entry<Key, Value>> locks) {
 
-    BatchScanner bs = setupBatchScanner();
+    List<Range> ranges = getRanges();
+    if (ranges == null) {
+      return;
+    }
+
+    int queryThreads = acquireQueryThreads(ranges);
+    BatchScanner bs = setupBatchScanner(ranges, queryThreads);
     try {
       for (Entry<Key, Value> entry : bs) {
         Bytes row = rowConverter.apply(entry.getKey().getRowData());
@@ -217,6 +320,7 @@ public class ParallelSnapshotScanner {
       }
     } finally {
       bs.close();
+      releaseQueryThreads(queryThreads, env.getSharedResources().getParallelScanThreadBudget());
     }
   }
 }
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.fluo.accumulo.iterators.SnapshotIterator;
+import org.apache.fluo.accumulo.util.ColumnType;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.Span;
+import org.apache.fluo.core.metrics.MetricNames;
+import org.apache.fluo.core.metrics.MetricsUtil;
+import org.apache.fluo.core.util.ByteUtil;
+import org.apache.fluo.core.util.FluoExecutors;
+import org.apache.fluo.core.util.FluoThreadFactory;
+import org.apache.fluo.core.util.SpanUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gathers single row reads from concurrent transactions for a short time and reads them with one
+ * batch scan. The {@link SnapshotIterator} is given the start timestamp of each row, so a row read
+ * by transactions with different start timestamps is read in more than one scan. A read that sees
+ * a lock, or whose scan fails, completes with null and the transaction should read it itself.
+ */
+public class ReadMultiplexer implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(ReadMultiplexer.class);
+
+  private static class Read {
+    final Bytes row;
+    final long startTs;
+    final Authorizations authorizations;
+    final CompletableFuture<List<Entry<Key, Value>>> result = new CompletableFuture<>();
+    final List<Entry<Key, Value>> entries = new ArrayList<>();
+    // columns read at the family or qualifier level, as the scanner would fetch them
+    final Set<Bytes> families = new HashSet<>();
+    final Set<Column> qualifiers = new HashSet<>();
+    boolean sawLock = false;
+
+    Read(Bytes row, Set<Column> columns, long startTs, Authorizations authorizations) {
+      this.row = row;
+      this.startTs = startTs;
+      this.authorizations = authorizations;
+      for (Column col : columns) {
+        if (col.isQualifierSet()) {
+          qualifiers.add(new Column(col.getFamily(), col.getQualifier()));
+        } else {
+          families.add(col.getFamily());
+        }
+      }
+    }
+
+    boolean wants(Key key) {
+      Bytes family = ByteUtil.toBytes(key.getColumnFamilyData());
+      return families.contains(family) || qualifiers
+          .contains(new Column(family, ByteUtil.toBytes(key.getColumnQualifierData())));
+    }
+  }
+
+  private final AccumuloClient client;
+  private final String table;
+  private final BlockingQueue<Read> queue = new LinkedBlockingQueue<>();
+  private final ExecutorService executor;
+  private final Thread dispatcher;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final Histogram batchSizes;
+  private volatile boolean closed = false;
+
+  ReadMultiplexer(Environment env, MetricRegistry registry) {
+    this(env.getConfiguration(), env.getMetricNames(), registry, env.getAccumuloClient(),
+        env.getTable());
+  }
+
+  @VisibleForTesting
+  ReadMultiplexer(FluoConfiguration conf, MetricNames metricNames, MetricRegistry registry,
+      AccumuloClient client, String table) {
+    this.client = client;
+    this.table = table;
+    this.windowNanos =
+        TimeUnit.MICROSECONDS.toNanos(FluoConfigurationImpl.getReadCoalesceWindow(conf));
+    this.maxBatchSize = conf.getInt(FluoConfigurationImpl.READ_COALESCE_BATCH_MAX,
+        FluoConfigurationImpl.READ_COALESCE_BATCH_MAX_DEFAULT);
+    int threads = conf.getInt(FluoConfigurationImpl.READ_COALESCE_THREADS,
+        FluoConfigurationImpl.READ_COALESCE_THREADS_DEFAULT);
+    Preconditions.checkArgument(maxBatchSize > 0, "Bad value for %s %s",
+        FluoConfigurationImpl.READ_COALESCE_BATCH_MAX, maxBatchSize);
+    Preconditions.checkArgument(threads > 0, "Bad value for %s %s",
+        FluoConfigurationImpl.READ_COALESCE_THREADS, threads);
+
+    this.batchSizes =
+        MetricsUtil.getHistogram(conf, registry, metricNames.getReadMultiplexerBatchSize());
+    this.executor = FluoExecutors.newFixedThreadPool(threads, "read-multiplexer");
+    this.dispatcher = new FluoThreadFactory("read-multiplexer").newThread(this::dispatch);
+    this.dispatcher.start();
+  }
+
+  /**
+   * Reads the columns of a row as of a start timestamp, returning what a {@link SnapshotScanner}
+   * showing read locks would return.
+   *
+   * @return the entries read, or null if the caller should do the read itself
+   */
+  CompletableFuture<List<Entry<Key, Value>>> read(Bytes row, Set<Column> columns, long startTs,
+      Authorizations authorizations) {
+    Read read = new Read(row, columns, startTs, authorizations);
+    queue.add(read);
+    if (closed) {
+      // the dispatcher may have already drained the queue
+      read.result.complete(null);
+    }
+    return read.result;
+  }
+
+  private void dispatch() {
+    List<Read> batch = new ArrayList<>();
+    while (!closed) {
+      try {
+        Read first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+
+        batch = new ArrayList<>();
+        batch.add(first);
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxBatchSize) {
+          Read read = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (read == null) {
+            break;
+          }
+          batch.add(read);
+        }
+
+        batchSizes.update(batch.size());
+        List<Read> toRead = batch;
+        batch = new ArrayList<>();
+        try {
+          executor.execute(() -> readBatch(toRead));
+        } catch (RejectedExecutionException e) {
+          toRead.forEach(read -> read.result.complete(null));
+        }
+      } catch (InterruptedException e) {
+        break;
+      } catch (RuntimeException e) {
+        log.warn("Failed to dispatch reads", e);
+      }
+    }
+
+    // includes a batch that was being gathered when closed
+    List<Read> remaining = new ArrayList<>(batch);
+    queue.drainTo(remaining);
+    remaining.forEach(read -> read.result.complete(null));
+  }
+
+  /**
+   * Splits the reads into scans that each read a row at one timestamp with one set of
+   * authorizations.
+   */
+  private void readBatch(List<Read> batch) {
+    List<Map<Bytes, List<Read>>> scans = new ArrayList<>();
+    List<Authorizations> scanAuths = new ArrayList<>();
+
+    outer: for (Read read : batch) {
+      for (int i = 0; i < scans.size(); i++) {
+        List<Read> rowReads = scans.get(i).get(read.row);
+        if (scanAuths.get(i).equals(read.authorizations)
+            && (rowReads == null || rowReads.get(0).startTs == read.startTs)) {
+          scans.get(i).computeIfAbsent(read.row, k -> new ArrayList<>()).add(read);
+          continue outer;
+        }
+      }
+      Map<Bytes, List<Read>> scan = new HashMap<>();
+      scan.computeIfAbsent(read.row, k -> new ArrayList<>()).add(read);
+      scans.add(scan);
+      scanAuths.add(read.authorizations);
+    }
+
+    for (int i = 0; i < scans.size(); i++) {
+      scan(scans.get(i), scanAuths.get(i));
+    }
+  }
+
+  private void scan(Map<Bytes, List<Read>> rowReads, Authorizations authorizations) {
+    Map<ByteSequence, Long> rowSnaptimes = new HashMap<>();
+    List<Range> ranges = new ArrayList<>();
+    for (Entry<Bytes, List<Read>> entry : rowReads.entrySet()) {
+      rowSnaptimes.put(ByteUtil.toByteSequence(entry.getKey()), entry.getValue().get(0).startTs);
+      for (Read read : entry.getValue()) {
+        for (Bytes family : read.families) {
+          ranges.add(SpanUtil.toRange(Span.exact(read.row, new Column(family))));
+        }
+        for (Column col : read.qualifiers) {
+          ranges.add(SpanUtil.toRange(Span.exact(read.row, col)));
+        }
+      }
+    }
+
+    try (BatchScanner scanner = client.createBatchScanner(table, authorizations, 1)) {
+      scanner.setRanges(ranges);
+      IteratorSetting iterConf = new IteratorSetting(10, SnapshotIterator.class);
+      SnapshotIterator.setRowSnaptimes(iterConf, rowSnaptimes);
+      SnapshotIterator.setReturnReadLockPresent(iterConf, true);
+      scanner.addScanIterator(iterConf);
+
+      for (Entry<Key, Value> entry : scanner) {
+        boolean isLock = ColumnType.from(entry.getKey()) == ColumnType.LOCK;
+        for (Read read : rowReads.get(ByteUtil.toBytes(entry.getKey().getRowData()))) {
+          if (read.wants(entry.getKey())) {
+            if (isLock) {
+              read.sawLock = true;
+            } else {
+              read.entries.add(entry);
+            }
+          }
+        }
+      }
+
+      for (List<Read> reads : rowReads.values()) {
+        for (Read read : reads) {
+          read.result.complete(read.sawLock ? null : read.entries);
+        }
+      }
+    } catch (Exception e) {
+      log.debug("Failed to read {} rows, transactions will read them", rowReads.size(), e);
+      for (List<Read> reads : rowReads.values()) {
+        reads.forEach(read -> read.result.complete(null));
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    dispatcher.interrupt();
+    // let dispatched batches finish so every read completes
+    executor.shutdown();
+    try {
+      dispatcher.join(5000);
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -25,6 +25,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.MutationsRejectedException;
 import org.apache.accumulo.core.data.Mutation;
@@ -152,7 +153,11 @@ public class SharedBatchWriter {
     writeMutations(Collections.singletonList(m));
   }
 
-  void writeMutations(Collection<Mutation> ml) {
+  /**
+   * Writes mutations and waits for them to be flushed.
+   */
+  @VisibleForTesting
+  public void writeMutations(Collection<Mutation> ml) {
 
     if (ml.isEmpty()) {
       return;
@@ -17,9 +17,13 @@ package org.apache.fluo.core.impl;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.BatchWriterConfig;
 import org.apache.accumulo.core.client.ConditionalWriter;
@@ -55,11 +59,22 @@ public final class SharedResources implements AutoCloseable {
   private final TxInfoCache txInfoCache;
   private final VisibilityCache visCache;
   private final MetricRegistry metricRegistry;
+  private final int txReadCacheMaxCells;
+  private final boolean singleRowCommitEnabled;
+  private final ReadMultiplexer readMultiplexer;
+  private final int parallelScanMaxThreads;
+  private final Semaphore parallelScanThreadBudget;
+  private final TableSplitCache tableSplitCache;
+  private final long lockWaitInitial;
+  private final long lockWaitMax;
 
   private AsyncConditionalWriter acw;
   private AsyncConditionalWriter bulkAcw;
+  private AsyncConditionalWriter lockResolutionAcw;
   private ExecutorService asyncCommitExecutor;
   private ExecutorService syncCommitExecutor;
+  private ExecutorService commitStatusExecutor;
+  private AsyncReadExecutor asyncReadExecutor = null;
   private CommitManager commitManager;
 
 
@@ -82,20 +97,54 @@ public final class SharedResources implements AutoCloseable {
         new ConditionalWriterConfig().setAuthorizations(env.getAuthorizations())
             .setMaxWriteThreads(numCWThreads));
 
-    txInfoCache = new TxInfoCache(env);
-    visCache = new VisibilityCache(env.getConfiguration());
     metricRegistry = new MetricRegistry();
+    txInfoCache = new TxInfoCache(env, metricRegistry);
+    visCache = new VisibilityCache(env.getConfiguration());
+    txReadCacheMaxCells = FluoConfigurationImpl.getTxReadCacheMaxCells(env.getConfiguration());
+    singleRowCommitEnabled =
+        env.getConfiguration().getBoolean(FluoConfigurationImpl.TX_SINGLE_ROW_COMMIT_ENABLED,
+            FluoConfigurationImpl.TX_SINGLE_ROW_COMMIT_ENABLED_DEFAULT);
+    parallelScanMaxThreads =
+        FluoConfigurationImpl.getParallelScanMaxThreads(env.getConfiguration());
+    parallelScanThreadBudget = new Semaphore(
+        FluoConfigurationImpl.getParallelScanThreadBudget(env.getConfiguration()));
+    tableSplitCache = new TableSplitCache(() -> {
+      try {
+        return env.getAccumuloClient().tableOperations().listSplits(env.getTable());
+      } catch (TableNotFoundException | AccumuloSecurityException | AccumuloException e) {
+        throw new RuntimeException(e);
+      }
+    }, FluoConfigurationImpl.getParallelScanSplitsRefresh(env.getConfiguration()));
+    lockWaitInitial = env.getConfiguration().getLong(FluoConfigurationImpl.LOCK_WAIT_INITIAL,
+        FluoConfigurationImpl.LOCK_WAIT_INITIAL_DEFAULT);
+    lockWaitMax = env.getConfiguration().getLong(FluoConfigurationImpl.LOCK_WAIT_MAX,
+        FluoConfigurationImpl.LOCK_WAIT_MAX_DEFAULT);
+    // fail fast on bad wait times
+    newLockWaitPolicy();
+    if (FluoConfigurationImpl.getReadCoalesceWindow(env.getConfiguration()) > 0) {
+      readMultiplexer = new ReadMultiplexer(env, metricRegistry);
+    } else {
+      readMultiplexer = null;
+    }
 
     int commitThreads = env.getConfiguration().getInt(FluoConfigurationImpl.ASYNC_COMMIT_THREADS,
         FluoConfigurationImpl.ASYNC_COMMIT_THREADS_DEFAULT);
     asyncCommitExecutor = FluoExecutors.newFixedThreadPool(commitThreads, "async-commits");
-
+    // runs the synchronous collision checks of commits that failed, which may wait on locks held by
+    // other transactions, checks queue when every thread is busy
     commitThreads = env.getConfiguration().getInt(FluoConfigurationImpl.SYNC_COMMIT_THREADS,
         FluoConfigurationImpl.SYNC_COMMIT_THREADS_DEFAULT);
-    syncCommitExecutor = FluoExecutors.newFixedThreadPool(commitThreads, "sync-commits");
-
-    acw = new AsyncConditionalWriter(env, cw);
-    bulkAcw = new AsyncConditionalWriter(env, bulkCw);
+    syncCommitExecutor = FluoExecutors.newCachedThreadPool(commitThreads, "sync-commits");
+    // reads the status of commits that had unknown results so these do not queue behind collision
+    // checks. Accumulo scans block, so each batch scan holds a thread. Several batches can be read
+    // at once, so a batch waiting on a tablet that is not hosted does not hold up the others.
+    commitStatusExecutor = FluoExecutors.newCachedThreadPool(
+        FluoConfigurationImpl.getCommitStatusThreads(env.getConfiguration()), "commit-status");
+
+    acw = new AsyncConditionalWriter(env, cw, metricRegistry);
+    bulkAcw = new AsyncConditionalWriter(env, bulkCw, metricRegistry);
+    // readers waiting on lock resolution should not queue behind commits or wait to be grouped
+    lockResolutionAcw = new AsyncConditionalWriter(env, cw, metricRegistry, false);
   }
 
   public SharedBatchWriter getBatchWriter() {
@@ -138,6 +187,8 @@ public final class SharedResources implements AutoCloseable {
     checkIfClosed();
     if (tsTracker == null) {
       tsTracker = new TimestampTracker(env, getTransactorID());
+      metricRegistry.register(env.getMetricNames().getTransactorOldestActiveLag(),
+          (Gauge<Long>) tsTracker::getOldestActiveLag);
     }
     return tsTracker;
   }
@@ -196,6 +247,21 @@ public final class SharedResources implements AutoCloseable {
       throw new RuntimeException(e1);
     }
 
+    // queued batch reads still run, so their lookups complete
+    commitStatusExecutor.shutdown();
+    try {
+      commitStatusExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e1) {
+      throw new RuntimeException(e1);
+    }
+
+    if (asyncReadExecutor != null) {
+      asyncReadExecutor.close();
+    }
+    if (readMultiplexer != null) {
+      readMultiplexer.close();
+    }
+
     if (tnode != null) {
       tnode.close();
     }
@@ -209,6 +275,7 @@ public final class SharedResources implements AutoCloseable {
       oracleClient.close();
     }
     acw.close();
+    lockResolutionAcw.close();
     cw.close();
     bulkAcw.close();
     bulkCw.close();
@@ -227,10 +294,53 @@ public final class SharedResources implements AutoCloseable {
     }
   }
 
+  public int getTxReadCacheMaxCells() {
+    return txReadCacheMaxCells;
+  }
+
+  public boolean isSingleRowCommitEnabled() {
+    return singleRowCommitEnabled;
+  }
+
+  public int getParallelScanMaxThreads() {
+    return parallelScanMaxThreads;
+  }
+
+  public Semaphore getParallelScanThreadBudget() {
+    return parallelScanThreadBudget;
+  }
+
+  TableSplitCache getTableSplitCache() {
+    return tableSplitCache;
+  }
+
+  LockWaitPolicy newLockWaitPolicy() {
+    return new LockWaitPolicy(lockWaitInitial, lockWaitMax);
+  }
+
+  /**
+   * @return null if reads from concurrent transactions should not be coalesced
+   */
+  public ReadMultiplexer getReadMultiplexer() {
+    return readMultiplexer;
+  }
+
+  public synchronized AsyncReadExecutor getAsyncReadExecutor() {
+    checkIfClosed();
+    if (asyncReadExecutor == null) {
+      asyncReadExecutor = new AsyncReadExecutor(env.getConfiguration());
+    }
+    return asyncReadExecutor;
+  }
+
   public Executor getSyncCommitExecutor() {
     return syncCommitExecutor;
   }
 
+  public Executor getCommitStatusExecutor() {
+    return commitStatusExecutor;
+  }
+
   public Executor getAsyncCommitExecutor() {
     return asyncCommitExecutor;
   }
@@ -243,6 +353,10 @@ public final class SharedResources implements AutoCloseable {
     return bulkAcw;
   }
 
+  public AsyncConditionalWriter getLockResolutionConditionalWriter() {
+    return lockResolutionAcw;
+  }
+
   public synchronized CommitManager getCommitManager() {
     checkIfClosed();
     if (commitManager == null) {
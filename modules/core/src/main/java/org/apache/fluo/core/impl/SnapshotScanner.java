@@ -51,15 +51,26 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
     private final Span span;
     private final Collection<Column> columns;
     private final boolean showReadLocks;
+    private final boolean filterColumns;
 
     private final Authorizations scanTimeAuthz;
 
     public Opts(Span span, Collection<Column> columns, boolean showReadLocks,
         Authorizations scanTimeAuthz) {
+      this(span, columns, showReadLocks, scanTimeAuthz, false);
+    }
+
+    /**
+     * @param filterColumns if true only cells exactly matching a column, including its visibility,
+     *        are returned. This is done on the tablet server.
+     */
+    public Opts(Span span, Collection<Column> columns, boolean showReadLocks,
+        Authorizations scanTimeAuthz, boolean filterColumns) {
       this.span = span;
       this.columns = ImmutableSet.copyOf(columns);
       this.showReadLocks = showReadLocks;
       this.scanTimeAuthz = scanTimeAuthz;
+      this.filterColumns = filterColumns;
     }
 
     public Span getSpan() {
@@ -80,14 +91,13 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
   private final TxStats stats;
   private final Opts config;
 
-  static final long INITIAL_WAIT_TIME = 50;
-  // TODO make configurable
-  static final long MAX_WAIT_TIME = 60000;
-
-
-
   static void setupScanner(ScannerBase scanner, Collection<Column> columns, long startTs,
       boolean showReadLocks) {
+    setupScanner(scanner, columns, startTs, showReadLocks, false);
+  }
+
+  static void setupScanner(ScannerBase scanner, Collection<Column> columns, long startTs,
+      boolean showReadLocks, boolean filterColumns) {
     for (Column col : columns) {
       if (col.isQualifierSet()) {
         scanner.fetchColumn(ByteUtil.toText(col.getFamily()), ByteUtil.toText(col.getQualifier()));
@@ -99,6 +109,9 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
     IteratorSetting iterConf = new IteratorSetting(10, SnapshotIterator.class);
     SnapshotIterator.setSnaptime(iterConf, startTs);
     SnapshotIterator.setReturnReadLockPresent(iterConf, showReadLocks);
+    if (filterColumns) {
+      SnapshotIterator.setColumns(iterConf, columns);
+    }
     scanner.addScanIterator(iterConf);
   }
 
@@ -126,7 +139,8 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
       scanner.clearScanIterators();
       scanner.setRange(SpanUtil.toRange(snapIterConfig.getSpan()));
 
-      setupScanner(scanner, snapIterConfig.getColumns(), startTs, snapIterConfig.showReadLocks);
+      setupScanner(scanner, snapIterConfig.getColumns(), startTs, snapIterConfig.showReadLocks,
+          snapIterConfig.filterColumns);
 
       this.iterator = scanner.iterator();
     }
@@ -153,7 +167,7 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
 
     private void resetScanner(Span span) {
       snapIterConfig = new Opts(span, snapIterConfig.columns, snapIterConfig.showReadLocks,
-          snapIterConfig.scanTimeAuthz);
+          snapIterConfig.scanTimeAuthz, snapIterConfig.filterColumns);
       setUpIterator();
     }
 
@@ -162,7 +176,7 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
       // read ahead a little bit looking for other locks to resolve
 
       long startTime = System.currentTimeMillis();
-      long waitTime = INITIAL_WAIT_TIME;
+      LockWaitPolicy waitPolicy = env.getSharedResources().newLockWaitPolicy();
 
       List<Entry<Key, Value>> locks = new ArrayList<>();
       locks.add(lockEntry);
@@ -191,9 +205,9 @@ public class SnapshotScanner implements Iterable<Entry<Key, Value>> {
         boolean resolvedLocks = LockResolver.resolveLocks(env, startTs, stats, locks, startTime);
 
         if (!resolvedLocks) {
+          long waitTime = waitPolicy.nextWait();
           UtilWaitThread.sleep(waitTime);
           stats.incrementLockWaitTime(waitTime);
-          waitTime = Math.min(MAX_WAIT_TIME, waitTime * 2);
 
           RowColumn start = SpanUtil.toRowColumn(locks.get(0).getKey());
           RowColumn end = SpanUtil.toRowColumn(locks.get(locks.size() - 1).getKey()).following();
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import org.apache.accumulo.core.data.Range;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Caches the splits of the Fluo table, so a read can count the tablets it touches without asking
+ * Accumulo. The splits are read again once they are older than the refresh time.
+ */
+class TableSplitCache {
+
+  private final Supplier<List<Text>> splits;
+
+  /**
+   * @param splitReader reads the current splits of the table, in any order
+   */
+  TableSplitCache(Supplier<Collection<Text>> splitReader, long refreshMillis) {
+    this.splits = Suppliers.memoizeWithExpiration(() -> {
+      List<Text> sorted = new ArrayList<>(splitReader.get());
+      Collections.sort(sorted);
+      return sorted;
+    }, refreshMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Counts the tablets that contain the start of each range, stopping once the count reaches the
+   * max.
+   */
+  int countTablets(Collection<Range> ranges, int max) {
+    List<Text> sortedSplits = splits.get();
+    Set<Integer> tablets = new HashSet<>();
+    for (Range range : ranges) {
+      int tablet = 0;
+      if (!range.isInfiniteStartKey()) {
+        // a tablet contains the rows after the previous split, up to and including its split
+        tablet = Collections.binarySearch(sortedSplits, range.getStartKey().getRow());
+        if (tablet < 0) {
+          tablet = -tablet - 1;
+        }
+      }
+      tablets.add(tablet);
+      if (tablets.size() >= max) {
+        break;
+      }
+    }
+    return tablets.size();
+  }
+}
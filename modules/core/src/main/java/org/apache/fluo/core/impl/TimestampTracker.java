@@ -16,12 +16,13 @@
 package org.apache.fluo.core.impl;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.SortedSet;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
@@ -37,31 +38,70 @@ import org.slf4j.LoggerFactory;
 /**
  * Allocates timestamps from Oracle for transactions and tracks the oldest active timestamp in
  * Zookeeper for garbage collection
+ *
+ * <p>
+ * The oldest active timestamp is checked every publish period and only written to Zookeeper when
+ * it changed, so the garbage collection timestamp can advance soon after old transactions finish
+ * without a Zookeeper write per transaction.
+ *
+ * <p>
+ * Allocating and removing a timestamp does not lock the tracker while its node in Zookeeper
+ * exists. The lock is only taken to create or close the node, to update it, and to reuse a
+ * timestamp.
  */
 public class TimestampTracker implements AutoCloseable {
 
   private static final Logger log = LoggerFactory.getLogger(TimestampTracker.class);
+
+  // value of allocationsInProgress while the timer closes the node, allocations wait for the lock
+  private static final int CLOSING_NODE = -1;
+
   private volatile long zkTimestamp = -1;
   private final Environment env;
-  private final SortedSet<Long> timestamps = new TreeSet<>();
+  // a timestamp may be active more than once when it is reused for snapshots
+  private final ActiveTimestamps timestamps = new ActiveTimestamps();
   private volatile PersistentNode node = null;
   private final TransactorID tid;
   private final Timer timer;
 
-  private boolean closed = false;
-  private int allocationsInProgress = 0;
+  private volatile boolean closed = false;
+  private final AtomicInteger allocationsInProgress = new AtomicInteger(0);
   private boolean updatingZk = false;
+  private final AtomicReference<NewestStamp> newestStamp = new AtomicReference<>();
 
-  public TimestampTracker(Environment env, TransactorID tid, long updatePeriodMs) {
+  /**
+   * The newest stamp obtained from the oracle and when it was requested
+   */
+  private static class NewestStamp {
+    final Stamp stamp;
+    final long requestTime;
+
+    NewestStamp(Stamp stamp, long requestTime) {
+      this.stamp = stamp;
+      this.requestTime = requestTime;
+    }
+  }
+
+  /**
+   * @param updatePeriodMs a node with no active timestamps is removed after this period
+   * @param publishPeriodMs how often a change of the oldest active timestamp is written to the node
+   */
+  public TimestampTracker(Environment env, TransactorID tid, long updatePeriodMs,
+      long publishPeriodMs) {
     Objects.requireNonNull(env, "environment cannot be null");
     Objects.requireNonNull(tid, "tid cannot be null");
     Preconditions.checkArgument(updatePeriodMs > 0, "update period must be positive");
+    Preconditions.checkArgument(publishPeriodMs > 0, "publish period must be positive");
     this.env = env;
     this.tid = tid;
 
+    final long timerPeriodMs = Math.min(updatePeriodMs, publishPeriodMs);
+    // number of timer runs without allocations, after the first, before the node is closed
+    final long idleRunsToClose = Math.max(1, updatePeriodMs / timerPeriodMs);
+
     TimerTask tt = new TimerTask() {
 
-      private int sawZeroCount = 0;
+      private long sawZeroCount = 0;
 
       @Override
       public void run() {
@@ -73,23 +113,30 @@ public class TimestampTracker implements AutoCloseable {
               return;
             }
 
-            if (allocationsInProgress > 0) {
+            int allocations = allocationsInProgress.get();
+            if (allocations > 0) {
               sawZeroCount = 0;
-              if (!timestamps.isEmpty()) {
+              long oldest = timestamps.oldest();
+              if (oldest != Long.MAX_VALUE) {
                 if (updatingZk) {
                   throw new IllegalStateException("expected updatingZk to be false");
                 }
-                ts = timestamps.first();
+                ts = oldest;
                 updatingZk = true;
               }
-            } else if (allocationsInProgress == 0) {
+            } else if (allocations == 0) {
               sawZeroCount++;
-              if (sawZeroCount >= 2) {
+              if (sawZeroCount > idleRunsToClose
+                  && allocationsInProgress.compareAndSet(0, CLOSING_NODE)) {
                 sawZeroCount = 0;
-                closeZkNode();
+                try {
+                  closeZkNode();
+                } finally {
+                  allocationsInProgress.set(0);
+                }
               }
             } else {
-              throw new IllegalStateException("allocationsInProgress = " + allocationsInProgress);
+              throw new IllegalStateException("allocationsInProgress = " + allocations);
             }
 
           }
@@ -111,7 +158,13 @@ public class TimestampTracker implements AutoCloseable {
       }
     };
     timer = new Timer("TimestampTracker timer", true);
-    timer.schedule(tt, updatePeriodMs, updatePeriodMs);
+    timer.schedule(tt, timerPeriodMs, timerPeriodMs);
+  }
+
+  public TimestampTracker(Environment env, TransactorID tid, long updatePeriodMs) {
+    this(env, tid, updatePeriodMs,
+        env.getConfiguration().getLong(FluoConfigurationImpl.ZK_PUBLISH_PERIOD_PROP,
+            FluoConfigurationImpl.ZK_PUBLISH_PERIOD_MS_DEFAULT));
   }
 
   public TimestampTracker(Environment env, TransactorID tid) {
@@ -119,55 +172,122 @@ public class TimestampTracker implements AutoCloseable {
         FluoConfigurationImpl.ZK_UPDATE_PERIOD_MS_DEFAULT));
   }
 
+  /**
+   * Counts an allocation without locking, which is possible when the node in Zookeeper exists and
+   * the timer is not closing it.
+   */
+  private boolean tryStartAllocation() {
+    while (!closed) {
+      int allocations = allocationsInProgress.get();
+      if (allocations == CLOSING_NODE) {
+        return false;
+      }
+      if (allocationsInProgress.compareAndSet(allocations, allocations + 1)) {
+        // the node can not be closed while an allocation is counted, but it may have been closed
+        // before this allocation was counted
+        if (node != null) {
+          return true;
+        }
+        allocationsInProgress.decrementAndGet();
+        return false;
+      }
+    }
+    return false;
+  }
+
   /**
    * Allocate a timestamp
    */
   public Stamp allocateTimestamp() {
 
-    synchronized (this) {
-      Preconditions.checkState(!closed, "tracker closed ");
+    if (!tryStartAllocation()) {
+      synchronized (this) {
+        Preconditions.checkState(!closed, "tracker closed ");
 
-      if (node == null) {
-        Preconditions.checkState(allocationsInProgress == 0,
-            "expected allocationsInProgress == 0 when node == null");
-        Preconditions.checkState(!updatingZk, "unexpected concurrent ZK update");
+        if (node == null) {
+          Preconditions.checkState(!updatingZk, "unexpected concurrent ZK update");
 
-        createZkNode(getTimestamp().getTxTimestamp());
-      }
+          createZkNode(getTimestamp().getTxTimestamp());
+        }
 
-      allocationsInProgress++;
+        allocationsInProgress.incrementAndGet();
+      }
     }
 
     try {
+      long requestTime = System.nanoTime();
       Stamp ts = getTimestamp();
 
-      synchronized (this) {
-        timestamps.add(ts.getTxTimestamp());
-      }
+      updateNewestStamp(ts, requestTime);
+      timestamps.add(ts.getTxTimestamp());
 
       return ts;
     } catch (RuntimeException re) {
-      synchronized (this) {
-        allocationsInProgress--;
-      }
+      allocationsInProgress.decrementAndGet();
       throw re;
     }
   }
 
+  private void updateNewestStamp(Stamp stamp, long requestTime) {
+    NewestStamp newest = newestStamp.get();
+    while (newest == null || stamp.getTxTimestamp() > newest.stamp.getTxTimestamp()) {
+      if (newestStamp.compareAndSet(newest, new NewestStamp(stamp, requestTime))) {
+        return;
+      }
+      newest = newestStamp.get();
+    }
+  }
+
+  /**
+   * Allocate a timestamp, reusing the newest timestamp obtained from the oracle if it was requested
+   * within the given amount of time and garbage collection can not advance past it. Otherwise a new
+   * timestamp is obtained from the oracle.
+   */
+  public Stamp allocateTimestamp(Duration maxStaleness) {
+    synchronized (this) {
+      Preconditions.checkState(!closed, "tracker closed ");
+
+      NewestStamp newest = newestStamp.get();
+      if (canReuse(newest, maxStaleness)) {
+        allocationsInProgress.incrementAndGet();
+        timestamps.add(newest.stamp.getTxTimestamp());
+        return newest.stamp;
+      }
+    }
+
+    return allocateTimestamp();
+  }
+
+  /**
+   * Updates of the node in Zookeeper happen while holding the lock, so once the node is at or below
+   * a timestamp that is added while holding the lock it stays there while that timestamp is
+   * active. The node has to exist, if it was created after the newest stamp was obtained its value
+   * will be larger.
+   */
+  private boolean canReuse(NewestStamp newest, Duration maxStaleness) {
+    if (newest == null || node == null || updatingZk
+        || System.nanoTime() - newest.requestTime > maxStaleness.toNanos()) {
+      return false;
+    }
+
+    return zkTimestamp <= newest.stamp.getTxTimestamp();
+  }
+
   /**
    * Remove a timestamp (of completed transaction)
    */
-  public synchronized void removeTimestamp(long ts) throws NoSuchElementException {
+  public void removeTimestamp(long ts) throws NoSuchElementException {
     Preconditions.checkState(!closed, "tracker closed ");
-    Preconditions.checkState(allocationsInProgress > 0,
-        "allocationsInProgress should be > 0 " + allocationsInProgress);
+    int allocations = allocationsInProgress.get();
+    Preconditions.checkState(allocations > 0, "allocationsInProgress should be > 0 %s",
+        allocations);
     Objects.requireNonNull(node);
     if (timestamps.remove(ts) == false) {
       throw new NoSuchElementException(
           "Timestamp " + ts + " was previously removed or does not exist");
     }
 
-    allocationsInProgress--;
+    allocationsInProgress.decrementAndGet();
   }
 
   private Stamp getTimestamp() {
@@ -209,20 +329,45 @@ public class TimestampTracker implements AutoCloseable {
   public synchronized void updateZkNode() {
     Preconditions.checkState(!updatingZk, "unexpected concurrent ZK update");
 
-    if (allocationsInProgress > 0) {
-      if (!timestamps.isEmpty()) {
-        updateZkNode(timestamps.first());
+    int allocations = allocationsInProgress.get();
+    if (allocations > 0) {
+      long oldest = timestamps.oldest();
+      if (oldest != Long.MAX_VALUE) {
+        updateZkNode(oldest);
+      }
+    } else if (allocations == 0) {
+      if (allocationsInProgress.compareAndSet(0, CLOSING_NODE)) {
+        try {
+          closeZkNode();
+        } finally {
+          allocationsInProgress.set(0);
+        }
       }
-    } else if (allocationsInProgress == 0) {
-      closeZkNode();
     } else {
-      throw new IllegalStateException("allocationsInProgress = " + allocationsInProgress);
+      throw new IllegalStateException("allocationsInProgress = " + allocations);
     }
   }
 
   @VisibleForTesting
   public long getOldestActiveTimestamp() {
-    return timestamps.first();
+    long oldest = timestamps.oldest();
+    if (oldest == Long.MAX_VALUE) {
+      throw new NoSuchElementException();
+    }
+    return oldest;
+  }
+
+  /**
+   * @return how far the oldest active timestamp is behind the newest timestamp obtained from the
+   *         oracle, or zero if there are no active timestamps
+   */
+  public long getOldestActiveLag() {
+    long oldest = timestamps.oldest();
+    NewestStamp newest = newestStamp.get();
+    if (oldest == Long.MAX_VALUE || newest == null) {
+      return 0;
+    }
+    return Math.max(0, newest.stamp.getTxTimestamp() - oldest);
   }
 
   @VisibleForTesting
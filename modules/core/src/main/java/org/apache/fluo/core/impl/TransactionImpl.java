@@ -16,6 +16,7 @@
 package org.apache.fluo.core.impl;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -31,18 +32,23 @@ import java.util.Spliterators;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.MoreCollectors;
 import com.google.common.collect.Sets;
-import org.apache.accumulo.core.client.ConditionalWriter;
 import org.apache.accumulo.core.client.ConditionalWriter.Result;
 import org.apache.accumulo.core.client.ConditionalWriter.Status;
 import org.apache.accumulo.core.client.IteratorSetting;
@@ -82,6 +88,7 @@ import org.apache.fluo.core.async.SyncCommitObserver;
 import org.apache.fluo.core.exceptions.AlreadyAcknowledgedException;
 import org.apache.fluo.core.exceptions.StaleScanException;
 import org.apache.fluo.core.impl.scanner.ScannerBuilderImpl;
+import org.apache.fluo.core.metrics.MetricsUtil;
 import org.apache.fluo.core.oracle.Stamp;
 import org.apache.fluo.core.util.ByteUtil;
 import org.apache.fluo.core.util.ColumnUtil;
@@ -126,6 +133,10 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     return val == RLOCK_VAL;
   }
 
+  private boolean isNotifying(Column col, Bytes val) {
+    return observedColumns.contains(col) && isWrite(val) && !isDelete(val);
+  }
+
   private enum TxStatus {
     OPEN, COMMIT_STARTED, COMMITTED, CLOSED
   }
@@ -145,6 +156,10 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
   private TxStatus status = TxStatus.OPEN;
   private boolean commitAttempted = false;
   private AsyncReader asyncReader = null;
+  // replaced when the scan time authorizations change, as cached cells depend on them
+  private volatile TxReadCache readCache;
+  private final int readCacheMaxCells;
+  private final List<Prefetch> prefetches = new ArrayList<>();
 
   private Authorizations scanTimeAuthz;
 
@@ -158,6 +173,9 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     this.startTs = startTs;
     this.observedColumns = env.getConfiguredObservers().getObservedColumns(STRONG);
 
+    this.readCacheMaxCells = env.getSharedResources().getTxReadCacheMaxCells();
+    this.readCache = readCacheMaxCells > 0 ? new TxReadCache(readCacheMaxCells) : null;
+
     if (trigger != null
         && env.getConfiguredObservers().getObservedColumns(WEAK).contains(trigger.getColumn())) {
       this.weakNotification = trigger;
@@ -188,6 +206,16 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     this(env, null, allocateTimestamp(env).getTxTimestamp(), scanTimeAuthz);
   }
 
+  /**
+   * Creates a transaction whose start timestamp may be reused from a recent transaction. This is
+   * only suitable for reading, as the transaction will not see data committed after that
+   * timestamp.
+   */
+  public TransactionImpl(Environment env, Duration maxStaleness) {
+    this(env, null, env.getSharedResources().getTimestampTracker().allocateTimestamp(maxStaleness)
+        .getTxTimestamp(), env.getAuthorizations());
+  }
+
   private static Stamp allocateTimestamp(Environment env) {
     return env.getSharedResources().getTimestampTracker().allocateTimestamp();
   }
@@ -195,13 +223,13 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
   @Override
   public Bytes get(Bytes row, Column column) {
     checkIfOpen();
-    // TODO cache? precache?
     return get(row, Collections.singleton(column)).get(column);
   }
 
   @Override
   public Map<Column, Bytes> get(Bytes row, Set<Column> columns) {
     checkIfOpen();
+    awaitPrefetches();
     return getImpl(row, columns);
   }
 
@@ -214,12 +242,40 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     }
 
     env.getSharedResources().getVisCache().validate(columns);
+    awaitPrefetches();
+
+    Map<Bytes, Map<Column, Bytes>> ret = new HashMap<>();
+    Collection<Bytes> rowsToRead = rows;
+
+    if (readCache != null) {
+      rowsToRead = new ArrayList<>();
+      for (Bytes row : rows) {
+        Map<Column, Bytes> cached = new HashMap<>();
+        if (readCache.get(row, columns, cached).isEmpty()) {
+          stats.incrementReadCacheHits(columns.size());
+          if (!cached.isEmpty()) {
+            ret.put(row, cached);
+          }
+        } else {
+          stats.incrementReadCacheMisses(columns.size());
+          rowsToRead.add(row);
+        }
+      }
+    }
 
-    ParallelSnapshotScanner pss =
-        new ParallelSnapshotScanner(rows, columns, env, startTs, stats, readLocksSeen, kve -> {
-        }, this.scanTimeAuthz);
+    if (!rowsToRead.isEmpty()) {
+      ParallelSnapshotScanner pss = new ParallelSnapshotScanner(rowsToRead, columns, env, startTs,
+          stats, readLocksSeen, kve -> {
+          }, this.scanTimeAuthz);
 
-    Map<Bytes, Map<Column, Bytes>> ret = pss.scan();
+      Map<Bytes, Map<Column, Bytes>> read = pss.scan();
+      if (readCache != null) {
+        for (Bytes row : rowsToRead) {
+          readCache.put(row, columns, read.getOrDefault(row, Collections.emptyMap()));
+        }
+      }
+      ret.putAll(read);
+    }
 
     for (Entry<Bytes, Map<Column, Bytes>> entry : ret.entrySet()) {
       updateColumnsRead(entry.getKey(), entry.getValue().keySet());
@@ -231,46 +287,179 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
   @Override
   public Map<RowColumn, Bytes> get(Collection<RowColumn> rowColumns) {
     checkIfOpen();
-    return getImpl(rowColumns, kve -> {
+
+    if (readCache == null) {
+      return getImpl(rowColumns, kve -> {
+      });
+    }
+
+    awaitPrefetches();
+
+    Map<RowColumn, Bytes> ret = new HashMap<>();
+    List<RowColumn> toRead = getCached(readCache, rowColumns, ret);
+
+    if (!toRead.isEmpty()) {
+      Map<RowColumn, Bytes> read = getImpl(toRead, kve -> {
+      });
+      cacheRead(readCache, toRead, read);
+      ret.putAll(read);
+    }
+
+    return ret;
+  }
+
+  /**
+   * Same as {@link #get(Collection)}, except it waits for locks without holding a thread. Gets wait
+   * for prefetches before reading, so this may block while a prefetch reads.
+   *
+   * @param executor runs scans and transaction status lookups
+   */
+  CompletableFuture<Map<RowColumn, Bytes>> getAsync(Collection<RowColumn> rowColumns,
+      Executor executor) {
+    checkIfOpen();
+
+    TxReadCache cache = readCache;
+    if (cache == null) {
+      return getImplAsync(rowColumns, executor);
+    }
+
+    awaitPrefetches();
+
+    Map<RowColumn, Bytes> ret = new HashMap<>();
+    List<RowColumn> toRead = getCached(cache, rowColumns, ret);
+
+    if (toRead.isEmpty()) {
+      return CompletableFuture.completedFuture(ret);
+    }
+
+    // if the authorizations change while reading, the cache read from is no longer used
+    return getImplAsync(toRead, executor).thenApply(read -> {
+      cacheRead(cache, toRead, read);
+      ret.putAll(read);
+      return ret;
     });
   }
 
-  private Map<Column, Bytes> getImpl(Bytes row, Set<Column> columns) {
+  /**
+   * Puts the cached values of the cells in the result.
+   *
+   * @return the cells that are not cached
+   */
+  private List<RowColumn> getCached(TxReadCache cache, Collection<RowColumn> rowColumns,
+      Map<RowColumn, Bytes> result) {
+    List<RowColumn> toRead = new ArrayList<>();
+
+    for (RowColumn rc : rowColumns) {
+      Bytes val = cache.get(rc.getRow(), rc.getColumn());
+      if (val == null) {
+        toRead.add(rc);
+      } else if (!TxReadCache.isAbsent(val)) {
+        result.put(rc, val);
+        updateColumnsRead(rc.getRow(), Collections.singleton(rc.getColumn()));
+      }
+    }
+
+    stats.incrementReadCacheHits(rowColumns.size() - toRead.size());
+    stats.incrementReadCacheMisses(toRead.size());
 
-    // TODO push visibility filtering to server side?
+    return toRead;
+  }
+
+  private void cacheRead(TxReadCache cache, List<RowColumn> cells, Map<RowColumn, Bytes> read) {
+    // same check TxReadCache does when caching a row's columns
+    if (cells.containsAll(read.keySet())) {
+      for (RowColumn rc : cells) {
+        cache.put(rc.getRow(), rc.getColumn(), read.get(rc));
+      }
+    }
+  }
 
+  private Map<Column, Bytes> getImpl(Bytes row, Set<Column> columns) {
     env.getSharedResources().getVisCache().validate(columns);
 
-    boolean shouldCopy = false;
+    Map<Column, Bytes> ret = new HashMap<>();
+
+    // with no columns the whole row is read, and the cache can not tell if it holds a whole row
+    if (readCache != null && !columns.isEmpty()) {
+      Set<Column> toRead = readCache.get(row, columns, ret);
+      stats.incrementReadCacheHits(columns.size() - toRead.size());
+      stats.incrementReadCacheMisses(toRead.size());
+      if (toRead.isEmpty()) {
+        updateColumnsRead(row, columns);
+        return ret;
+      }
+
+      Map<Column, Bytes> read = scan(row, toRead);
+      readCache.put(row, toRead, read);
+      ret.putAll(read);
+    } else {
+      ret = scan(row, columns);
+    }
+
+    // only update columns read after successful read
+    updateColumnsRead(row, columns);
+
+    return ret;
+  }
+
+  private Map<Column, Bytes> scan(Bytes row, Set<Column> columns) {
+    // when a visibility is requested, only cells that exactly match a requested column are read
+    boolean filterColumns = isVisibilitySet(columns);
+
+    Iterable<Entry<Key, Value>> entries = null;
+    boolean filteredOnServer = false;
+    ReadMultiplexer readMultiplexer = env.getSharedResources().getReadMultiplexer();
+    // with no columns the whole row is read, which only the snapshot scanner does
+    if (readMultiplexer != null && !columns.isEmpty()) {
+      List<Entry<Key, Value>> read =
+          readMultiplexer.read(row, columns, startTs, this.scanTimeAuthz).join();
+      if (read != null) {
+        countEntriesReturned(read);
+        entries = read;
+      }
+    }
+
+    if (entries == null) {
+      SnapshotScanner.Opts opts = new SnapshotScanner.Opts(Span.exact(row), columns, true,
+          this.scanTimeAuthz, filterColumns);
+      entries = new SnapshotScanner(env, opts, startTs, stats);
+      filteredOnServer = true;
+    }
 
+    return toValues(row, columns, entries, filterColumns && !filteredOnServer);
+  }
+
+  private static boolean isVisibilitySet(Set<Column> columns) {
     for (Column column : columns) {
       if (column.isVisibilitySet()) {
-        shouldCopy = true;
+        return true;
       }
     }
+    return false;
+  }
 
-    SnapshotScanner.Opts opts;
-    if (shouldCopy) {
-      HashSet<Column> cols = new HashSet<>();
-      for (Column column : columns) {
-        if (column.isVisibilitySet()) {
-          cols.add(new Column(column.getFamily(), column.getQualifier()));
-        } else {
-          cols.add(column);
-        }
+  private void countEntriesReturned(List<Entry<Key, Value>> read) {
+    for (Entry<Key, Value> kve : read) {
+      if (ColumnType.from(kve.getKey()) == ColumnType.DATA) {
+        stats.incrementEntriesReturned(1);
       }
-      opts = new SnapshotScanner.Opts(Span.exact(row), columns, true, this.scanTimeAuthz);
-    } else {
-      opts = new SnapshotScanner.Opts(Span.exact(row), columns, true, this.scanTimeAuthz);
     }
+  }
 
+  /**
+   * Gets the values from the DATA and RLOCK entries read for a row, recording the read locks seen.
+   *
+   * @param filterColumns if true, entries whose column is not requested are skipped
+   */
+  private Map<Column, Bytes> toValues(Bytes row, Set<Column> columns,
+      Iterable<Entry<Key, Value>> entries, boolean filterColumns) {
     Map<Column, Bytes> ret = new HashMap<>();
     Set<Column> readLockCols = null;
 
-    for (Entry<Key, Value> kve : new SnapshotScanner(env, opts, startTs, stats)) {
+    for (Entry<Key, Value> kve : entries) {
 
       Column col = ColumnUtil.convert(kve.getKey());
-      if (shouldCopy && !columns.contains(col)) {
+      if (filterColumns && !columns.contains(col)) {
         continue;
       }
 
@@ -284,9 +473,6 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       }
     }
 
-    // only update columns read after successful read
-    updateColumnsRead(row, columns);
-
     return ret;
   }
 
@@ -299,7 +485,73 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     ParallelSnapshotScanner pss = new ParallelSnapshotScanner(rowColumns, env, startTs, stats,
         readLocksSeen, writeLocksSeen, this.scanTimeAuthz);
 
-    Map<Bytes, Map<Column, Bytes>> scan = pss.scan();
+    return toRowColumns(pss.scan());
+  }
+
+  /**
+   * Reads each row through the read multiplexer when it is enabled, so batches of async gets from
+   * concurrent transactions share scans. Rows the multiplexer does not read are scanned by this
+   * transaction.
+   */
+  private CompletableFuture<Map<RowColumn, Bytes>> getImplAsync(Collection<RowColumn> rowColumns,
+      Executor executor) {
+    ReadMultiplexer readMultiplexer = env.getSharedResources().getReadMultiplexer();
+    if (readMultiplexer == null || rowColumns.isEmpty()) {
+      return scanAsync(rowColumns, executor);
+    }
+
+    Map<Bytes, Set<Column>> rows = new HashMap<>();
+    for (RowColumn rc : rowColumns) {
+      rows.computeIfAbsent(rc.getRow(), k -> new HashSet<>()).add(rc.getColumn());
+    }
+
+    Map<Bytes, CompletableFuture<List<Entry<Key, Value>>>> reads = new HashMap<>();
+    for (Entry<Bytes, Set<Column>> entry : rows.entrySet()) {
+      reads.put(entry.getKey(),
+          readMultiplexer.read(entry.getKey(), entry.getValue(), startTs, this.scanTimeAuthz));
+    }
+
+    return CompletableFuture.allOf(reads.values().toArray(new CompletableFuture<?>[0]))
+        .thenComposeAsync(v -> {
+          Map<RowColumn, Bytes> ret = new HashMap<>();
+          List<RowColumn> toScan = new ArrayList<>();
+
+          for (Entry<Bytes, Set<Column>> entry : rows.entrySet()) {
+            Bytes row = entry.getKey();
+            List<Entry<Key, Value>> read = reads.get(row).join();
+            if (read == null) {
+              entry.getValue().forEach(col -> toScan.add(new RowColumn(row, col)));
+              continue;
+            }
+
+            countEntriesReturned(read);
+            Map<Column, Bytes> values =
+                toValues(row, entry.getValue(), read, isVisibilitySet(entry.getValue()));
+            updateColumnsRead(row, values.keySet());
+            values.forEach((col, val) -> ret.put(new RowColumn(row, col), val));
+          }
+
+          return scanAsync(toScan, executor).thenApply(scanned -> {
+            ret.putAll(scanned);
+            return ret;
+          });
+        }, executor);
+  }
+
+  private CompletableFuture<Map<RowColumn, Bytes>> scanAsync(Collection<RowColumn> rowColumns,
+      Executor executor) {
+    if (rowColumns.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyMap());
+    }
+
+    ParallelSnapshotScanner pss = new ParallelSnapshotScanner(rowColumns, env, startTs, stats,
+        readLocksSeen, kve -> {
+        }, this.scanTimeAuthz);
+
+    return pss.scanAsync(executor).thenApply(this::toRowColumns);
+  }
+
+  private Map<RowColumn, Bytes> toRowColumns(Map<Bytes, Map<Column, Bytes>> scan) {
     Map<RowColumn, Bytes> ret = new HashMap<>();
 
     for (Entry<Bytes, Map<Column, Bytes>> entry : scan.entrySet()) {
@@ -312,6 +564,149 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     return ret;
   }
 
+  @Override
+  public void prefetch(Collection<RowColumn> rowColumns) {
+    checkIfOpen();
+    if (readCache == null || rowColumns.isEmpty()) {
+      return;
+    }
+
+    Map<Bytes, Set<Column>> toRead = new HashMap<>();
+    List<RowColumn> cellsToRead = new ArrayList<>();
+    for (RowColumn rc : rowColumns) {
+      if (readCache.get(rc.getRow(), rc.getColumn()) == null
+          && toRead.computeIfAbsent(rc.getRow(), k -> new HashSet<>()).add(rc.getColumn())) {
+        cellsToRead.add(rc);
+      }
+    }
+
+    if (!cellsToRead.isEmpty()) {
+      Authorizations authz = this.scanTimeAuthz;
+      startPrefetch(toRead, readLocks -> new ParallelSnapshotScanner(cellsToRead, env, startTs,
+          stats, readLocks, kve -> {
+          }, authz));
+    }
+  }
+
+  @Override
+  public void prefetch(Collection<Bytes> rows, Set<Column> columns) {
+    checkIfOpen();
+    if (readCache == null || rows.isEmpty() || columns.isEmpty()) {
+      return;
+    }
+
+    env.getSharedResources().getVisCache().validate(columns);
+
+    Map<Bytes, Set<Column>> toRead = new HashMap<>();
+    for (Bytes row : rows) {
+      if (!readCache.get(row, columns, new HashMap<>()).isEmpty()) {
+        toRead.put(row, columns);
+      }
+    }
+
+    if (!toRead.isEmpty()) {
+      Authorizations authz = this.scanTimeAuthz;
+      startPrefetch(toRead, readLocks -> new ParallelSnapshotScanner(toRead.keySet(), columns, env,
+          startTs, stats, readLocks, kve -> {
+          }, authz));
+    }
+  }
+
+  /**
+   * Reads cells into the read cache. Runs on the async read executor, or on the thread waiting for
+   * it if it has not started yet, so waiting for a prefetch can not deadlock the executor.
+   */
+  private class Prefetch implements Runnable {
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    // the cache for the authorizations the prefetch reads with
+    private final TxReadCache cache = readCache;
+    // the read locks seen while reading
+    private final CompletableFuture<Map<Bytes, Set<Column>>> result = new CompletableFuture<>();
+    private final Map<Bytes, Set<Column>> toRead;
+    private final Function<Map<Bytes, Set<Column>>, ParallelSnapshotScanner> scannerFactory;
+
+    Prefetch(Map<Bytes, Set<Column>> toRead,
+        Function<Map<Bytes, Set<Column>>, ParallelSnapshotScanner> scannerFactory) {
+      this.toRead = toRead;
+      this.scannerFactory = scannerFactory;
+    }
+
+    @Override
+    public void run() {
+      if (!started.compareAndSet(false, true)) {
+        return;
+      }
+
+      try {
+        Map<Bytes, Set<Column>> readLocks = new HashMap<>();
+        Map<Bytes, Map<Column, Bytes>> read = scannerFactory.apply(readLocks).scan();
+        for (Entry<Bytes, Set<Column>> entry : toRead.entrySet()) {
+          cache.put(entry.getKey(), entry.getValue(),
+              read.getOrDefault(entry.getKey(), Collections.emptyMap()));
+        }
+        result.complete(readLocks);
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+      }
+    }
+  }
+
+  /**
+   * Prefetched cells are not added to the columns read, a get that is answered from the cache adds
+   * them.
+   */
+  private void startPrefetch(Map<Bytes, Set<Column>> toRead,
+      Function<Map<Bytes, Set<Column>>, ParallelSnapshotScanner> scannerFactory) {
+    Prefetch prefetch = new Prefetch(toRead, scannerFactory);
+    synchronized (prefetches) {
+      prefetches.add(prefetch);
+    }
+
+    try {
+      env.getSharedResources().getAsyncReadExecutor().executeNow(prefetch);
+    } catch (RejectedExecutionException e) {
+      // the first get will run it
+    }
+  }
+
+  /**
+   * Waits for prefetches to finish filling the read cache and records the read locks they saw.
+   * Gets call this before using the cache, so they do not read what a prefetch is reading.
+   */
+  private void awaitPrefetches() {
+    synchronized (prefetches) {
+      for (Prefetch prefetch : prefetches) {
+        prefetch.run();
+        try {
+          for (Entry<Bytes, Set<Column>> entry : prefetch.result.join().entrySet()) {
+            readLocksSeen.computeIfAbsent(entry.getKey(), k -> new HashSet<>())
+                .addAll(entry.getValue());
+          }
+        } catch (CompletionException e) {
+          // cells a failed prefetch did not cache will be read by gets
+          LoggerFactory.getLogger(TransactionImpl.class).debug("Prefetch failed", e);
+        }
+      }
+      prefetches.clear();
+    }
+  }
+
+  /**
+   * Keeps prefetches that have not started from running and stops tracking the others. Commits call
+   * this instead of waiting, since prefetched cells are not in the read set and gets that returned
+   * a prefetched cell already waited for its prefetch and recorded its read locks.
+   */
+  private void cancelPrefetches() {
+    synchronized (prefetches) {
+      for (Prefetch prefetch : prefetches) {
+        if (prefetch.started.compareAndSet(false, true)) {
+          prefetch.result.cancel(false);
+        }
+      }
+      prefetches.clear();
+    }
+  }
+
   @Override
   public CompletableFuture<Bytes> getAsync(Bytes row, Column column) {
     return getAsyncReader().get(row, column);
@@ -334,7 +729,7 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
   private AsyncReader getAsyncReader() {
     if (asyncReader == null) {
-      asyncReader = new AsyncReader(this);
+      asyncReader = new AsyncReader(this, env.getSharedResources().getAsyncReadExecutor());
     }
     return asyncReader;
   }
@@ -477,7 +872,6 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
   }
 
   public static class CommitData {
-    ConditionalWriter cw;
     private Bytes prow;
     private Column pcol;
     private Bytes pval;
@@ -489,6 +883,12 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       rejected = Collections.singletonMap(prow, Collections.singleton(pcol));
     }
 
+    private void addPrimaryRowToRejected(Set<Column> otherColumns) {
+      Set<Column> columns = new HashSet<>(otherColumns);
+      columns.add(pcol);
+      rejected = Collections.singletonMap(prow, columns);
+    }
+
     private void addToRejected(Bytes row, Set<Column> columns) {
       if (rejected == null) {
         rejected = new HashMap<>();
@@ -550,6 +950,13 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     private AsyncConditionalWriter bacw;
     private AsyncCommitObserver commitObserver;
 
+    /**
+     * Sets the writer used for the primary lock and the primary commit.
+     */
+    @VisibleForTesting
+    public void setConditionalWriter(AsyncConditionalWriter acw) {
+      this.acw = acw;
+    }
   }
 
   private boolean isTriggerRow(Bytes row) {
@@ -569,6 +976,8 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       commitAttempted = true;
     }
 
+    cancelPrefetches();
+
     SyncCommitObserver sco = new SyncCommitObserver();
     cd = setUpBeginCommitAsync(cd, sco, primary);
     if (cd != null) {
@@ -666,7 +1075,7 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
     if (!rowColsToCheck.isEmpty()) {
 
-      long waitTime = SnapshotScanner.INITIAL_WAIT_TIME;
+      LockWaitPolicy waitPolicy = env.getSharedResources().newLockWaitPolicy();
 
       boolean resolved = false;
 
@@ -677,9 +1086,9 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       while (!resolved) {
         resolved = LockResolver.resolveLocks(env, startTs, stats, openReadLocks, startTime);
         if (!resolved) {
+          long waitTime = waitPolicy.nextWait();
           UtilWaitThread.sleep(waitTime);
           stats.incrementLockWaitTime(waitTime);
-          waitTime = Math.min(SnapshotScanner.MAX_WAIT_TIME, waitTime * 2);
 
           openReadLocks = LockResolver.getOpenReadLocks(env, rowColsToCheck);
         }
@@ -746,7 +1155,6 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
   public CommitData createCommitData() {
     CommitData cd = new CommitData();
-    cd.cw = env.getSharedResources().getConditionalWriter();
     cd.acw = env.getSharedResources().getAsyncConditionalWriter();
     cd.bacw = env.getSharedResources().getBulkAsyncConditionalWriter();
     return cd;
@@ -772,6 +1180,15 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     }
   }
 
+  /**
+   * @return a copy of the cells read by gets, keyed by row
+   */
+  public Map<Bytes, Set<Column>> getColumnsRead() {
+    Map<Bytes, Set<Column>> copy = new HashMap<>();
+    columnsRead.forEach((row, cols) -> copy.put(row, new HashSet<>(cols)));
+    return copy;
+  }
+
   @Override
   public TxStats getStats() {
     return stats;
@@ -805,10 +1222,6 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
   }
 
   private synchronized void close(boolean checkForStaleScan) {
-    if (asyncReader != null) {
-      asyncReader.close();
-    }
-
     if (status != TxStatus.CLOSED) {
       status = TxStatus.CLOSED;
 
@@ -910,8 +1323,11 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
     public abstract Collection<ConditionalMutation> createMutations(CommitData cd);
 
-    public abstract Iterator<Result> handleUnknown(CommitData cd, Iterator<Result> results)
-        throws Exception;
+    /**
+     * Learns the outcome of conditional mutations whose results were unknown, without blocking.
+     */
+    public abstract CompletableFuture<Iterator<Result>> handleUnknown(CommitData cd,
+        Iterator<Result> results);
 
     public abstract boolean processResults(CommitData cd, Iterator<Result> results)
         throws Exception;
@@ -920,6 +1336,41 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       return cd.acw;
     }
 
+    /**
+     * Reads the status of this transaction from its primary column, after waiting if the wait is
+     * positive.
+     */
+    CompletableFuture<TxInfo> getTxInfoAsync(CommitData cd, long wait) {
+      PrimaryRowColumn prc = new PrimaryRowColumn(cd.prow, cd.pcol, startTs);
+      TxInfoCache txInfoCache = env.getSharedResources().getTxInfoCache();
+      // scans block, so the read runs on a status thread and statuses looked up by other commits
+      // while every status thread is reading are read together by the next batch scan
+      Executor statusExecutor = env.getSharedResources().getCommitStatusExecutor();
+      if (wait <= 0) {
+        return txInfoCache.getTransactionInfoAsync(prc, statusExecutor);
+      }
+      Executor delayed = CompletableFuture.delayedExecutor(wait, TimeUnit.MILLISECONDS,
+          env.getSharedResources().getAsyncCommitExecutor());
+      return CompletableFuture.supplyAsync(() -> prc, delayed)
+          .thenCompose(key -> txInfoCache.getTransactionInfoAsync(key, statusExecutor));
+    }
+
+    Status getStatus(Result result) {
+      try {
+        return result.getStatus();
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
+    }
+
+    /**
+     * Writes the mutation of a result again.
+     */
+    CompletableFuture<Result> rewrite(CommitData cd, Result result) {
+      return getACW(cd).apply(Collections.singletonList(result.getMutation()))
+          .thenApply(Iterators::getOnlyElement);
+    }
+
     @Override
     CompletableFuture<Boolean> getMainOp(CommitData cd) {
       // TODO not sure threading is correct
@@ -929,24 +1380,20 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
         // return collection
         ArrayList<Result> resultsList = new ArrayList<>();
         Iterators.addAll(resultsList, results);
-        boolean containsUknown = false;
+        int numUnknown = 0;
         for (Result result : resultsList) {
-          try {
-            containsUknown |= result.getStatus() == Status.UNKNOWN;
-          } catch (Exception e) {
-            throw new CompletionException(e);
+          if (getStatus(result) == Status.UNKNOWN) {
+            numUnknown++;
           }
         }
-        if (containsUknown) {
-          // process unknown in sync executor
-          Executor se = env.getSharedResources().getSyncCommitExecutor();
-          return CompletableFuture.supplyAsync(() -> {
-            try {
-              return handleUnknown(cd, resultsList.iterator());
-            } catch (Exception e) {
-              throw new CompletionException(e);
-            }
-          }, se);
+        if (numUnknown > 0) {
+          MetricRegistry registry = env.getSharedResources().getMetricRegistry();
+          registry.meter(env.getMetricNames().getCwUnknown()).mark(numUnknown);
+          Timer resolveTimer = MetricsUtil.getTimer(env.getConfiguration(), registry,
+              env.getMetricNames().getCwUnknownResolveTime());
+          long start = System.nanoTime();
+          return handleUnknown(cd, resultsList.iterator()).whenComplete((r, t) -> resolveTimer
+              .update(System.nanoTime() - start, TimeUnit.NANOSECONDS));
         } else {
           return CompletableFuture.completedFuture(resultsList.iterator());
         }
@@ -970,45 +1417,41 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     }
 
     @Override
-    public Iterator<Result> handleUnknown(CommitData cd, Iterator<Result> results)
-        throws Exception {
-
+    public CompletableFuture<Iterator<Result>> handleUnknown(CommitData cd,
+        Iterator<Result> results) {
       Result result = Iterators.getOnlyElement(results);
-      Status mutationStatus = result.getStatus();
-      // TODO convert this code to async
-      while (mutationStatus == Status.UNKNOWN) {
-        TxInfo txInfo = TxInfo.getTransactionInfo(env, cd.prow, cd.pcol, startTs);
+      return resolveUnknown(cd, result, env.getSharedResources().newLockWaitPolicy(), 0);
+    }
 
+    private CompletableFuture<Iterator<Result>> resolveUnknown(CommitData cd, Result result,
+        LockWaitPolicy waitPolicy, long wait) {
+      return getTxInfoAsync(cd, wait).thenCompose(txInfo -> {
         switch (txInfo.getStatus()) {
           case LOCKED:
-            return Collections
+            return CompletableFuture.completedFuture(Collections
                 .singleton(
                     new Result(Status.ACCEPTED, result.getMutation(), result.getTabletServer()))
-                .iterator();
+                .iterator());
           case ROLLED_BACK:
-            return Collections
+            return CompletableFuture.completedFuture(Collections
                 .singleton(
                     new Result(Status.REJECTED, result.getMutation(), result.getTabletServer()))
-                .iterator();
+                .iterator());
           case UNKNOWN:
-            // TODO async
-            Result newResult = cd.cw.write(result.getMutation());
-            mutationStatus = newResult.getStatus();
-            if (mutationStatus != Status.UNKNOWN) {
-              return Collections.singleton(newResult).iterator();
-            }
-            // TODO handle case were data other tx has lock
-            break;
+            return rewrite(cd, result).thenCompose(newResult -> {
+              if (getStatus(newResult) != Status.UNKNOWN) {
+                return CompletableFuture
+                    .completedFuture(Collections.singleton(newResult).iterator());
+              }
+              // TODO handle case were data other tx has lock
+              return resolveUnknown(cd, result, waitPolicy, waitPolicy.nextWait());
+            });
           case COMMITTED:
           default:
             throw new IllegalStateException(
                 "unexpected tx state " + txInfo.getStatus() + " " + cd.prow + " " + cd.pcol);
-
         }
-      }
-
-      // TODO
-      throw new IllegalStateException();
+      });
     }
 
     @Override
@@ -1018,6 +1461,10 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       return result.getStatus() == Status.ACCEPTED;
     }
 
+    void addToRejected(CommitData cd) {
+      cd.addPrimaryToRejected();
+    }
+
     @Override
     CompletableFuture<Void> getFailureOp(CommitData cd) {
       // TODO can this be simplified by pushing some code to the superclass?
@@ -1025,7 +1472,7 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
         final ConditionalMutation pcm =
             createMutations(cd).stream().collect(MoreCollectors.onlyElement());
 
-        cd.addPrimaryToRejected();
+        addToRejected(cd);
         getStats().setRejected(cd.getRejected());
         // TODO do async
         try {
@@ -1045,6 +1492,43 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
   }
 
+  /**
+   * Locks every column of a transaction whose updates are all in the primary row with one
+   * conditional mutation. Accumulo applies the conditions and updates of a row atomically, so
+   * either all columns are locked or none are.
+   */
+  class LockRowStep extends LockPrimaryStep {
+
+    @Override
+    public Collection<ConditionalMutation> createMutations(CommitData cd) {
+      ConditionalFlutation cm =
+          prewrite(cd.prow, cd.pcol, cd.pval, cd.prow, cd.pcol, isTriggerRow(cd.prow));
+      for (Entry<Column, Bytes> colUpdates : updates.getOrDefault(cd.prow, Collections.emptyMap())
+          .entrySet()) {
+        prewrite(cm, colUpdates.getKey(), colUpdates.getValue(), cd.prow, cd.pcol, false);
+      }
+
+      cd.acceptedRows = new HashSet<>();
+
+      return Collections.singleton(cm);
+    }
+
+    @Override
+    public boolean processResults(CommitData cd, Iterator<Result> results) throws Exception {
+      boolean accepted = super.processResults(cd, results);
+      if (accepted && updates.containsKey(cd.prow)) {
+        // lets a rollback remove the locks on the other columns
+        cd.acceptedRows.add(cd.prow);
+      }
+      return accepted;
+    }
+
+    @Override
+    void addToRejected(CommitData cd) {
+      cd.addPrimaryRowToRejected(updates.getOrDefault(cd.prow, Collections.emptyMap()).keySet());
+    }
+  }
+
   class LockOtherStep extends ConditionalStep {
 
     @Override
@@ -1067,6 +1551,14 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
           } else {
             prewrite(cm, colUpdates.getKey(), colUpdates.getValue(), cd.prow, cd.pcol, false);
           }
+
+          // The notification is written with the lock, using the start timestamp because the
+          // commit timestamp is not known yet. An observer can only delete it by committing a
+          // transaction that started after this one and locks the same column, and at most one of
+          // the two transactions can commit.
+          if (isNotifying(colUpdates.getKey(), colUpdates.getValue())) {
+            Notification.put(env, cm, colUpdates.getKey(), startTs);
+          }
         }
 
         mutations.add(cm);
@@ -1078,9 +1570,10 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     }
 
     @Override
-    public Iterator<Result> handleUnknown(CommitData cd, Iterator<Result> results) {
+    public CompletableFuture<Iterator<Result>> handleUnknown(CommitData cd,
+        Iterator<Result> results) {
       // TODO this step does not currently handle unknown
-      return results;
+      return CompletableFuture.completedFuture(results);
     }
 
     @Override
@@ -1259,6 +1752,11 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
   }
 
+  /**
+   * Writes the weak notifications of rows other than the primary row. Weak notifications are not
+   * written with locks because they are for columns this transaction does not lock, so they need
+   * the commit timestamp.
+   */
   class WriteNotificationsStep extends BatchWriterStep {
 
     @Override
@@ -1266,35 +1764,12 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       long commitTs = getStats().getCommitTs();
       HashMap<Bytes, Mutation> mutations = new HashMap<>();
 
-      if (observedColumns.contains(cd.pcol) && isWrite(cd.pval) && !isDelete(cd.pval)) {
-        Flutation m = new Flutation(env, cd.prow);
-        Notification.put(env, m, cd.pcol, commitTs);
-        mutations.put(cd.prow, m);
-      }
-
-      for (Entry<Bytes, Map<Column, Bytes>> rowUpdates : updates.entrySet()) {
-
-        for (Entry<Column, Bytes> colUpdates : rowUpdates.getValue().entrySet()) {
-          if (observedColumns.contains(colUpdates.getKey())) {
-            Bytes val = colUpdates.getValue();
-            if (isWrite(val) && !isDelete(val)) {
-              Mutation m = mutations.get(rowUpdates.getKey());
-              if (m == null) {
-                m = new Flutation(env, rowUpdates.getKey());
-                mutations.put(rowUpdates.getKey(), m);
-              }
-              Notification.put(env, m, colUpdates.getKey(), commitTs);
-            }
-          }
-        }
-      }
-
       for (Entry<Bytes, Set<Column>> entry : weakNotifications.entrySet()) {
-        Mutation m = mutations.get(entry.getKey());
-        if (m == null) {
-          m = new Flutation(env, entry.getKey());
-          mutations.put(entry.getKey(), m);
+        if (entry.getKey().equals(cd.prow)) {
+          // written by CommitPrimaryStep
+          continue;
         }
+        Mutation m = mutations.computeIfAbsent(entry.getKey(), row -> new Flutation(env, row));
         for (Column col : entry.getValue()) {
           Notification.put(env, m, col, commitTs);
         }
@@ -1321,43 +1796,53 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
       ColumnUtil.commitColumn(env, isTrigger, true, cd.pcol, isWrite(cd.pval), isDelete(cd.pval),
           isReadLock(cd.pval), startTs, commitTs, observedColumns, delLockMutation);
 
+      // Notifications of the primary row are written with the commit, so they exist if the
+      // transaction committed. The primary column of an observer is the column that triggered it,
+      // and the observer deletes notifications up to its start timestamp, so its notification
+      // must use the commit timestamp.
+      if (isNotifying(cd.pcol, cd.pval)) {
+        Notification.put(env, delLockMutation, cd.pcol, commitTs);
+      }
+      for (Column col : weakNotifications.getOrDefault(cd.prow, Collections.emptySet())) {
+        Notification.put(env, delLockMutation, col, commitTs);
+      }
+
       return Collections.singletonList(delLockMutation);
     }
 
     @Override
-    public Iterator<Result> handleUnknown(CommitData cd, Iterator<Result> results)
-        throws Exception {
-      // the code for handing this is synchronous and needs to be handled in another thread pool
-      // TODO - how do we do the above without return a CF?
-      long commitTs = getStats().getCommitTs();
-      Result result = StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, 0), false)
-          .collect(MoreCollectors.onlyElement());
-      Status ms = result.getStatus();
-
-      while (ms == Status.UNKNOWN) {
-
-        // TODO async
-        TxInfo txInfo = TxInfo.getTransactionInfo(env, cd.prow, cd.pcol, startTs);
+    public CompletableFuture<Iterator<Result>> handleUnknown(CommitData cd,
+        Iterator<Result> results) {
+      Result result = Iterators.getOnlyElement(results);
+      return resolveUnknown(cd, result, env.getSharedResources().newLockWaitPolicy(), 0)
+          .thenApply(ms -> Collections
+              .singletonList(new Result(ms, result.getMutation(), result.getTabletServer()))
+              .iterator());
+    }
 
+    private CompletableFuture<Status> resolveUnknown(CommitData cd, Result result,
+        LockWaitPolicy waitPolicy, long wait) {
+      long commitTs = getStats().getCommitTs();
+      return getTxInfoAsync(cd, wait).thenCompose(txInfo -> {
         switch (txInfo.getStatus()) {
           case COMMITTED:
             if (txInfo.getCommitTs() != commitTs) {
               throw new IllegalStateException(
                   cd.prow + " " + cd.pcol + " " + txInfo.getCommitTs() + "!=" + commitTs);
             }
-            ms = Status.ACCEPTED;
-            break;
+            return CompletableFuture.completedFuture(Status.ACCEPTED);
           case LOCKED:
-            // TODO async
-            ConditionalMutation delLockMutation = result.getMutation();
-            ms = cd.cw.write(delLockMutation).getStatus();
-            break;
+            return rewrite(cd, result).thenCompose(newResult -> {
+              Status ms = getStatus(newResult);
+              if (ms == Status.UNKNOWN) {
+                return resolveUnknown(cd, result, waitPolicy, waitPolicy.nextWait());
+              }
+              return CompletableFuture.completedFuture(ms);
+            });
           default:
-            ms = Status.REJECTED;
+            return CompletableFuture.completedFuture(Status.REJECTED);
         }
-      }
-      Result newResult = new Result(ms, result.getMutation(), result.getTabletServer());
-      return Collections.singletonList(newResult).iterator();
+      });
     }
 
     @Override
@@ -1374,6 +1859,38 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
   }
 
+  /**
+   * Commits every column of a transaction whose updates are all in the primary row with one
+   * conditional mutation that also writes the notifications of the other columns, since
+   * LockRowStep does not. Since the locks of all columns are removed at once, there are no other
+   * locks to delete after this.
+   */
+  class CommitRowStep extends CommitPrimaryStep {
+
+    @Override
+    public Collection<ConditionalMutation> createMutations(CommitData cd) {
+      ConditionalMutation cm = super.createMutations(cd).iterator().next();
+
+      long commitTs = getStats().getCommitTs();
+      boolean isTriggerRow = isTriggerRow(cd.prow);
+      Map<Column, Bytes> rowUpdates = updates.getOrDefault(cd.prow, Collections.emptyMap());
+      for (Entry<Column, Bytes> colUpdates : rowUpdates.entrySet()) {
+        ColumnUtil.commitColumn(env,
+            isTriggerRow && colUpdates.getKey().equals(notification.getColumn()), false,
+            colUpdates.getKey(), isWrite(colUpdates.getValue()), isDelete(colUpdates.getValue()),
+            isReadLock(colUpdates.getValue()), startTs, commitTs, observedColumns, cm);
+      }
+
+      for (Entry<Column, Bytes> colUpdates : rowUpdates.entrySet()) {
+        if (isNotifying(colUpdates.getKey(), colUpdates.getValue())) {
+          Notification.put(env, cm, colUpdates.getKey(), commitTs);
+        }
+      }
+
+      return Collections.singletonList(cm);
+    }
+  }
+
   @VisibleForTesting
   public boolean finishCommit(CommitData cd, Stamp commitStamp) {
     cd.commitObserver = new SyncCommitObserver();
@@ -1458,6 +1975,7 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     commitAttempted = true;
 
     try {
+      cancelPrefetches();
       CommitData cd = createCommitData();
       cd = setUpBeginCommitAsync(cd, commitCallback, null);
       if (cd != null) {
@@ -1540,13 +2058,15 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
 
   private void beginCommitAsync(CommitData cd) {
 
-    // Notification are written between GetCommitStampStep and CommitPrimaryStep for the following
-    // reasons :
-    // * At this point all columns are locked, this guarantees that anything triggering as a
-    // result of this transaction will see all of this transactions changes.
-    // * The transaction is not yet committed. If the process dies at this point whatever
-    // was running this transaction should rerun and recreate all of the notifications.
-    // The next transactions will rerun because this transaction will have to be rolled back.
+    // Notifications are written no later than CommitPrimaryStep for the following reasons :
+    // * Notifications for columns other than the primary are written with their locks in
+    // LockOtherStep. An observer triggered before all columns are locked can not commit, because
+    // it locks the column that triggered it and this transaction holds or already wrote that lock.
+    // * The notifications of the primary row are written with the commit of the primary column.
+    // Weak notifications of other rows are written by WriteNotificationsStep before it.
+    // * If the process dies before the primary commits, the transaction will be rolled back and
+    // whatever was running it should rerun and recreate all of the notifications. Notifications
+    // left by the rolled back locks only cause an observer to run without new data.
     // * If notifications are written in the 2nd phase of commit, then when the 2nd phase
     // partially succeeds notifications may never be written. Because in the case of failure
     // notifications would not be written until a column is read and it may never be read.
@@ -1555,11 +2075,20 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     // Its very important the notifications which trigger an observer are deleted after the 2nd
     // phase of commit finishes.
 
-    CommitStep firstStep = new LockPrimaryStep();
+    CommitStep firstStep;
 
-    firstStep.andThen(new LockOtherStep()).andThen(new GetCommitStampStep())
-        .andThen(new WriteNotificationsStep()).andThen(new CommitPrimaryStep())
-        .andThen(new DeleteLocksStep()).andThen(new FinishCommitStep());
+    if (isSingleRow(cd)) {
+      // The columns of a single row are locked and committed with one conditional mutation each,
+      // and notifications are written with the commit.
+      firstStep = new LockRowStep();
+      firstStep.andThen(new GetCommitStampStep()).andThen(new CommitRowStep())
+          .andThen(new FinishCommitStep());
+    } else {
+      firstStep = new LockPrimaryStep();
+      firstStep.andThen(new LockOtherStep()).andThen(new GetCommitStampStep())
+          .andThen(new WriteNotificationsStep()).andThen(new CommitPrimaryStep())
+          .andThen(new DeleteLocksStep()).andThen(new FinishCommitStep());
+    }
 
     firstStep.compose(cd).exceptionally(throwable -> {
       setFailed(cd, throwable);
@@ -1567,6 +2096,16 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     });
   }
 
+  /**
+   * @return true if all updates and weak notifications of a transaction are in its primary row
+   */
+  private boolean isSingleRow(CommitData cd) {
+    return env.getSharedResources().isSingleRowCommitEnabled()
+        && (updates.isEmpty() || updates.size() == 1 && updates.containsKey(cd.prow))
+        && (weakNotifications.isEmpty()
+            || weakNotifications.size() == 1 && weakNotifications.containsKey(cd.prow));
+  }
+
   private void beginCommitAsyncTest(CommitData cd) {
 
     CommitStep firstStep = new LockPrimaryStep();
@@ -1590,11 +2129,21 @@ public class TransactionImpl extends AbstractTransactionBase implements AsyncTra
     Objects.requireNonNull(labels, "Authorization tokens must not be null!");
     String[] requestedAuthz = Iterables.toArray(labels, String.class);
     if (requestedAuthz != null) {
+      Authorizations authz;
       if (requestedAuthz.length == 0) {
-        this.scanTimeAuthz = Authorizations.EMPTY;
+        authz = Authorizations.EMPTY;
       } else {
-        this.scanTimeAuthz = new Authorizations(requestedAuthz);
+        authz = new Authorizations(requestedAuthz);
+      }
+
+      if (readCache != null && !authz.equals(scanTimeAuthz)) {
+        // cached cells and absent cells were read with the old authorizations, prefetches that
+        // already started fill the old cache
+        cancelPrefetches();
+        readCache = new TxReadCache(readCacheMaxCells);
       }
+
+      this.scanTimeAuthz = authz;
     }
   }
 
@@ -15,10 +15,19 @@
 
 package org.apache.fluo.core.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.fluo.accumulo.iterators.RollbackCheckIterator;
 import org.apache.fluo.accumulo.util.ColumnConstants;
@@ -27,13 +36,25 @@ import org.apache.fluo.accumulo.values.DelLockValue;
 import org.apache.fluo.accumulo.values.WriteValue;
 import org.apache.fluo.api.data.Bytes;
 import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
+import org.apache.fluo.api.data.Span;
+import org.apache.fluo.core.util.ByteUtil;
 import org.apache.fluo.core.util.ColumnUtil;
+import org.apache.fluo.core.util.SpanUtil;
 
 public class TxInfo {
   private TxStatus status = null;
   private long commitTs = -1;
   private byte[] lockValue = null;
 
+  TxInfo() {}
+
+  @VisibleForTesting
+  TxInfo(TxStatus status, long commitTs) {
+    this.status = status;
+    this.commitTs = commitTs;
+  }
+
   public TxStatus getStatus() {
     return status;
   }
@@ -57,6 +78,86 @@ public class TxInfo {
 
     Entry<Key, Value> entry = ColumnUtil.checkColumn(env, is, prow, pcol);
 
+    return fromEntry(entry, prow, pcol, startTs);
+  }
+
+  /**
+   * Determines the state of many transactions, checking their primary columns with as few batch
+   * scans as possible. Transactions that used the same primary column are checked in separate
+   * scans.
+   */
+  static Map<PrimaryRowColumn, TxInfo> getTransactionInfos(Environment env,
+      Collection<PrimaryRowColumn> keys) {
+    Map<PrimaryRowColumn, TxInfo> txInfos = new HashMap<>();
+    for (Map<RowColumn, PrimaryRowColumn> toCheck : groupByPrimary(keys)) {
+      checkPrimaries(env, toCheck, txInfos);
+    }
+    return txInfos;
+  }
+
+  /**
+   * Splits transactions into groups in which each primary column is used by only one transaction.
+   */
+  @VisibleForTesting
+  static List<Map<RowColumn, PrimaryRowColumn>> groupByPrimary(
+      Collection<PrimaryRowColumn> keys) {
+    List<Map<RowColumn, PrimaryRowColumn>> groups = new ArrayList<>();
+
+    Collection<PrimaryRowColumn> remaining = keys;
+    while (!remaining.isEmpty()) {
+      Map<RowColumn, PrimaryRowColumn> toCheck = new HashMap<>();
+      List<PrimaryRowColumn> later = new ArrayList<>();
+      for (PrimaryRowColumn prc : remaining) {
+        if (toCheck.putIfAbsent(new RowColumn(prc.prow, prc.pcol), prc) != null) {
+          later.add(prc);
+        }
+      }
+
+      groups.add(toCheck);
+      remaining = later;
+    }
+
+    return groups;
+  }
+
+  private static void checkPrimaries(Environment env, Map<RowColumn, PrimaryRowColumn> toCheck,
+      Map<PrimaryRowColumn, TxInfo> txInfos) {
+    Map<RowColumn, Long> lockTimes = new HashMap<>();
+    List<Range> ranges = new ArrayList<>();
+    for (Entry<RowColumn, PrimaryRowColumn> entry : toCheck.entrySet()) {
+      lockTimes.put(entry.getKey(), entry.getValue().startTs);
+      ranges.add(SpanUtil.toRange(Span.exact(entry.getKey().getRow(), entry.getKey().getColumn())));
+    }
+
+    IteratorSetting is = new IteratorSetting(10, RollbackCheckIterator.class);
+    RollbackCheckIterator.setLocktimes(is, lockTimes);
+
+    Map<RowColumn, Entry<Key, Value>> found = new HashMap<>();
+    try (BatchScanner scanner =
+        env.getAccumuloClient().createBatchScanner(env.getTable(), env.getAuthorizations())) {
+      scanner.setRanges(ranges);
+      scanner.addScanIterator(is);
+
+      for (Entry<Key, Value> entry : scanner) {
+        RowColumn rc = new RowColumn(ByteUtil.toBytes(entry.getKey().getRowData()),
+            ColumnUtil.convert(entry.getKey()));
+        if (!toCheck.containsKey(rc)) {
+          throw new IllegalStateException("unexpected key " + entry.getKey());
+        }
+        found.put(rc, entry);
+      }
+    } catch (TableNotFoundException e) {
+      throw new RuntimeException(e);
+    }
+
+    for (Entry<RowColumn, PrimaryRowColumn> entry : toCheck.entrySet()) {
+      PrimaryRowColumn prc = entry.getValue();
+      txInfos.put(prc, fromEntry(found.get(entry.getKey()), prc.prow, prc.pcol, prc.startTs));
+    }
+  }
+
+  private static TxInfo fromEntry(Entry<Key, Value> entry, Bytes prow, Column pcol,
+      long startTs) {
     TxInfo txInfo = new TxInfo();
 
     if (entry == null) {
@@ -15,15 +15,42 @@
 
 package org.apache.fluo.core.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.Weigher;
 import org.apache.fluo.api.config.FluoConfiguration;
 import org.apache.fluo.api.data.Bytes;
 import org.apache.fluo.api.data.Column;
+import org.apache.fluo.core.metrics.MetricNames;
+import org.apache.fluo.core.metrics.MetricsUtil;
 
+/**
+ * Caches the status of transactions that will not change. Transactions that are not cached are
+ * read together with one batch scan, and concurrent lookups of the same transaction share one
+ * read. Single lookups made concurrently can also be gathered into batch scans.
+ */
 public class TxInfoCache {
 
   private static class TxStatusWeigher implements Weigher<PrimaryRowColumn, TxInfo> {
@@ -34,16 +61,52 @@ public class TxInfoCache {
   }
 
   private final Cache<PrimaryRowColumn, TxInfo> cache;
-  private final Environment env;
+  // reads in progress, a transaction is removed after it is cached
+  private final Map<PrimaryRowColumn, CompletableFuture<TxInfo>> loading =
+      new ConcurrentHashMap<>();
+  // lookups waiting for the next batch read
+  private final Queue<PrimaryRowColumn> queued = new ConcurrentLinkedQueue<>();
+  // batches scheduled or being read, at most maxBatches
+  private final AtomicInteger batches = new AtomicInteger(0);
+  private final int maxBatches;
+  private final Function<Collection<PrimaryRowColumn>, Map<PrimaryRowColumn, TxInfo>> reader;
+  private final Meter hits;
+  private final Meter misses;
+  private final Meter sharedLookups;
+  private final Histogram batchSizes;
+
+  TxInfoCache(Environment env, MetricRegistry registry) {
+    this(env.getConfiguration(), env.getMetricNames(), registry, keys -> read(env, keys));
+  }
 
-  TxInfoCache(Environment env) {
-    final FluoConfiguration conf = env.getConfiguration();
+  /**
+   * @param reader reads the status of transactions that are not cached
+   */
+  @VisibleForTesting
+  TxInfoCache(FluoConfiguration conf, MetricNames metricNames, MetricRegistry registry,
+      Function<Collection<PrimaryRowColumn>, Map<PrimaryRowColumn, TxInfo>> reader) {
     cache = CacheBuilder.newBuilder()
         .expireAfterAccess(FluoConfigurationImpl.getTxIfoCacheTimeout(conf, TimeUnit.MILLISECONDS),
             TimeUnit.MILLISECONDS)
         .maximumWeight(FluoConfigurationImpl.getTxInfoCacheWeight(conf))
         .weigher(new TxStatusWeigher()).concurrencyLevel(10).build();
-    this.env = env;
+    this.reader = reader;
+    this.hits = registry.meter(metricNames.getTxInfoCacheHits());
+    this.misses = registry.meter(metricNames.getTxInfoCacheMisses());
+    this.sharedLookups = registry.meter(metricNames.getTxInfoSharedLookups());
+    this.batchSizes = MetricsUtil.getHistogram(conf, registry, metricNames.getTxInfoBatchSize());
+    this.maxBatches = FluoConfigurationImpl.getCommitStatusThreads(conf);
+  }
+
+  private static Map<PrimaryRowColumn, TxInfo> read(Environment env,
+      Collection<PrimaryRowColumn> keys) {
+    if (keys.size() == 1) {
+      // a scanner is cheaper than a batch scanner for one column
+      PrimaryRowColumn key = keys.iterator().next();
+      return Collections.singletonMap(key,
+          TxInfo.getTransactionInfo(env, key.prow, key.pcol, key.startTs));
+    }
+    return TxInfo.getTransactionInfos(env, keys);
   }
 
   public TxInfo getTransactionInfo(final Bytes prow, final Column pcol, final long startTs) {
@@ -51,16 +114,168 @@ public class TxInfoCache {
   }
 
   public TxInfo getTransactionInfo(PrimaryRowColumn key) {
+    return getTransactionInfos(Collections.singleton(key)).get(key);
+  }
+
+  /**
+   * Looks up the status of many transactions, reading those that are not cached with one batch
+   * scan in the calling thread.
+   */
+  public Map<PrimaryRowColumn, TxInfo> getTransactionInfos(Collection<PrimaryRowColumn> keys) {
+    try {
+      return getTransactionInfosAsync(keys, Runnable::run).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Looks up the status of many transactions. Those that are not cached or being read by another
+   * lookup are read with one batch scan.
+   *
+   * @param executor runs the read of transactions that are not cached
+   */
+  public CompletableFuture<Map<PrimaryRowColumn, TxInfo>> getTransactionInfosAsync(
+      Collection<PrimaryRowColumn> keys, Executor executor) {
+    Map<PrimaryRowColumn, TxInfo> txInfos = new ConcurrentHashMap<>();
+    Map<PrimaryRowColumn, CompletableFuture<TxInfo>> toLoad = new HashMap<>();
+    List<CompletableFuture<Void>> lookups = new ArrayList<>();
 
+    for (PrimaryRowColumn key : keys) {
+      TxInfo txInfo = cache.getIfPresent(key);
+      if (txInfo != null) {
+        hits.mark();
+        txInfos.put(key, txInfo);
+        continue;
+      }
+
+      CompletableFuture<TxInfo> future = new CompletableFuture<>();
+      CompletableFuture<TxInfo> existing = loading.putIfAbsent(key, future);
+      if (existing == null) {
+        toLoad.put(key, future);
+      } else {
+        sharedLookups.mark();
+        future = existing;
+      }
+      lookups.add(future.thenAccept(ti -> txInfos.put(key, ti)));
+    }
+
+    if (!toLoad.isEmpty()) {
+      misses.mark(toLoad.size());
+      try {
+        executor.execute(() -> load(toLoad));
+      } catch (RejectedExecutionException e) {
+        fail(toLoad, e);
+      }
+    }
+
+    return CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0]))
+        .thenApply(v -> txInfos);
+  }
+
+  /**
+   * Looks up the status of a transaction. As many batches as there are commit status threads
+   * ({@link FluoConfigurationImpl#COMMIT_STATUS_THREADS}) are read at once. Transactions looked up
+   * while that many batches are being read are read together by the next batch, so a burst of
+   * lookups holds no more threads than that, and a batch that waits on a tablet that is not hosted
+   * does not hold up every other lookup.
+   *
+   * @param executor runs the batch reads
+   */
+  public CompletableFuture<TxInfo> getTransactionInfoAsync(PrimaryRowColumn key,
+      Executor executor) {
     TxInfo txInfo = cache.getIfPresent(key);
-    if (txInfo == null) {
-      txInfo = TxInfo.getTransactionInfo(env, key.prow, key.pcol, key.startTs);
+    if (txInfo != null) {
+      hits.mark();
+      return CompletableFuture.completedFuture(txInfo);
+    }
+
+    CompletableFuture<TxInfo> future = new CompletableFuture<>();
+    CompletableFuture<TxInfo> existing = loading.putIfAbsent(key, future);
+    if (existing != null) {
+      sharedLookups.mark();
+      return existing;
+    }
+
+    misses.mark();
+    queued.add(key);
+    scheduleBatch(executor);
+    return future;
+  }
+
+  private void scheduleBatch(Executor executor) {
+    int scheduled = batches.get();
+    while (scheduled < maxBatches) {
+      if (batches.compareAndSet(scheduled, scheduled + 1)) {
+        try {
+          executor.execute(() -> readBatch(executor));
+        } catch (RejectedExecutionException e) {
+          batches.decrementAndGet();
+          fail(pollQueued(), e);
+        }
+        return;
+      }
+      scheduled = batches.get();
+    }
+  }
+
+  private Map<PrimaryRowColumn, CompletableFuture<TxInfo>> pollQueued() {
+    Map<PrimaryRowColumn, CompletableFuture<TxInfo>> toLoad = new HashMap<>();
+    PrimaryRowColumn key;
+    while ((key = queued.poll()) != null) {
+      CompletableFuture<TxInfo> future = loading.get(key);
+      if (future != null) {
+        toLoad.put(key, future);
+      }
+    }
+    return toLoad;
+  }
+
+  private void readBatch(Executor executor) {
+    try {
+      Map<PrimaryRowColumn, CompletableFuture<TxInfo>> toLoad = pollQueued();
+      if (!toLoad.isEmpty()) {
+        load(toLoad);
+      }
+    } finally {
+      batches.decrementAndGet();
+      // lookups queued while every batch was busy
+      if (!queued.isEmpty()) {
+        scheduleBatch(executor);
+      }
+    }
+  }
+
+  private void load(Map<PrimaryRowColumn, CompletableFuture<TxInfo>> toLoad) {
+    Map<PrimaryRowColumn, TxInfo> loaded;
+    try {
+      loaded = reader.apply(toLoad.keySet());
+    } catch (RuntimeException e) {
+      fail(toLoad, e);
+      return;
+    }
+
+    batchSizes.update(toLoad.size());
+
+    for (Entry<PrimaryRowColumn, CompletableFuture<TxInfo>> entry : toLoad.entrySet()) {
+      TxInfo txInfo = loaded.get(entry.getKey());
       if (txInfo.getStatus() == TxStatus.ROLLED_BACK || txInfo.getStatus() == TxStatus.COMMITTED) {
         // only cache for these statuses which are not expected to change, other status can change
         // over time
-        cache.put(key, txInfo);
+        cache.put(entry.getKey(), txInfo);
       }
+      loading.remove(entry.getKey(), entry.getValue());
+      entry.getValue().complete(txInfo);
     }
-    return txInfo;
+  }
+
+  private void fail(Map<PrimaryRowColumn, CompletableFuture<TxInfo>> toLoad, Throwable t) {
+    toLoad.forEach((key, future) -> {
+      loading.remove(key, future);
+      future.completeExceptionally(t);
+    });
   }
 }
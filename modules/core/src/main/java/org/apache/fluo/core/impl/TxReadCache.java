@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+
+/**
+ * Caches the cells a transaction read, including cells found to be absent, so reading them again
+ * does not scan Accumulo. A transaction reads everything as of its start timestamp, so a cached
+ * cell can not change. A transaction does not see its own writes, so writes do not affect what is
+ * cached. Methods are synchronized because async gets read on another thread.
+ */
+class TxReadCache {
+
+  private static final Bytes ABSENT =
+      Bytes.of("special absent value 5d2ae86b8c3e0c5c2e3b1f7d29a54e0b6c0f1a83");
+
+  private final Map<Bytes, Map<Column, Bytes>> cells = new HashMap<>();
+  private final int maxCells;
+  private int numCells = 0;
+
+  TxReadCache(int maxCells) {
+    this.maxCells = maxCells;
+  }
+
+  /**
+   * Puts the cached values of the given columns in the result.
+   *
+   * @return the columns that are not cached
+   */
+  synchronized Set<Column> get(Bytes row, Set<Column> columns, Map<Column, Bytes> result) {
+    Map<Column, Bytes> rowCells = cells.get(row);
+    if (rowCells == null) {
+      return columns;
+    }
+
+    Set<Column> missing = null;
+    for (Column column : columns) {
+      Bytes val = rowCells.get(column);
+      if (val == null) {
+        if (missing == null) {
+          missing = new HashSet<>();
+        }
+        missing.add(column);
+      } else if (val != ABSENT) {
+        result.put(column, val);
+      }
+    }
+
+    return missing == null ? Collections.emptySet() : missing;
+  }
+
+  /**
+   * @return the cached value, a value for which {@link #isAbsent(Bytes)} is true if the cell is
+   *         known to be absent, or null if the cell is not cached
+   */
+  synchronized Bytes get(Bytes row, Column column) {
+    Map<Column, Bytes> rowCells = cells.get(row);
+    if (rowCells == null) {
+      return null;
+    }
+    return rowCells.get(column);
+  }
+
+  static boolean isAbsent(Bytes val) {
+    return val == ABSENT;
+  }
+
+  /**
+   * Caches the values read for a row, columns that were read and have no value are cached as
+   * absent.
+   */
+  synchronized void put(Bytes row, Set<Column> columnsRead, Map<Column, Bytes> values) {
+    // a column without a visibility can match cells with a visibility, which can not be cached as
+    // the requested column
+    if (numCells >= maxCells || !columnsRead.containsAll(values.keySet())) {
+      return;
+    }
+
+    Map<Column, Bytes> rowCells = cells.computeIfAbsent(row, k -> new HashMap<>());
+    for (Column column : columnsRead) {
+      Bytes val = values.get(column);
+      if (rowCells.put(column, val == null ? ABSENT : val) == null) {
+        numCells++;
+      }
+    }
+  }
+
+  synchronized void put(Bytes row, Column column, Bytes value) {
+    if (numCells >= maxCells) {
+      return;
+    }
+
+    Map<Column, Bytes> rowCells = cells.computeIfAbsent(row, k -> new HashMap<>());
+    if (rowCells.put(column, value == null ? ABSENT : value) == null) {
+      numCells++;
+    }
+  }
+}
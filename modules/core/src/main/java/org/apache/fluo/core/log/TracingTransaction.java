@@ -186,6 +186,23 @@ public class TracingTransaction extends AbstractTransactionBase
     return get(tx, rowColumns, "");
   }
 
+  @Override
+  public void prefetch(Collection<RowColumn> rowColumns) {
+    if (log.isTraceEnabled()) {
+      log.trace("txid: {} prefetch({})", txid, toStringEncNonAsciiCRC(rowColumns));
+    }
+    tx.prefetch(rowColumns);
+  }
+
+  @Override
+  public void prefetch(Collection<Bytes> rows, Set<Column> columns) {
+    if (log.isTraceEnabled()) {
+      log.trace("txid: {} prefetch({}, {})", txid, toStringEncNonAsciiCB(rows),
+          toStringEncNonAsciiCC(columns));
+    }
+    tx.prefetch(rows, columns);
+  }
+
   @Override
   public ScannerBuilder scanner() {
     return new TracingScannerBuilder(tx.scanner(), txid);
@@ -36,16 +36,39 @@ public class MetricNames {
   private final String txCollisions;
   private final String txEntriesSet;
   private final String txEntriesRead;
+  private final String txReadCacheHits;
+  private final String txPrefetchHits;
+  private final String txPrefetchWasted;
   private final String txLocksTimedOut;
   private final String txLocksDead;
   private final String txStatusPrefix;
   private final String txCommitting;
 
   private final String notificationsQueued;
+  private final String transactorOldestActiveLag;
+  private final String readMultiplexerBatchSize;
+  private final String txInfoCacheHits;
+  private final String txInfoCacheMisses;
+  private final String txInfoSharedLookups;
+  private final String txInfoBatchSize;
+  private final String commitGroupSize;
+  private final String cwBytesInFlight;
+  private final String cwQueueTime;
+  private final String cwResultTime;
+  private final String cwUnknown;
+  private final String cwUnknownResolveTime;
+  private final String locksSwept;
+  private final String sweptLockAge;
 
   private final String oracleResponseTime;
+  private final String oracleClientWaitTime;
+  private final String oracleClientQueueTime;
   private final String oracleClientStamps;
+  private final String oracleClientReconnectTime;
   private final String oracleServerStamps;
+  private final String oracleServerAllocationTime;
+  private final String oracleServerBlockSize;
+  private final String oracleServerGcLag;
 
   public MetricNames(String metricsReporterId, String appName) {
     Preconditions.checkArgument(!appName.contains("."),
@@ -62,6 +85,9 @@ public class MetricNames {
     txCollisions = classMetric + "tx_collisions";
     txEntriesSet = classMetric + "tx_entries_set";
     txEntriesRead = classMetric + "tx_entries_read";
+    txReadCacheHits = classMetric + "tx_read_cache_hits";
+    txPrefetchHits = classMetric + "tx_prefetch_hits";
+    txPrefetchWasted = classMetric + "tx_prefetch_wasted";
     txLocksTimedOut = classMetric + "tx_locks_timedout";
     txLocksDead = classMetric + "tx_locks_dead";
     txStatusPrefix = classMetric + "tx_status_"; // status appended to metric name
@@ -71,9 +97,29 @@ public class MetricNames {
     final String systemMetric = SYSTEM_PREFIX + "." + appName + "." + metricsReporterId + ".";
     txCommitting = systemMetric + "transactor_committing";
     notificationsQueued = systemMetric + "worker_notifications_queued";
+    transactorOldestActiveLag = systemMetric + "transactor_oldest_active_lag";
+    readMultiplexerBatchSize = systemMetric + "transactor_read_batch_size";
+    txInfoCacheHits = systemMetric + "transactor_txinfo_cache_hits";
+    txInfoCacheMisses = systemMetric + "transactor_txinfo_cache_misses";
+    txInfoSharedLookups = systemMetric + "transactor_txinfo_shared_lookups";
+    txInfoBatchSize = systemMetric + "transactor_txinfo_batch_size";
+    commitGroupSize = systemMetric + "transactor_commit_group_size";
+    cwBytesInFlight = systemMetric + "transactor_cw_bytes_in_flight";
+    cwQueueTime = systemMetric + "transactor_cw_queue_time";
+    cwResultTime = systemMetric + "transactor_cw_result_time";
+    cwUnknown = systemMetric + "transactor_cw_unknown";
+    cwUnknownResolveTime = systemMetric + "transactor_cw_unknown_resolve_time";
+    locksSwept = systemMetric + "worker_locks_swept";
+    sweptLockAge = systemMetric + "worker_swept_lock_age";
     oracleResponseTime = systemMetric + "oracle_response_time";
+    oracleClientWaitTime = systemMetric + "oracle_client_wait_time";
+    oracleClientQueueTime = systemMetric + "oracle_client_queue_time";
     oracleClientStamps = systemMetric + "oracle_client_stamps";
+    oracleClientReconnectTime = systemMetric + "oracle_client_reconnect_time";
     oracleServerStamps = systemMetric + "oracle_server_stamps";
+    oracleServerAllocationTime = systemMetric + "oracle_server_allocation_time";
+    oracleServerBlockSize = systemMetric + "oracle_server_block_size";
+    oracleServerGcLag = systemMetric + "oracle_server_gc_lag";
   }
 
   public String getTxLockWaitTime(String className) {
@@ -100,6 +146,18 @@ public class MetricNames {
     return txEntriesRead + "." + className;
   }
 
+  public String getTxReadCacheHits(String className) {
+    return txReadCacheHits + "." + className;
+  }
+
+  public String getTxPrefetchHits(String className) {
+    return txPrefetchHits + "." + className;
+  }
+
+  public String getTxPrefetchWasted(String className) {
+    return txPrefetchWasted + "." + className;
+  }
+
   public String getTxLocksTimedout(String className) {
     return txLocksTimedOut + "." + className;
   }
@@ -116,18 +174,98 @@ public class MetricNames {
     return notificationsQueued;
   }
 
+  public String getTransactorOldestActiveLag() {
+    return transactorOldestActiveLag;
+  }
+
+  public String getReadMultiplexerBatchSize() {
+    return readMultiplexerBatchSize;
+  }
+
+  public String getTxInfoCacheHits() {
+    return txInfoCacheHits;
+  }
+
+  public String getTxInfoCacheMisses() {
+    return txInfoCacheMisses;
+  }
+
+  public String getTxInfoSharedLookups() {
+    return txInfoSharedLookups;
+  }
+
+  public String getTxInfoBatchSize() {
+    return txInfoBatchSize;
+  }
+
+  public String getCommitGroupSize() {
+    return commitGroupSize;
+  }
+
+  public String getCwBytesInFlight() {
+    return cwBytesInFlight;
+  }
+
+  public String getCwQueueTime() {
+    return cwQueueTime;
+  }
+
+  public String getCwResultTime() {
+    return cwResultTime;
+  }
+
+  public String getCwUnknown() {
+    return cwUnknown;
+  }
+
+  public String getCwUnknownResolveTime() {
+    return cwUnknownResolveTime;
+  }
+
+  public String getLocksSwept() {
+    return locksSwept;
+  }
+
+  public String getSweptLockAge() {
+    return sweptLockAge;
+  }
+
   public String getOracleResponseTime() {
     return oracleResponseTime;
   }
 
+  public String getOracleClientWaitTime() {
+    return oracleClientWaitTime;
+  }
+
+  public String getOracleClientQueueTime() {
+    return oracleClientQueueTime;
+  }
+
   public String getOracleClientStamps() {
     return oracleClientStamps;
   }
 
+  public String getOracleClientReconnectTime() {
+    return oracleClientReconnectTime;
+  }
+
   public String getOracleServerStamps() {
     return oracleServerStamps;
   }
 
+  public String getOracleServerAllocationTime() {
+    return oracleServerAllocationTime;
+  }
+
+  public String getOracleServerBlockSize() {
+    return oracleServerBlockSize;
+  }
+
+  public String getOracleServerGcLag() {
+    return oracleServerGcLag;
+  }
+
   public String getCommitsProcessing() {
     return txCommitting;
   }
@@ -17,17 +17,16 @@ package org.apache.fluo.core.oracle;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
 
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Timer;
 import com.codahale.metrics.Timer.Context;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.NodeCache;
 import org.apache.curator.framework.recipes.cache.PathChildrenCache;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
@@ -38,6 +37,7 @@ import org.apache.fluo.accumulo.util.ZookeeperPath;
 import org.apache.fluo.api.exceptions.FluoException;
 import org.apache.fluo.core.impl.CuratorCnxnListener;
 import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
 import org.apache.fluo.core.metrics.MetricsUtil;
 import org.apache.fluo.core.thrift.OracleService;
 import org.apache.fluo.core.thrift.Stamps;
@@ -58,6 +58,18 @@ import org.slf4j.LoggerFactory;
 /**
  * Connects to an oracle to retrieve timestamps. If multiple oracle servers are run, it will
  * automatically fail over to different leaders.
+ *
+ * <p>
+ * Requests are batched. By default one batch is sent to the oracle at a time. When
+ * {@value FluoConfigurationImpl#ORACLE_CLIENT_MAX_INFLIGHT_PROP} is greater than one, that many
+ * connections are opened and each can have a batch outstanding, so oracle round trip time does not
+ * cap the number of timestamps a busy client can obtain. Timestamps within a batch are assigned in
+ * the order requests were made, and a request made after another request has returned always gets
+ * a larger timestamp.
+ *
+ * <p>
+ * Clients wake up as soon as oracle leadership changes or a new leader announces it is ready, so a
+ * failover does not leave clients sleeping after the new leader can serve them.
  */
 public class OracleClient implements AutoCloseable {
 
@@ -65,25 +77,26 @@ public class OracleClient implements AutoCloseable {
   private static final int MAX_ORACLE_WAIT_PERIOD = 60;
 
   private final Timer responseTimer;
+  private final Timer waitTimer;
+  private final Timer queueTimer;
+  private final Timer reconnectTimer;
   private final Histogram stampsHistogram;
 
   private Participant currentLeader;
 
-  private static final class TimeRequest {
-    CountDownLatch cdl = new CountDownLatch(1);
-    AtomicReference<Stamp> stampRef = new AtomicReference<>();
-    CompletableFuture<Stamp> cf = null;
-  }
-
   private class TimestampRetriever extends LeaderSelectorListenerAdapter
       implements Runnable, PathChildrenCacheListener {
 
     private LeaderLatch leaderLatch;
     private CuratorFramework curatorFramework;
-    private OracleService.Client client;
     private PathChildrenCache pathChildrenCache;
+    private NodeCache leaderCache;
 
-    private TTransport transport;
+    private final List<Connection> connections = new ArrayList<>();
+
+    // counts leadership changes, threads waiting for a new leader wait on this lock
+    private final Object leaderChangeLock = new Object();
+    private long leaderChanges = 0;
 
     @Override
     public void run() {
@@ -112,9 +125,41 @@ public class OracleClient implements AutoCloseable {
           DeprecationUtil.addListener(pathChildrenCache.getListenable(), this);
           pathChildrenCache.start();
 
-          connect();
+          leaderCache = new NodeCache(curatorFramework, ZookeeperPath.ORACLE_LEADER);
+          DeprecationUtil.addListener(leaderCache.getListenable(), this::signalLeaderChange);
+          leaderCache.start();
+
+          for (int i = 0; i < maxInFlight; i++) {
+            connections.add(new Connection());
+          }
+
+          for (Connection connection : connections) {
+            connection.connect();
+          }
+
+          // this thread services the first connection, the rest get their own thread
+          for (int i = 1; i < connections.size(); i++) {
+            Connection connection = connections.get(i);
+            Thread t = new Thread(() -> run(connection));
+            t.setName(thread.getName() + "-" + i);
+            t.setDaemon(true);
+            t.start();
+            extraThreads.add(t);
+          }
+        }
+        doWork(connections.get(0));
+      } catch (Exception e) {
+        if (!closed.get()) {
+          log.error("Exception occurred in run() method", e);
+        } else {
+          log.debug("Exception occurred in run() method", e);
         }
-        doWork();
+      }
+    }
+
+    private void run(Connection connection) {
+      try {
+        doWork(connection);
       } catch (Exception e) {
         if (!closed.get()) {
           log.error("Exception occurred in run() method", e);
@@ -132,6 +177,8 @@ public class OracleClient implements AutoCloseable {
     public void childEvent(CuratorFramework curatorFramework, PathChildrenCacheEvent event)
         throws Exception {
 
+      signalLeaderChange();
+
       if (event.getType().equals(PathChildrenCacheEvent.Type.CHILD_REMOVED)
           || event.getType().equals(PathChildrenCacheEvent.Type.CHILD_ADDED)
           || event.getType().equals(PathChildrenCacheEvent.Type.CHILD_UPDATED)) {
@@ -147,35 +194,38 @@ public class OracleClient implements AutoCloseable {
       }
     }
 
-    private void doWork() {
+    private void doWork(Connection connection) {
 
-      ArrayList<TimeRequest> request = new ArrayList<>();
+      ArrayList<StampRequestQueue.Request> request = new ArrayList<>();
 
       while (true) {
 
         try {
           request.clear();
-          TimeRequest trh = null;
-          while (trh == null) {
+          while (request.isEmpty()) {
             if (closed.get()) {
               return;
             }
-            trh = queue.poll(1, TimeUnit.SECONDS);
+            queue.drainTo(request, 1, TimeUnit.SECONDS);
+          }
+
+          long sendTime = System.nanoTime();
+          for (int i = 0; i < request.size(); i++) {
+            queueTimer.update(sendTime - request.get(i).getQueuedTime(), TimeUnit.NANOSECONDS);
           }
-          request.add(trh);
-          queue.drainTo(request);
 
           long txStampsStart;
           long gcStamp;
 
           while (true) {
 
+            long changes = getLeaderChanges();
             try {
               String currentLeaderId;
               OracleService.Client localClient;
               synchronized (this) {
                 currentLeaderId = getOracle();
-                localClient = client;
+                localClient = connection.client;
               }
 
               final Context timerContext = responseTimer.time();
@@ -186,7 +236,7 @@ public class OracleClient implements AutoCloseable {
 
               String leaderId = getOracle();
               if (leaderId != null && !leaderId.equals(currentLeaderId)) {
-                reconnect();
+                connection.reconnect();
                 continue;
               }
 
@@ -197,21 +247,19 @@ public class OracleClient implements AutoCloseable {
 
             } catch (TTransportException tte) {
               log.info("Oracle connection lost. Retrying...");
-              reconnect();
+              connection.reconnect();
             } catch (TException e) {
               log.error("TException occurred in doWork() method", e);
+              // the leader may not be ready yet, retry once it is or after a short wait
+              awaitLeaderChange(changes);
             }
           }
 
+          long now = System.nanoTime();
           for (int i = 0; i < request.size(); i++) {
-            TimeRequest tr = request.get(i);
-            Stamp stampRes = new Stamp(txStampsStart + i, gcStamp);
-            tr.stampRef.set(stampRes);
-            if (tr.cf == null) {
-              tr.cdl.countDown();
-            } else {
-              tr.cf.complete(stampRes);
-            }
+            StampRequestQueue.Request tr = request.get(i);
+            waitTimer.update(now - tr.getQueuedTime(), TimeUnit.NANOSECONDS);
+            tr.complete(txStampsStart + i, gcStamp);
           }
         } catch (InterruptedException e) {
           if (!closed.get()) {
@@ -225,49 +273,73 @@ public class OracleClient implements AutoCloseable {
       }
     }
 
-    private synchronized void connect()
-        throws IOException, KeeperException, InterruptedException, TTransportException {
+    /**
+     * A connection to the leader oracle. Each connection has at most one batch of requests in
+     * flight.
+     */
+    private class Connection {
+      private OracleService.Client client;
+      private TTransport transport;
 
-      getLeader();
-      while (true) {
-        log.debug("Connecting to oracle at " + currentLeader.getId());
-        String[] hostAndPort = currentLeader.getId().split(":");
+      private void connect()
+          throws IOException, KeeperException, InterruptedException, TTransportException {
+        synchronized (TimestampRetriever.this) {
+          getLeader();
+          while (true) {
+            long changes = getLeaderChanges();
+            log.debug("Connecting to oracle at " + currentLeader.getId());
+            String[] hostAndPort = currentLeader.getId().split(":");
 
-        String host = hostAndPort[0];
-        int port = Integer.parseInt(hostAndPort[1]);
+            String host = hostAndPort[0];
+            int port = Integer.parseInt(hostAndPort[1]);
 
-        try {
-          transport = new TFastFramedTransport(new TSocket(host, port));
-          transport.open();
-          TProtocol protocol = new TCompactProtocol(transport);
-          client = new OracleService.Client(protocol);
-          log.info("Connected to oracle at " + getOracle());
-          break;
-        } catch (TTransportException e) {
-          sleepRandom();
-          getLeader();
-        } catch (Exception e) {
-          throw new RuntimeException(e);
+            try {
+              transport = new TFastFramedTransport(new TSocket(host, port));
+              transport.open();
+              TProtocol protocol = new TCompactProtocol(transport);
+              client = new OracleService.Client(protocol);
+              log.info("Connected to oracle at " + getOracle());
+              break;
+            } catch (TTransportException e) {
+              awaitLeaderChange(changes);
+              getLeader();
+            } catch (Exception e) {
+              throw new RuntimeException(e);
+            }
+          }
         }
       }
-    }
 
-    /**
-     * Atomically closes current connection and connects to the current leader
-     */
-    private synchronized void reconnect()
-        throws InterruptedException, TTransportException, KeeperException, IOException {
-      if (transport.isOpen()) {
-        transport.close();
+      /**
+       * Atomically closes current connection and connects to the current leader
+       */
+      private void reconnect()
+          throws InterruptedException, TTransportException, KeeperException, IOException {
+        synchronized (TimestampRetriever.this) {
+          // times failed reconnects too
+          try (Context reconnectContext = reconnectTimer.time()) {
+            close();
+            connect();
+          }
+        }
+      }
+
+      private void close() {
+        if (transport != null && transport.isOpen()) {
+          transport.close();
+        }
       }
-      connect();
     }
 
     private synchronized void close() {
-      if (transport != null && transport.isOpen()) {
-        transport.close();
+      for (Connection connection : connections) {
+        connection.close();
       }
+      connections.clear();
       try {
+        if (leaderCache != null) {
+          leaderCache.close();
+        }
         if (pathChildrenCache != null) {
           pathChildrenCache.close();
         }
@@ -279,8 +351,8 @@ public class OracleClient implements AutoCloseable {
         curatorFramework.close();
       }
 
-      transport = null;
       pathChildrenCache = null;
+      leaderCache = null;
       leaderLatch = null;
       curatorFramework = null;
     }
@@ -306,18 +378,50 @@ public class OracleClient implements AutoCloseable {
      * Attempt to retrieve a leader until one is found
      */
     private void getLeader() {
+      long changes = getLeaderChanges();
       boolean found = getLeaderAttempt();
       while (!found) {
-        sleepRandom();
+        awaitLeaderChange(changes);
+        changes = getLeaderChanges();
         found = getLeaderAttempt();
       }
     }
 
+    private void signalLeaderChange() {
+      synchronized (leaderChangeLock) {
+        leaderChanges++;
+        leaderChangeLock.notifyAll();
+      }
+    }
+
+    private long getLeaderChanges() {
+      synchronized (leaderChangeLock) {
+        return leaderChanges;
+      }
+    }
+
     /**
-     * Sleep a random amount of time from 100ms to 1sec
+     * Waits a random amount of time from 100ms to 1sec, returning early if leadership changed since
+     * the given count of leadership changes was read.
      */
-    private void sleepRandom() {
-      UtilWaitThread.sleep(100 + (long) (1000 * Math.random()), closed);
+    private void awaitLeaderChange(long changes) {
+      long deadline =
+          System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100 + (long) (1000 * Math.random()));
+      synchronized (leaderChangeLock) {
+        long remaining = deadline - System.nanoTime();
+        while (leaderChanges == changes && remaining > 0 && !closed.get()) {
+          try {
+            TimeUnit.NANOSECONDS.timedWait(leaderChangeLock, remaining);
+          } catch (InterruptedException e) {
+            if (!closed.get()) {
+              log.error(e.getMessage(), e);
+            }
+            Thread.currentThread().interrupt();
+            return;
+          }
+          remaining = deadline - System.nanoTime();
+        }
+      }
     }
 
     private boolean isLeader(Participant participant) {
@@ -332,19 +436,34 @@ public class OracleClient implements AutoCloseable {
   }
 
   private final Environment env;
-  private final ArrayBlockingQueue<TimeRequest> queue = new ArrayBlockingQueue<>(10000);
+  private final StampRequestQueue queue = new StampRequestQueue();
+  private final int retryTimeout;
   private final Thread thread;
+  private final List<Thread> extraThreads = new ArrayList<>();
+  private final int maxInFlight;
   private AtomicBoolean closed = new AtomicBoolean(false);
   private final TimestampRetriever timestampRetriever;
 
   public OracleClient(Environment env) {
     this.env = env;
+    this.maxInFlight = FluoConfigurationImpl.getOracleClientMaxInFlight(env.getConfiguration());
+    this.retryTimeout = env.getConfiguration().getConnectionRetryTimeout();
     responseTimer = MetricsUtil.getTimer(env.getConfiguration(),
         env.getSharedResources().getMetricRegistry(), env.getMetricNames().getOracleResponseTime());
+    waitTimer = MetricsUtil.getTimer(env.getConfiguration(),
+        env.getSharedResources().getMetricRegistry(),
+        env.getMetricNames().getOracleClientWaitTime());
+    queueTimer = MetricsUtil.getTimer(env.getConfiguration(),
+        env.getSharedResources().getMetricRegistry(),
+        env.getMetricNames().getOracleClientQueueTime());
+    reconnectTimer = MetricsUtil.getTimer(env.getConfiguration(),
+        env.getSharedResources().getMetricRegistry(),
+        env.getMetricNames().getOracleClientReconnectTime());
     stampsHistogram = MetricsUtil.getHistogram(env.getConfiguration(),
         env.getSharedResources().getMetricRegistry(), env.getMetricNames().getOracleClientStamps());
     timestampRetriever = new TimestampRetriever();
     thread = new Thread(timestampRetriever);
+    thread.setName("Oracle Client Retriever");
     thread.setDaemon(true);
     thread.start();
   }
@@ -355,14 +474,14 @@ public class OracleClient implements AutoCloseable {
   public Stamp getStamp() {
     checkClosed();
 
-    TimeRequest tr = new TimeRequest();
+    StampRequestQueue.Request tr = queue.add();
+    boolean answered = false;
     try {
-      queue.put(tr);
-      int timeout = env.getConfiguration().getConnectionRetryTimeout();
+      int timeout = retryTimeout;
       if (timeout < 0) {
         long waitPeriod = 1;
         long waitTotal = 0;
-        while (!tr.cdl.await(waitPeriod, TimeUnit.SECONDS)) {
+        while (!tr.await(waitPeriod, TimeUnit.SECONDS)) {
           checkClosed();
           waitTotal += waitPeriod;
           if (waitPeriod < MAX_ORACLE_WAIT_PERIOD) {
@@ -372,27 +491,27 @@ public class OracleClient implements AutoCloseable {
               "Waiting for timestamp from Oracle. Is it running? Client has waited a total of {}s and will retry in {}s",
               waitTotal, waitPeriod);
         }
-      } else if (!tr.cdl.await(timeout, TimeUnit.MILLISECONDS)) {
+      } else if (!tr.await(timeout, TimeUnit.MILLISECONDS)) {
         throw new FluoException("Timed out (after " + timeout
             + "ms) trying to retrieve timestamp from Oracle.  Is the Oracle running?");
       }
+      answered = true;
     } catch (InterruptedException e) {
       throw new FluoException("Interrupted while retrieving timestamp from Oracle", e);
+    } finally {
+      if (!answered) {
+        // the request may still be answered, so it can not be reused for the next request
+        queue.abandon(tr);
+      }
     }
-    return tr.stampRef.get();
+    return tr.getStamp();
   }
 
   public CompletableFuture<Stamp> getStampAsync() {
     checkClosed();
 
-    TimeRequest tr = new TimeRequest();
     CompletableFuture<Stamp> cf = new CompletableFuture<>();
-    tr.cf = cf;
-    try {
-      queue.put(tr);
-    } catch (InterruptedException e) {
-      throw new RuntimeException(e);
-    }
+    queue.addAsync(cf);
     return cf;
   }
 
@@ -417,6 +536,11 @@ public class OracleClient implements AutoCloseable {
       try {
         thread.interrupt();
         thread.join();
+        // the main thread starts the extra threads, so this list will not change after it exits
+        for (Thread t : extraThreads) {
+          t.interrupt();
+          t.join();
+        }
         timestampRetriever.close();
       } catch (InterruptedException e) {
         throw new FluoException("Interrupted during close", e);
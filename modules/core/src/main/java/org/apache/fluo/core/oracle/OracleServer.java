@@ -15,27 +15,43 @@
 
 package org.apache.fluo.core.oracle;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer.Context;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.TreeMultiset;
 import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.imps.CuratorFrameworkState;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.NodeCache;
 import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache.StartMode;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
 import org.apache.curator.framework.recipes.leader.LeaderLatch;
 import org.apache.curator.framework.recipes.leader.LeaderLatchListener;
 import org.apache.curator.framework.recipes.leader.Participant;
+import org.apache.curator.utils.ZKPaths;
 import org.apache.fluo.accumulo.util.LongUtil;
 import org.apache.fluo.accumulo.util.ZookeeperPath;
 import org.apache.fluo.core.impl.CuratorCnxnListener;
@@ -56,11 +72,14 @@ import org.apache.thrift.TProcessor;
 import org.apache.thrift.protocol.TCompactProtocol;
 import org.apache.thrift.protocol.TProtocol;
 import org.apache.thrift.server.THsHaServer;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.server.TThreadedSelectorServer;
 import org.apache.thrift.transport.TNonblockingServerSocket;
 import org.apache.thrift.transport.TSocket;
 import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
 import org.apache.thrift.transport.layered.TFastFramedTransport;
+import org.apache.zookeeper.KeeperException.BadVersionException;
 import org.apache.zookeeper.KeeperException.NoNodeException;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
@@ -75,28 +94,48 @@ import org.slf4j.LoggerFactory;
  * If multiple oracle servers are run, they will choose a leader and clients will automatically
  * connect to that leader. If the leader goes down, the client will automatically fail over to the
  * next leader. In the case where an oracle fails over, the next oracle will begin a new block of
- * timestamps.
+ * timestamps. Followers are kept warm by caching the leader's max timestamp and the transactor
+ * timestamps used for GC, and a new leader announces itself in Zookeeper once it is ready so that
+ * clients reconnect without waiting.
+ *
+ * <p>
+ * Blocks of timestamps are reserved in Zookeeper ahead of demand by a background thread, and the
+ * size of each block adapts to recent demand. See {@link TimestampBlockSizer}.
  */
 public class OracleServer implements OracleService.Iface, PathChildrenCacheListener {
 
   private static final Logger log = LoggerFactory.getLogger(OracleServer.class);
 
   private final Histogram stampsHistogram;
+  private final com.codahale.metrics.Timer allocationTimer;
+  private final Histogram blockSizeHistogram;
 
   public static final long ORACLE_MAX_READ_BUFFER_BYTES = 2048;
 
+  // how often a new leader checks if the previous leader has stopped serving
+  private static final long PREVIOUS_LEADER_POLL_MS = 20;
+
   private final Environment env;
 
   private Thread serverThread;
-  private THsHaServer server;
+  private TServer server;
   private volatile long currentTs = 0;
+  // only written while holding allocationLock
   private volatile long maxTs = 0;
+  // when fewer than this many timestamps remain in the current block, the next is reserved
+  private volatile long lowWaterMark = 0;
   private volatile boolean started = false;
   private volatile int port = 0;
 
   private LeaderLatch leaderLatch;
   private ExecutorService execService;
+  private ExecutorService allocationService;
+  private final AtomicBoolean allocationPending = new AtomicBoolean(false);
+  private final Object allocationLock = new Object();
+  private TimestampBlockSizer blockSizer;
   private PathChildrenCache pathChildrenCache;
+  // the leader's max timestamp as seen while following, used to quickly reserve the first block
+  private NodeCache maxTsCache;
   private CuratorFramework curatorFramework;
   private CuratorCnxnListener cnxnListener;
   private Participant currentLeader;
@@ -108,15 +147,87 @@ public class OracleServer implements OracleService.Iface, PathChildrenCacheListe
 
   private GcTimestampTracker gcTsTracker;
 
-  private class GcTimestampTracker {
+  /**
+   * A request for timestamps. Requests that arrive while another request holds the lock are served
+   * together in one allocation step by the next thread to get the lock. All fields other than num
+   * are guarded by the oracle's lock.
+   */
+  private static class PendingRequest {
+    final int num;
+    long start;
+    Exception error;
+    boolean done = false;
+
+    PendingRequest(int num) {
+      this.num = num;
+    }
+  }
+
+  private final ConcurrentLinkedQueue<PendingRequest> pendingRequests =
+      new ConcurrentLinkedQueue<>();
+
+  /**
+   * Tracks the oldest timestamp of all transactors using a cache of their Zookeeper nodes, so the
+   * GC timestamp can be advanced frequently without reading every transactor's node each time.
+   *
+   * <p>
+   * A transactor writes its node when its oldest timestamp changes, at most once per publish
+   * period, so the GC timestamp lags the oldest active transaction by about that period plus the
+   * period checked here.
+   */
+  private class GcTimestampTracker implements PathChildrenCacheListener {
+
+    private static final long GC_UPDATE_PERIOD_MS = 1000;
+
     private volatile long advertisedGcTimetamp;
     private CuratorFramework curator;
+    private PathChildrenCache transactorCache;
     private Timer timer;
 
+    // oldest timestamp of each transactor node, the multiset acts as a min heap
+    private final Map<String, Long> transactorTimestamps = new HashMap<>();
+    private final TreeMultiset<Long> sortedTimestamps = TreeMultiset.create();
+    // set when the cached timestamps change, so the timer can skip when nothing changed
+    private boolean changed = true;
+
     GcTimestampTracker() throws Exception {
       this.curator = env.getSharedResources().getCurator();
     }
 
+    private synchronized void putTransactor(ChildData childData) {
+      String child = ZKPaths.getNodeFromPath(childData.getPath());
+      Long ts = LongUtil.fromByteArray(childData.getData());
+      Long prev = transactorTimestamps.put(child, ts);
+      if (prev != null) {
+        sortedTimestamps.remove(prev);
+      }
+      sortedTimestamps.add(ts);
+      changed = true;
+    }
+
+    private synchronized void removeTransactor(ChildData childData) {
+      Long prev = transactorTimestamps.remove(ZKPaths.getNodeFromPath(childData.getPath()));
+      if (prev != null) {
+        sortedTimestamps.remove(prev);
+        changed = true;
+      }
+    }
+
+    @Override
+    public void childEvent(CuratorFramework client, PathChildrenCacheEvent event) {
+      switch (event.getType()) {
+        case CHILD_ADDED:
+        case CHILD_UPDATED:
+          putTransactor(event.getData());
+          break;
+        case CHILD_REMOVED:
+          removeTransactor(event.getData());
+          break;
+        default:
+          break;
+      }
+    }
+
     private void updateAdvertisedGcTimestamp(long newTs) throws Exception {
       if (newTs > advertisedGcTimetamp && isLeader) {
         // set volatile var before setting in ZK in case Oracle dies... this ensures that client
@@ -128,6 +239,16 @@ public class OracleServer implements OracleService.Iface, PathChildrenCacheListe
     }
 
     private void updateGcTimestamp() throws Exception {
+      synchronized (this) {
+        if (!changed && !transactorTimestamps.isEmpty()) {
+          return;
+        }
+      }
+
+      // Read before listing children. Any transactor node created after the listing is created
+      // before that transactor gets the timestamp it uses, so that timestamp will be larger.
+      long ts = currentTs;
+
       List<String> children;
       try {
         children = curator.getChildren().forPath(ZookeeperPath.TRANSACTOR_TIMESTAMPS);
@@ -135,28 +256,47 @@ public class OracleServer implements OracleService.Iface, PathChildrenCacheListe
         children = Collections.emptyList();
       }
 
-      long oldestTs = Long.MAX_VALUE;
-      boolean nodeFound = false;
+      long oldestTs;
 
-      for (String child : children) {
-        Long ts = LongUtil.fromByteArray(
-            curator.getData().forPath(ZookeeperPath.TRANSACTOR_TIMESTAMPS + "/" + child));
-        nodeFound = true;
-        if (ts < oldestTs) {
-          oldestTs = ts;
+      synchronized (this) {
+        for (String child : children) {
+          if (!transactorTimestamps.containsKey(child)) {
+            // The cache has not seen this transactor yet. Advancing past it could garbage collect
+            // data it is reading, so wait for the cache to catch up.
+            return;
+          }
         }
-      }
 
-      if (nodeFound) {
-        updateAdvertisedGcTimestamp(oldestTs);
-      } else {
-        updateAdvertisedGcTimestamp(currentTs);
+        oldestTs = sortedTimestamps.isEmpty() ? ts
+            : Math.min(ts, sortedTimestamps.firstEntry().getElement());
+        changed = false;
       }
+
+      updateAdvertisedGcTimestamp(oldestTs);
     }
 
+    /**
+     * Starts caching transactor timestamps. This is done by every oracle, so a follower is ready to
+     * advance the GC timestamp as soon as it becomes leader.
+     */
     void start() throws Exception {
+      transactorCache = new PathChildrenCache(curator, ZookeeperPath.TRANSACTOR_TIMESTAMPS, true);
+      DeprecationUtil.addListener(transactorCache.getListenable(), this);
+      transactorCache.start(StartMode.BUILD_INITIAL_CACHE);
+      // events are not sent for the initial data and events may arrive while this runs, applying
+      // the same data twice is harmless
+      for (ChildData childData : transactorCache.getCurrentData()) {
+        putTransactor(childData);
+      }
+    }
+
+    /**
+     * Starts periodically advancing the GC timestamp, called once this oracle is leader.
+     */
+    void startAdvertising() throws Exception {
       advertisedGcTimetamp =
           LongUtil.fromByteArray(curator.getData().forPath(ZookeeperPath.ORACLE_GC_TIMESTAMP));
+
       TimerTask tt = new TimerTask() {
         @Override
         public void run() {
@@ -175,9 +315,9 @@ public class OracleServer implements OracleService.Iface, PathChildrenCacheListe
       };
 
       timer = new Timer("Oracle gc update timer", true);
-      long updatePeriod =
-          env.getConfiguration().getLong(FluoConfigurationImpl.ZK_UPDATE_PERIOD_PROP,
-              FluoConfigurationImpl.ZK_UPDATE_PERIOD_MS_DEFAULT);
+      long updatePeriod = Math.min(GC_UPDATE_PERIOD_MS,
+          env.getConfiguration().getLong(FluoConfigurationImpl.ZK_PUBLISH_PERIOD_PROP,
+              FluoConfigurationImpl.ZK_PUBLISH_PERIOD_MS_DEFAULT));
       long nextPeriod = 5 * 60 * 1000L;
       timer.schedule(tt, updatePeriod, updatePeriod);
       timer.schedule(logTask, 0L, nextPeriod);
@@ -188,6 +328,16 @@ public class OracleServer implements OracleService.Iface, PathChildrenCacheListe
         timer.cancel();
         timer = null;
       }
+
+      if (transactorCache != null) {
+        try {
+          DeprecationUtil.removeListener(transactorCache.getListenable(), this);
+          transactorCache.close();
+        } catch (IOException e) {
+          log.warn("Failed to close transactor timestamp cache", e);
+        }
+        transactorCache = null;
+      }
     }
   }
 
@@ -195,28 +345,75 @@ public class OracleServer implements OracleService.Iface, PathChildrenCacheListe
     this.env = env;
     stampsHistogram = MetricsUtil.getHistogram(env.getConfiguration(),
         env.getSharedResources().getMetricRegistry(), env.getMetricNames().getOracleServerStamps());
+    allocationTimer = MetricsUtil.getTimer(env.getConfiguration(),
+        env.getSharedResources().getMetricRegistry(),
+        env.getMetricNames().getOracleServerAllocationTime());
+    blockSizeHistogram = MetricsUtil.getHistogram(env.getConfiguration(),
+        env.getSharedResources().getMetricRegistry(),
+        env.getMetricNames().getOracleServerBlockSize());
     this.cnxnListener = new CuratorCnxnListener();
     this.maxTsPath = ZookeeperPath.ORACLE_MAX_TIMESTAMP;
     this.oraclePath = ZookeeperPath.ORACLE_SERVER;
   }
 
-  private void allocateTimestamp() throws Exception {
-    Stat stat = new Stat();
-    byte[] d = curatorFramework.getData().storingStatIn(stat).forPath(maxTsPath);
+  /**
+   * Reserves a new block of timestamps in Zookeeper, unless another thread already reserved past
+   * the given timestamp while this thread waited.
+   */
+  private void allocateTimestamp(long required) throws Exception {
+    synchronized (allocationLock) {
+      if (maxTs > required) {
+        return;
+      }
 
-    // TODO check that d is expected
-    // TODO check that still server when setting
-    // TODO make num allocated variable... when a server first starts allocate a small amount... the
-    // longer it runs and the busier it is, allocate bigger blocks
+      long blockSize;
+      Context allocationContext = allocationTimer.time();
+      try {
+        Stat stat = new Stat();
+        byte[] d = curatorFramework.getData().storingStatIn(stat).forPath(maxTsPath);
 
-    long newMax = Long.parseLong(new String(d)) + 1000;
+        // TODO check that d is expected
+        // TODO check that still server when setting
 
-    curatorFramework.setData().withVersion(stat.getVersion()).forPath(maxTsPath,
-        LongUtil.toByteArray(newMax));
-    maxTs = newMax;
+        blockSize = blockSizer.nextBlockSize(currentTs, System.nanoTime());
+        long newMax = Long.parseLong(new String(d)) + blockSize;
 
-    if (!isLeader) {
-      throw new IllegalStateException();
+        curatorFramework.setData().withVersion(stat.getVersion()).forPath(maxTsPath,
+            LongUtil.toByteArray(newMax));
+        maxTs = newMax;
+        lowWaterMark = blockSize / 2;
+      } finally {
+        allocationContext.close();
+      }
+      blockSizeHistogram.update(blockSize);
+    }
+  }
+
+  /**
+   * Reserves the next block in the background when the current block is running low, so that
+   * requests for timestamps do not wait on Zookeeper.
+   */
+  private void maybeAllocateAhead() {
+    if (maxTs - currentTs >= lowWaterMark || !allocationPending.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      allocationService.execute(() -> {
+        try {
+          if (isLeader && maxTs - currentTs < lowWaterMark) {
+            allocateTimestamp(currentTs + lowWaterMark);
+          }
+        } catch (Exception e) {
+          // requests will allocate synchronously if the block runs out
+          log.warn("Failed to allocate timestamps ahead of demand", e);
+        } finally {
+          allocationPending.set(false);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // oracle is stopping
+      allocationPending.set(false);
     }
   }
 
@@ -226,28 +423,80 @@ public class OracleServer implements OracleService.Iface, PathChildrenCacheListe
 
     // do this outside of sync
     stampsHistogram.update(num);
+    maybeAllocateAhead();
 
     return new Stamps(start, gcTsTracker.advertisedGcTimetamp);
   }
 
-  private synchronized long getTimestampsImpl(String id, int num) throws TException {
-    if (!started) {
-      throw new IllegalStateException("Received timestamp request but Oracle has not started");
-    }
-
+  private long getTimestampsImpl(String id, int num) throws TException {
     if (!id.equals(env.getFluoApplicationID())) {
       throw new IllegalArgumentException("Received timestamp request with a Fluo application ID ["
           + id + "] that does not match the application ID [" + env.getFluoApplicationID()
           + "] of the Oracle");
     }
 
+    PendingRequest request = new PendingRequest(num);
+    pendingRequests.add(request);
+
+    synchronized (this) {
+      if (!request.done) {
+        // serve this request and any that arrived while waiting for the lock in one step
+        serveRequests();
+      }
+    }
+
+    if (request.error instanceof TException) {
+      throw (TException) request.error;
+    } else if (request.error != null) {
+      throw (RuntimeException) request.error;
+    }
+
+    return request.start;
+  }
+
+  private synchronized void serveRequests() {
+    List<PendingRequest> batch = new ArrayList<>();
+    long total = 0;
+    PendingRequest pending;
+    while ((pending = pendingRequests.poll()) != null) {
+      batch.add(pending);
+      total += pending.num;
+    }
+
+    long start = 0;
+    Exception error = null;
+    try {
+      start = allocateStamps(total);
+    } catch (TException | RuntimeException e) {
+      error = e;
+    }
+
+    for (PendingRequest request : batch) {
+      if (error == null) {
+        request.start = start;
+        start += request.num;
+      } else {
+        request.error = error;
+      }
+      request.done = true;
+    }
+  }
+
+  private synchronized long allocateStamps(long num) throws TException {
+    if (!started) {
+      throw new IllegalStateException("Received timestamp request but Oracle has not started");
+    }
+
     if (!isLeader) {
       throw new IllegalStateException("Received timestamp request but Oracle is not leader");
     }
 
     try {
       while (num + currentTs >= maxTs) {
-        allocateTimestamp();
+        allocateTimestamp(num + currentTs);
+        if (!isLeader) {
+          throw new IllegalStateException();
+        }
       }
 
       long tmp = currentTs;
@@ -293,13 +542,30 @@ public class OracleServer implements OracleService.Iface, PathChildrenCacheListe
 
     TNonblockingServerSocket socket = new TNonblockingServerSocket(addr);
 
-    THsHaServer.Args serverArgs = new THsHaServer.Args(socket);
     TProcessor processor = new OracleService.Processor<OracleService.Iface>(this);
-    serverArgs.processor(processor);
-    serverArgs.maxReadBufferBytes = ORACLE_MAX_READ_BUFFER_BYTES;
-    serverArgs.inputProtocolFactory(new TCompactProtocol.Factory());
-    serverArgs.outputProtocolFactory(new TCompactProtocol.Factory());
-    server = new THsHaServer(serverArgs);
+
+    String serverType = FluoConfigurationImpl.getOracleServerType(env.getConfiguration());
+    if (serverType.equals(FluoConfigurationImpl.ORACLE_SERVER_TYPE_SELECTOR)) {
+      TThreadedSelectorServer.Args serverArgs = new TThreadedSelectorServer.Args(socket);
+      serverArgs.processor(processor);
+      serverArgs.maxReadBufferBytes = ORACLE_MAX_READ_BUFFER_BYTES;
+      serverArgs.inputProtocolFactory(new TCompactProtocol.Factory());
+      serverArgs.outputProtocolFactory(new TCompactProtocol.Factory());
+      serverArgs.selectorThreads(env.getConfiguration().getInt(
+          FluoConfigurationImpl.ORACLE_SERVER_SELECTOR_THREADS_PROP,
+          FluoConfigurationImpl.ORACLE_SERVER_SELECTOR_THREADS_DEFAULT));
+      serverArgs.workerThreads(
+          env.getConfiguration().getInt(FluoConfigurationImpl.ORACLE_SERVER_WORKER_THREADS_PROP,
+              FluoConfigurationImpl.ORACLE_SERVER_WORKER_THREADS_DEFAULT));
+      server = new TThreadedSelectorServer(serverArgs);
+    } else {
+      THsHaServer.Args serverArgs = new THsHaServer.Args(socket);
+      serverArgs.processor(processor);
+      serverArgs.maxReadBufferBytes = ORACLE_MAX_READ_BUFFER_BYTES;
+      serverArgs.inputProtocolFactory(new TCompactProtocol.Factory());
+      serverArgs.outputProtocolFactory(new TCompactProtocol.Factory());
+      server = new THsHaServer(serverArgs);
+    }
 
     serverThread = new Thread(server::serve);
     serverThread.setDaemon(true);
@@ -326,7 +592,20 @@ public class OracleServer implements OracleService.Iface, PathChildrenCacheListe
     String leaderId = HostUtil.getHostName() + ":" + addr.getPort();
     leaderLatch = new LeaderLatch(curatorFramework, ZookeeperPath.ORACLE_SERVER, leaderId);
     log.info("Leader ID = " + leaderId);
+    MetricRegistry registry = env.getSharedResources().getMetricRegistry();
+    registry.remove(env.getMetricNames().getOracleServerGcLag());
+    registry.register(env.getMetricNames().getOracleServerGcLag(),
+        (Gauge<Long>) () -> isLeader ? currentTs - gcTsTracker.advertisedGcTimetamp : 0L);
+
+    maxTsCache = new NodeCache(curatorFramework, maxTsPath);
+    maxTsCache.start(true);
+    gcTsTracker = new GcTimestampTracker();
+    gcTsTracker.start();
+
     execService = Executors.newSingleThreadExecutor(new FluoThreadFactory("Oracle Server Worker"));
+    allocationPending.set(false);
+    allocationService =
+        Executors.newSingleThreadExecutor(new FluoThreadFactory("Oracle Timestamp Allocator"));
     leaderLatch.addListener(new LeaderLatchListener() {
       @Override
       public void notLeader() {
@@ -360,6 +639,7 @@ public class OracleServer implements OracleService.Iface, PathChildrenCacheListe
 
   private void assumeLeadership() {
     Preconditions.checkState(!isLeader);
+    long startTime = System.nanoTime();
 
     // sanity check- make sure previous oracle is no longer listening for connections
     if (currentLeader != null) {
@@ -371,7 +651,7 @@ public class OracleServer implements OracleService.Iface, PathChildrenCacheListe
       if (client != null) {
         try {
           while (client.isLeader()) {
-            Thread.sleep(500);
+            Thread.sleep(PREVIOUS_LEADER_POLL_MS);
           }
         } catch (Exception e) {
           log.debug("Exception thrown in takeLeadership()", e);
@@ -381,25 +661,94 @@ public class OracleServer implements OracleService.Iface, PathChildrenCacheListe
 
     try {
       synchronized (this) {
-        byte[] d = curatorFramework.getData().forPath(maxTsPath);
-        currentTs = maxTs = LongUtil.fromByteArray(d);
+        synchronized (allocationLock) {
+          blockSizer = new TimestampBlockSizer(
+              FluoConfigurationImpl.getOracleMinBlockSize(env.getConfiguration()),
+              FluoConfigurationImpl.getOracleMaxBlockSize(env.getConfiguration()));
+          // reserve the first block before serving requests, so the first clients after a
+          // failover do not wait on Zookeeper
+          reserveFirstBlock();
+        }
       }
 
-      gcTsTracker = new GcTimestampTracker();
-      gcTsTracker.start();
+      gcTsTracker.startAdvertising();
 
       isLeader = true;
-      log.info("Assumed leadership " + leaderLatch.getId());
+      log.info("Assumed leadership {} in {}ms", leaderLatch.getId(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+      announceLeadership();
     } catch (Exception e) {
       log.warn("Failed to become leader ", e);
     }
   }
 
+  /**
+   * Reserves the first block of timestamps after becoming leader. The max timestamp cached while
+   * following is usually current, in which case this is a single conditional write.
+   */
+  private void reserveFirstBlock() throws Exception {
+    ChildData cached = getCachedMaxTimestamp();
+    if (cached != null) {
+      try {
+        reserveFirstBlock(LongUtil.fromByteArray(cached.getData()), cached.getStat().getVersion());
+        return;
+      } catch (BadVersionException e) {
+        log.debug("Cached max timestamp was stale, reading it from Zookeeper");
+      }
+    }
+
+    Stat stat = new Stat();
+    byte[] d = curatorFramework.getData().storingStatIn(stat).forPath(maxTsPath);
+    reserveFirstBlock(LongUtil.fromByteArray(d), stat.getVersion());
+  }
+
+  /**
+   * Returns the leader's max timestamp as last seen while following, or null if it was not seen.
+   */
+  @VisibleForTesting
+  protected ChildData getCachedMaxTimestamp() {
+    return maxTsCache.getCurrentData();
+  }
+
+  private void reserveFirstBlock(long prevMaxTs, int version) throws Exception {
+    long blockSize;
+    Context allocationContext = allocationTimer.time();
+    try {
+      blockSize = blockSizer.nextBlockSize(prevMaxTs, System.nanoTime());
+      curatorFramework.setData().withVersion(version).forPath(maxTsPath,
+          LongUtil.toByteArray(prevMaxTs + blockSize));
+      currentTs = prevMaxTs;
+      maxTs = prevMaxTs + blockSize;
+      lowWaterMark = blockSize / 2;
+    } finally {
+      allocationContext.close();
+    }
+    blockSizeHistogram.update(blockSize);
+  }
+
+  /**
+   * Records this oracle as leader in Zookeeper, which clients watch so they can reconnect as soon
+   * as a new leader is ready instead of polling.
+   */
+  private void announceLeadership() {
+    try {
+      CuratorUtil.putData(curatorFramework, ZookeeperPath.ORACLE_LEADER,
+          leaderLatch.getId().getBytes(StandardCharsets.UTF_8),
+          CuratorUtil.NodeExistsPolicy.OVERWRITE);
+    } catch (Exception e) {
+      // clients will still find this leader, just not as quickly
+      log.warn("Failed to announce leadership in Zookeeper", e);
+    }
+  }
+
   public synchronized void stop() throws Exception {
     if (started) {
 
       isLeader = false;
 
+      env.getSharedResources().getMetricRegistry()
+          .remove(env.getMetricNames().getOracleServerGcLag());
+
       server.stop();
       serverThread.join();
 
@@ -407,12 +756,16 @@ public class OracleServer implements OracleService.Iface, PathChildrenCacheListe
         gcTsTracker.stop();
       }
 
+      allocationService.shutdownNow();
+      allocationService.awaitTermination(10, TimeUnit.SECONDS);
+
       started = false;
 
       currentLeader = null;
       if (curatorFramework.getState().equals(CuratorFrameworkState.STARTED)) {
         DeprecationUtil.removeListener(pathChildrenCache.getListenable(), this);
         pathChildrenCache.close();
+        maxTsCache.close();
         leaderLatch.close();
 
         execService.shutdown();
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.oracle;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands requests for timestamps from client threads to the threads that fetch timestamps from the
+ * oracle.
+ *
+ * <p>
+ * Requests are pushed onto a lock free stack, and a fetching thread takes everything on the stack
+ * at once and reverses it, so requests are answered in the order they were made. Each thread
+ * making synchronous requests reuses one request object, so steady state synchronous requests do
+ * not allocate. A thread waiting on a request spins briefly and only parks if the request is not
+ * answered quickly. Fetching threads only park when there are no requests.
+ */
+public class StampRequestQueue {
+
+  // spinning only helps when another core can answer the request meanwhile
+  private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 128 : 0;
+
+  public static final class Request {
+    private final Thread owner;
+    private final CompletableFuture<Stamp> cf;
+
+    // only read by the thread that takes this request from the stack
+    private Request next;
+    private long queuedTime;
+
+    private long txTimestamp;
+    private long gcTimestamp;
+    private volatile boolean done;
+    private volatile boolean parked;
+
+    private Request(Thread owner, CompletableFuture<Stamp> cf) {
+      this.owner = owner;
+      this.cf = cf;
+    }
+
+    /**
+     * @return The value of {@link System#nanoTime()} when this request was queued
+     */
+    public long getQueuedTime() {
+      return queuedTime;
+    }
+
+    /**
+     * Answers this request. The request may be reused by its owner as soon as this is called, so
+     * the caller should not access it afterwards.
+     */
+    public void complete(long txTimestamp, long gcTimestamp) {
+      if (cf != null) {
+        cf.complete(new Stamp(txTimestamp, gcTimestamp));
+        return;
+      }
+
+      this.txTimestamp = txTimestamp;
+      this.gcTimestamp = gcTimestamp;
+      done = true;
+      if (parked) {
+        LockSupport.unpark(owner);
+      }
+    }
+
+    /**
+     * Waits for a synchronous request to be answered.
+     *
+     * @return false if the timeout elapsed before the request was answered
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+      for (int i = 0; i < SPINS && !done; i++) {
+        Thread.onSpinWait();
+      }
+
+      if (done) {
+        return true;
+      }
+
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      parked = true;
+      try {
+        while (!done) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return false;
+          }
+          LockSupport.parkNanos(this, remaining);
+          if (Thread.interrupted()) {
+            throw new InterruptedException();
+          }
+        }
+      } finally {
+        parked = false;
+      }
+
+      return true;
+    }
+
+    /**
+     * @return The stamp of a synchronous request that {@link #await(long, TimeUnit)} returned true
+     *         for.
+     */
+    public Stamp getStamp() {
+      return new Stamp(txTimestamp, gcTimestamp);
+    }
+  }
+
+  private final AtomicReference<Request> stack = new AtomicReference<>();
+  private final ConcurrentLinkedQueue<Thread> idleTakers = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<Request> slots =
+      ThreadLocal.withInitial(() -> new Request(Thread.currentThread(), null));
+
+  private void push(Request request) {
+    request.queuedTime = System.nanoTime();
+
+    Request top;
+    do {
+      top = stack.get();
+      request.next = top;
+    } while (!stack.compareAndSet(top, request));
+
+    if (top == null) {
+      // whoever pushed onto the non empty stack already woke a taker or a taker is busy and will
+      // look at the stack again when done
+      Thread taker = idleTakers.poll();
+      if (taker != null) {
+        LockSupport.unpark(taker);
+      }
+    }
+  }
+
+  /**
+   * Queues a synchronous request using the calling thread's reusable request object. The caller
+   * should wait on the returned request with {@link Request#await(long, TimeUnit)} and must call
+   * {@link #abandon(Request)} if it gives up waiting.
+   */
+  public Request add() {
+    Request request = slots.get();
+    request.done = false;
+    request.parked = false;
+    push(request);
+    return request;
+  }
+
+  /**
+   * Queues a request that completes the given future when answered.
+   */
+  public void addAsync(CompletableFuture<Stamp> cf) {
+    push(new Request(null, Objects.requireNonNull(cf)));
+  }
+
+  /**
+   * Stops the calling thread from reusing a request that may still be answered later.
+   */
+  public void abandon(Request request) {
+    if (slots.get() == request) {
+      slots.remove();
+    }
+  }
+
+  /**
+   * Waits up to the given time for requests and adds all queued requests to the given empty list
+   * in the order they were made.
+   *
+   * @return the number of requests added
+   */
+  public int drainTo(List<Request> batch, long timeout, TimeUnit unit) {
+    Request top = stack.getAndSet(null);
+    if (top == null) {
+      Thread current = Thread.currentThread();
+      idleTakers.add(current);
+      // check again in case a request was pushed before this thread was seen as idle
+      top = stack.getAndSet(null);
+      if (top == null) {
+        LockSupport.parkNanos(this, unit.toNanos(timeout));
+        top = stack.getAndSet(null);
+      }
+      idleTakers.remove(current);
+    }
+
+    int count = 0;
+    for (Request r = top; r != null; r = r.next) {
+      batch.add(r);
+      count++;
+    }
+    Collections.reverse(batch);
+    return count;
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.oracle;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Decides how many timestamps the oracle should reserve in Zookeeper at once. A new leader starts
+ * with a small block. The block then grows towards what recent demand would consume in
+ * {@link #TARGET_PERIOD_NS}, at most doubling per allocation, so a busy oracle rarely writes to
+ * Zookeeper and an idle or newly elected one wastes few timestamps.
+ *
+ * <p>
+ * This class is not thread safe.
+ */
+class TimestampBlockSizer {
+
+  static final long TARGET_PERIOD_NS = TimeUnit.SECONDS.toNanos(10);
+
+  // weight given to the most recently observed rate when smoothing
+  private static final double ALPHA = 0.5;
+
+  private final long minBlockSize;
+  private final long maxBlockSize;
+
+  private long blockSize;
+  private long lastTs = -1;
+  private long lastTime;
+  // smoothed stamps per nanosecond
+  private double rate = 0;
+
+  TimestampBlockSizer(long minBlockSize, long maxBlockSize) {
+    Preconditions.checkArgument(minBlockSize > 0 && minBlockSize <= maxBlockSize,
+        "Bad block sizes %s %s", minBlockSize, maxBlockSize);
+    this.minBlockSize = minBlockSize;
+    this.maxBlockSize = maxBlockSize;
+    this.blockSize = minBlockSize;
+  }
+
+  /**
+   * @param currentTs The next timestamp the oracle will hand out
+   * @param nanoTime The current value of {@link System#nanoTime()}
+   * @return The size of the next block of timestamps to reserve
+   */
+  long nextBlockSize(long currentTs, long nanoTime) {
+    if (lastTs >= 0) {
+      long elapsed = nanoTime - lastTime;
+      if (elapsed > 0) {
+        double observed = (currentTs - lastTs) / (double) elapsed;
+        rate = ALPHA * observed + (1 - ALPHA) * rate;
+      }
+
+      long target = (long) Math.min(rate * TARGET_PERIOD_NS, maxBlockSize);
+      blockSize = Math.max(minBlockSize, Math.min(Math.min(target, blockSize * 2), maxBlockSize));
+    }
+
+    lastTs = currentTs;
+    lastTime = nanoTime;
+
+    return blockSize;
+  }
+
+  /**
+   * @return The size of the most recently chosen block
+   */
+  long getBlockSize() {
+    return blockSize;
+  }
+}
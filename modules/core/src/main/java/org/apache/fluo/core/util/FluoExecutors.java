@@ -30,8 +30,24 @@ public class FluoExecutors {
 
   public static ThreadPoolExecutor newFixedThreadPool(int numThreads, BlockingQueue<Runnable> queue,
       String name) {
-    return new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS, queue,
-        new FluoThreadFactory(name)) {
+    return newThreadPool(numThreads, numThreads, 0L, queue, name);
+  }
+
+  /**
+   * Creates a pool that starts up to the given number of threads as needed and stops them after
+   * they are idle for a minute. Tasks queue when every thread is busy.
+   */
+  public static ExecutorService newCachedThreadPool(int maxThreads, String name) {
+    ThreadPoolExecutor tpe =
+        newThreadPool(maxThreads, maxThreads, 60000L, new LinkedBlockingQueue<>(), name);
+    tpe.allowCoreThreadTimeOut(true);
+    return tpe;
+  }
+
+  private static ThreadPoolExecutor newThreadPool(int coreThreads, int maxThreads,
+      long keepAliveMillis, BlockingQueue<Runnable> queue, String name) {
+    return new ThreadPoolExecutor(coreThreads, maxThreads, keepAliveMillis, TimeUnit.MILLISECONDS,
+        queue, new FluoThreadFactory(name)) {
       @Override
       protected void afterExecute(Runnable r, Throwable t) {
         if (t != null) {
@@ -32,6 +32,7 @@ import com.codahale.metrics.Gauge;
 import org.apache.fluo.api.data.Column;
 import org.apache.fluo.api.data.RowColumn;
 import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
 import org.apache.fluo.core.impl.Notification;
 import org.apache.fluo.core.observer.Observers;
 import org.apache.fluo.core.util.FluoExecutors;
@@ -48,6 +49,7 @@ public final class NotificationProcessor implements AutoCloseable {
   private Environment env;
   private Observers observers;
   private PriorityBlockingQueue<Runnable> queue;
+  private ReadSetProfiler profiler;
 
   public NotificationProcessor(Environment env) {
     int numThreads = env.getConfiguration().getWorkerThreads();
@@ -56,6 +58,11 @@ public final class NotificationProcessor implements AutoCloseable {
     this.executor = FluoExecutors.newFixedThreadPool(numThreads, queue, "ntfyProc");
     this.tracker = new NotificationTracker();
     this.observers = env.getConfiguredObservers().getObservers(env);
+    if (env.getConfiguration().getBoolean(FluoConfigurationImpl.WORKER_PREFETCH_ENABLED,
+        FluoConfigurationImpl.WORKER_PREFETCH_ENABLED_DEFAULT)) {
+      this.profiler = new ReadSetProfiler(
+          FluoConfigurationImpl.getWorkerPrefetchMinPercent(env.getConfiguration()));
+    }
     env.getSharedResources().getMetricRegistry().register(
         env.getMetricNames().getNotificationQueued(), (Gauge<Integer>) () -> queue.size());
   }
@@ -236,7 +243,7 @@ public final class NotificationProcessor implements AutoCloseable {
         final Notification notification) {
 
       WorkTaskAsync workTask = new WorkTaskAsync(NotificationProcessor.this, notificationFinder,
-          env, notification, observers);
+          env, notification, observers, profiler);
       FutureTask<?> ft = new FutureNotificationTask(notification, notificationFinder, workTask);
 
       if (!tracker.add(notification.getRowColumn(), ft)) {
@@ -272,7 +279,7 @@ public final class NotificationProcessor implements AutoCloseable {
       final Notification notification) {
 
     WorkTaskAsync workTask =
-        new WorkTaskAsync(this, notificationFinder, env, notification, observers);
+        new WorkTaskAsync(this, notificationFinder, env, notification, observers, profiler);
     FutureTask<?> ft = new FutureNotificationTask(notification, notificationFinder, workTask);
 
     if (tracker.requeue(notification.getRowColumn(), ft)) {
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.worker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.base.Preconditions;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
+
+/**
+ * Learns which cells each observer reads relative to the row of the notification it processes, so
+ * they can be prefetched for later notifications. A cell is relative to the notification row if it
+ * is in the same row, or in a row that is a prefix of it. Cells read by at least a minimum percent
+ * of an observer's recent notifications are predicted. Counts are halved periodically, so
+ * predictions follow changes in what an observer reads.
+ */
+class ReadSetProfiler {
+
+  // notifications an observer must process before its reads are predicted
+  static final int MIN_SAMPLES = 10;
+  // counts are halved when an observer has this many samples
+  static final int DECAY_SAMPLES = 1000;
+  // read patterns tracked per observer, reads that do not fit are not learned
+  static final int MAX_PATTERNS = 256;
+
+  /**
+   * A cell read relative to a notification row, in the same row or in the row formed by the first
+   * rowPrefixLength bytes of it.
+   */
+  static class ReadPattern {
+    static final int SAME_ROW = -1;
+
+    final int rowPrefixLength;
+    final Column column;
+
+    ReadPattern(int rowPrefixLength, Column column) {
+      this.rowPrefixLength = rowPrefixLength;
+      this.column = column;
+    }
+
+    /**
+     * @return the pattern of a cell read while processing a notification, or null if the row read
+     *         can not be derived from the notification row
+     */
+    static ReadPattern of(Bytes notificationRow, Bytes row, Column column) {
+      if (row.equals(notificationRow)) {
+        return new ReadPattern(SAME_ROW, column);
+      } else if (notificationRow.startsWith(row)) {
+        return new ReadPattern(row.length(), column);
+      }
+      return null;
+    }
+
+    /**
+     * @return the row this pattern reads for a notification row, or null if it is too short
+     */
+    Bytes getRow(Bytes notificationRow) {
+      if (rowPrefixLength == SAME_ROW) {
+        return notificationRow;
+      } else if (rowPrefixLength > notificationRow.length()) {
+        return null;
+      }
+      return notificationRow.subSequence(0, rowPrefixLength);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof ReadPattern) {
+        ReadPattern orp = (ReadPattern) o;
+        return rowPrefixLength == orp.rowPrefixLength && column.equals(orp.column);
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(rowPrefixLength, column);
+    }
+  }
+
+  private static class ObserverProfile {
+    private final Map<ReadPattern, Integer> counts = new HashMap<>();
+    private Set<ReadPattern> predicted = Collections.emptySet();
+    private int samples = 0;
+
+    synchronized Set<ReadPattern> getPredicted() {
+      return predicted;
+    }
+
+    synchronized void record(Set<ReadPattern> patterns, int minPercent) {
+      for (ReadPattern pattern : patterns) {
+        if (counts.size() < MAX_PATTERNS || counts.containsKey(pattern)) {
+          counts.merge(pattern, 1, Integer::sum);
+        }
+      }
+      samples++;
+
+      if (samples >= DECAY_SAMPLES) {
+        samples /= 2;
+        counts.replaceAll((pattern, count) -> count / 2);
+        counts.values().removeIf(count -> count == 0);
+      }
+
+      if (samples >= MIN_SAMPLES) {
+        Set<ReadPattern> newPredicted = new HashSet<>();
+        for (Entry<ReadPattern, Integer> entry : counts.entrySet()) {
+          if (entry.getValue() * 100L >= (long) samples * minPercent) {
+            newPredicted.add(entry.getKey());
+          }
+        }
+        predicted = newPredicted;
+      }
+    }
+  }
+
+  private final Map<String, ObserverProfile> profiles = new ConcurrentHashMap<>();
+  private final int minPercent;
+
+  ReadSetProfiler(int minPercent) {
+    Preconditions.checkArgument(minPercent > 0 && minPercent <= 100);
+    this.minPercent = minPercent;
+  }
+
+  /**
+   * @return the cells the observer is expected to read while processing a notification
+   */
+  Collection<RowColumn> predict(String observerId, Bytes notificationRow) {
+    ObserverProfile profile = profiles.get(observerId);
+    if (profile == null) {
+      return Collections.emptyList();
+    }
+
+    Set<ReadPattern> predicted = profile.getPredicted();
+    List<RowColumn> cells = new ArrayList<>(predicted.size());
+    for (ReadPattern pattern : predicted) {
+      Bytes row = pattern.getRow(notificationRow);
+      if (row != null) {
+        cells.add(new RowColumn(row, pattern.column));
+      }
+    }
+    return cells;
+  }
+
+  /**
+   * Records the cells an observer read while processing a notification.
+   */
+  void record(String observerId, Bytes notificationRow, Map<Bytes, Set<Column>> read) {
+    Set<ReadPattern> patterns = new HashSet<>();
+    for (Entry<Bytes, Set<Column>> entry : read.entrySet()) {
+      for (Column column : entry.getValue()) {
+        ReadPattern pattern = ReadPattern.of(notificationRow, entry.getKey(), column);
+        if (pattern != null) {
+          patterns.add(pattern);
+        }
+      }
+    }
+
+    profiles.computeIfAbsent(observerId, k -> new ObserverProfile()).record(patterns, minPercent);
+  }
+
+  /**
+   * @return the number of prefetched cells that were read
+   */
+  static int countHits(Collection<RowColumn> prefetched, Map<Bytes, Set<Column>> read) {
+    int hits = 0;
+    for (RowColumn rc : prefetched) {
+      Set<Column> cols = read.get(rc.getRow());
+      if (cols != null && cols.contains(rc.getColumn())) {
+        hits++;
+      }
+    }
+    return hits;
+  }
+}
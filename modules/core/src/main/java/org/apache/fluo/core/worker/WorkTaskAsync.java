@@ -15,6 +15,15 @@
 
 package org.apache.fluo.core.worker;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
 import org.apache.fluo.api.observer.Observer;
 import org.apache.fluo.core.async.AsyncCommitObserver;
 import org.apache.fluo.core.async.AsyncTransaction;
@@ -38,6 +47,7 @@ public class WorkTaskAsync implements Runnable {
   private NotificationFinder notificationFinder;
 
   private NotificationProcessor notificationProcessor;
+  private ReadSetProfiler profiler;
 
   class WorkTaskCommitObserver implements AsyncCommitObserver {
 
@@ -66,12 +76,28 @@ public class WorkTaskAsync implements Runnable {
   }
 
   WorkTaskAsync(NotificationProcessor notificationProcessor, NotificationFinder notificationFinder,
-      Environment env, Notification notification, Observers observers) {
+      Environment env, Notification notification, Observers observers,
+      ReadSetProfiler profiler) {
     this.notificationProcessor = notificationProcessor;
     this.notificationFinder = notificationFinder;
     this.env = env;
     this.notification = notification;
     this.observers = observers;
+    this.profiler = profiler;
+  }
+
+  private void recordReads(TransactionImpl tx, String observerId,
+      Collection<RowColumn> prefetched) {
+    Map<Bytes, Set<Column>> read = tx.getColumnsRead();
+    profiler.record(observerId, notification.getRow(), read);
+
+    if (!prefetched.isEmpty()) {
+      int hits = ReadSetProfiler.countHits(prefetched, read);
+      MetricRegistry registry = env.getSharedResources().getMetricRegistry();
+      registry.meter(env.getMetricNames().getTxPrefetchHits(observerId)).mark(hits);
+      registry.meter(env.getMetricNames().getTxPrefetchWasted(observerId))
+          .mark(prefetched.size() - hits);
+    }
   }
 
   @Override
@@ -79,7 +105,14 @@ public class WorkTaskAsync implements Runnable {
     Observer observer = observers.getObserver(notification.getColumn());
     String observerId = observers.getObserverId(notification.getColumn());
     try {
-      AsyncTransaction atx = new TransactionImpl(env, notification);
+      TransactionImpl tx = new TransactionImpl(env, notification);
+      AsyncTransaction atx = tx;
+
+      Collection<RowColumn> prefetched = Collections.emptyList();
+      if (profiler != null) {
+        prefetched = profiler.predict(observerId, notification.getRow());
+        tx.prefetch(prefetched);
+      }
 
       if (TracingTransaction.isTracingEnabled()) {
         atx = new TracingTransaction(atx, notification, observer.getClass(), observerId);
@@ -93,6 +126,10 @@ public class WorkTaskAsync implements Runnable {
         throw e;
       }
 
+      if (profiler != null) {
+        recordReads(tx, observerId, prefetched);
+      }
+
       CommitManager commitManager = env.getSharedResources().getCommitManager();
       commitManager.beginCommit(atx, observerId, new WorkTaskCommitObserver());
 
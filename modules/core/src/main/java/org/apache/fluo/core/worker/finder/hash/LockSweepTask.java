@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.worker.finder.hash;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.fluo.accumulo.iterators.OpenLockIterator;
+import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.LockResolver;
+import org.apache.fluo.core.metrics.MetricsUtil;
+import org.apache.fluo.core.util.UtilWaitThread;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically scans part of a worker's partition for locks left by dead or timed out transactions
+ * and resolves them, so readers do not wait on them. The tablets of a group are divided among the
+ * workers in the group by position, so each tablet is swept by one worker.
+ */
+class LockSweepTask implements Runnable {
+
+  private static final Logger log = LoggerFactory.getLogger(LockSweepTask.class);
+
+  // max locks resolved at once
+  private static final int BATCH_SIZE = 1000;
+
+  private final PartitionManager partitionManager;
+  private final Environment env;
+  private final AtomicBoolean stopped;
+  private final long interval;
+  private final Meter locksSwept;
+  private final Histogram lockAges;
+
+  LockSweepTask(PartitionManager partitionManager, Environment env, AtomicBoolean stopped,
+      long interval) {
+    this.partitionManager = partitionManager;
+    this.env = env;
+    this.stopped = stopped;
+    this.interval = interval;
+
+    MetricRegistry registry = env.getSharedResources().getMetricRegistry();
+    this.locksSwept = registry.meter(env.getMetricNames().getLocksSwept());
+    this.lockAges = MetricsUtil.getHistogram(env.getConfiguration(), registry,
+        env.getMetricNames().getSweptLockAge());
+  }
+
+  @Override
+  public void run() {
+    while (!stopped.get()) {
+      try {
+        UtilWaitThread.sleep(interval, stopped);
+        if (stopped.get()) {
+          break;
+        }
+
+        sweep(partitionManager.waitForPartitionInfo());
+      } catch (InterruptedException e) {
+        log.debug("Interrupted while sweeping locks", e);
+      } catch (Exception e) {
+        if (!stopped.get()) {
+          log.error("Error while sweeping locks", e);
+        }
+      }
+    }
+  }
+
+  @VisibleForTesting
+  static List<TableRange> getMyRanges(PartitionInfo partition) {
+    List<TableRange> groupsRanges = new ArrayList<>();
+    partition.getMyGroupsRanges().forEach(groupsRanges::add);
+    Collections.sort(groupsRanges);
+
+    List<TableRange> myRanges = new ArrayList<>();
+    for (int i = partition.getMyIdInGroup(); i < groupsRanges.size(); i +=
+        partition.getMyGroupSize()) {
+      myRanges.add(groupsRanges.get(i));
+    }
+    return myRanges;
+  }
+
+  private void sweep(PartitionInfo partition) throws TableNotFoundException {
+    // only locks older than this are resolved
+    long startTs = env.getSharedResources().getOracleClient().getStamp().getTxTimestamp();
+
+    int tabletsSwept = 0;
+    int found = 0;
+    int resolved = 0;
+
+    for (TableRange tabletRange : getMyRanges(partition)) {
+      if (stopped.get() || !partition.equals(partitionManager.getPartitionInfo())) {
+        break;
+      }
+
+      try (Scanner scanner =
+          env.getAccumuloClient().createScanner(env.getTable(), env.getAuthorizations())) {
+        scanner.setRange(tabletRange.getRange());
+        scanner.addScanIterator(new IteratorSetting(10, OpenLockIterator.class));
+
+        List<Entry<Key, Value>> locks = new ArrayList<>();
+        for (Entry<Key, Value> entry : scanner) {
+          locks.add(entry);
+          found++;
+          if (locks.size() >= BATCH_SIZE) {
+            resolved += resolve(startTs, locks);
+            locks.clear();
+          }
+        }
+        resolved += resolve(startTs, locks);
+      }
+
+      tabletsSwept++;
+    }
+
+    log.debug("Swept {} tablets for locks. Open locks found: {} resolved: {}", tabletsSwept, found,
+        resolved);
+  }
+
+  private int resolve(long startTs, List<Entry<Key, Value>> locks) {
+    if (locks.isEmpty()) {
+      return 0;
+    }
+
+    List<Long> lockTimestamps;
+    try {
+      lockTimestamps = LockResolver.resolveOrphanedLocks(env, startTs, locks);
+    } catch (RuntimeException e) {
+      log.warn("Failed to resolve {} locks, readers will resolve them", locks.size(), e);
+      return 0;
+    }
+
+    for (long lockTs : lockTimestamps) {
+      // oracle timestamps allocated since the lock was taken
+      lockAges.update(startTs - lockTs);
+    }
+    locksSwept.mark(lockTimestamps.size());
+    return lockTimestamps.size();
+  }
+}
@@ -28,6 +28,7 @@ public class PartitionNotificationFinder implements NotificationFinder {
 
   private PartitionManager partitionManager;
   private Thread scanThread;
+  private Thread sweepThread;
   private NotificationProcessor processor;
   private Environment env;
   private AtomicBoolean stopped;
@@ -56,6 +57,14 @@ public class PartitionNotificationFinder implements NotificationFinder {
     scanThread.setName(getClass().getSimpleName() + " " + ScanTask.class.getSimpleName());
     scanThread.setDaemon(true);
     scanThread.start();
+
+    long sweepInterval = FluoConfigurationImpl.getLockSweepInterval(env.getConfiguration());
+    if (sweepInterval > 0) {
+      sweepThread = new Thread(new LockSweepTask(partitionManager, env, stopped, sweepInterval));
+      sweepThread.setName(getClass().getSimpleName() + " " + LockSweepTask.class.getSimpleName());
+      sweepThread.setDaemon(true);
+      sweepThread.start();
+    }
   }
 
   @Override
@@ -69,6 +78,15 @@ public class PartitionNotificationFinder implements NotificationFinder {
       throw new RuntimeException(e);
     }
 
+    if (sweepThread != null) {
+      sweepThread.interrupt();
+      try {
+        sweepThread.join();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
     partitionManager.stop();
   }
 
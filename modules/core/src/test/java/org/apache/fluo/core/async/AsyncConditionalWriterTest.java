@@ -0,0 +1,364 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.async;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+import org.apache.accumulo.core.client.ConditionalWriter;
+import org.apache.accumulo.core.client.ConditionalWriter.Result;
+import org.apache.accumulo.core.client.ConditionalWriter.Status;
+import org.apache.accumulo.core.data.Condition;
+import org.apache.accumulo.core.data.ConditionalMutation;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
+import org.apache.fluo.core.metrics.MetricNames;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncConditionalWriterTest {
+
+  private static final MetricNames METRIC_NAMES = new MetricNames("test", "test");
+
+  /**
+   * Returns results for copies of the mutations written, like Accumulo's conditional writer.
+   * Mutations with the value "reject" are rejected.
+   */
+  private static class FakeWriter implements ConditionalWriter {
+    final BlockingQueue<List<ConditionalMutation>> writes = new LinkedBlockingQueue<>();
+    // each write takes a permit before returning results
+    final Semaphore permits = new Semaphore(Integer.MAX_VALUE);
+    volatile boolean reverse = false;
+    // results returned before the write fails, negative to not fail
+    volatile int failAfter = -1;
+
+    @Override
+    public Iterator<Result> write(Iterator<ConditionalMutation> mutations) {
+      List<ConditionalMutation> written = new ArrayList<>();
+      mutations.forEachRemaining(written::add);
+      writes.add(written);
+      permits.acquireUninterruptibly();
+
+      List<Result> results = new ArrayList<>();
+      for (ConditionalMutation cm : written) {
+        boolean reject = new String(cm.getUpdates().get(0).getValue()).equals("reject");
+        results.add(new Result(reject ? Status.REJECTED : Status.ACCEPTED,
+            new ConditionalMutation(cm), "tserver1"));
+      }
+      if (reverse) {
+        Collections.reverse(results);
+      }
+
+      int limit = failAfter;
+      Iterator<Result> iter = results.iterator();
+      return new Iterator<Result>() {
+        int returned = 0;
+
+        @Override
+        public boolean hasNext() {
+          if (limit >= 0 && returned == limit) {
+            throw new IllegalStateException("write failed");
+          }
+          return iter.hasNext();
+        }
+
+        @Override
+        public Result next() {
+          returned++;
+          return iter.next();
+        }
+      };
+    }
+
+    @Override
+    public Result write(ConditionalMutation mutation) {
+      return write(Collections.singleton(mutation).iterator()).next();
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  private static ConditionalMutation newMutation(String row, String value) {
+    ConditionalMutation cm = new ConditionalMutation(row, new Condition("f", "q"));
+    cm.put("f", "q", value);
+    return cm;
+  }
+
+  private static FluoConfiguration newMemoryConfig(int threads, long memory) {
+    FluoConfiguration conf = new FluoConfiguration();
+    conf.setProperty(FluoConfigurationImpl.ASYNC_CW_THREADS, threads);
+    conf.setProperty(FluoConfigurationImpl.ASYNC_CW_MEMORY, memory);
+    return conf;
+  }
+
+  private static FluoConfiguration newGroupConfig(long groupWindowMicros, int groupMax) {
+    FluoConfiguration conf = new FluoConfiguration();
+    conf.setProperty(FluoConfigurationImpl.ASYNC_CW_GROUP_WINDOW, groupWindowMicros);
+    conf.setProperty(FluoConfigurationImpl.ASYNC_CW_GROUP_MAX, groupMax);
+    return conf;
+  }
+
+  private static Result getOnlyResult(CompletableFuture<Iterator<Result>> future)
+      throws Exception {
+    Iterator<Result> iter = future.get(10, TimeUnit.SECONDS);
+    Result result = iter.next();
+    Assert.assertFalse(iter.hasNext());
+    return result;
+  }
+
+  @Test
+  public void testGroupSameRow() throws Exception {
+    FakeWriter cw = new FakeWriter();
+    cw.reverse = true;
+    AsyncConditionalWriter acw =
+        new AsyncConditionalWriter(newGroupConfig(500_000, 100), METRIC_NAMES, cw,
+            new MetricRegistry());
+
+    // callers writing the same row get the result for their own mutation
+    ConditionalMutation cm1 = newMutation("r1", "accept");
+    ConditionalMutation cm2 = newMutation("r1", "reject");
+    ConditionalMutation cm3 = newMutation("r2", "accept");
+    CompletableFuture<Iterator<Result>> f1 = acw.apply(Collections.singletonList(cm1));
+    CompletableFuture<Iterator<Result>> f2 = acw.apply(Collections.singletonList(cm2));
+    CompletableFuture<Iterator<Result>> f3 = acw.apply(Collections.singletonList(cm3));
+
+    Result r1 = getOnlyResult(f1);
+    Assert.assertEquals(Status.ACCEPTED, r1.getStatus());
+    Assert.assertEquals(cm1.getUpdates(), r1.getMutation().getUpdates());
+    Result r2 = getOnlyResult(f2);
+    Assert.assertEquals(Status.REJECTED, r2.getStatus());
+    Assert.assertEquals(cm2.getUpdates(), r2.getMutation().getUpdates());
+    Assert.assertEquals(Status.ACCEPTED, getOnlyResult(f3).getStatus());
+
+    Assert.assertEquals(Arrays.asList(cm1, cm2, cm3), cw.writes.take());
+    Assert.assertTrue(cw.writes.isEmpty());
+
+    acw.close();
+  }
+
+  @Test
+  public void testGroupPartialFailure() throws Exception {
+    FakeWriter cw = new FakeWriter();
+    cw.failAfter = 2;
+    AsyncConditionalWriter acw =
+        new AsyncConditionalWriter(newGroupConfig(500_000, 100), METRIC_NAMES, cw,
+            new MetricRegistry());
+
+    CompletableFuture<Iterator<Result>> f1 =
+        acw.apply(Collections.singletonList(newMutation("r1", "accept")));
+    CompletableFuture<Iterator<Result>> f2 = acw
+        .apply(Arrays.asList(newMutation("r2", "accept"), newMutation("r3", "accept")));
+    CompletableFuture<Iterator<Result>> f3 =
+        acw.apply(Collections.singletonList(newMutation("r4", "accept")));
+
+    // the first caller got all of its results before the write failed
+    Assert.assertEquals(Status.ACCEPTED, getOnlyResult(f1).getStatus());
+    for (CompletableFuture<Iterator<Result>> future : Arrays.asList(f2, f3)) {
+      try {
+        future.get(10, TimeUnit.SECONDS);
+        Assert.fail();
+      } catch (ExecutionException e) {
+        Assert.assertEquals("write failed", e.getCause().getMessage());
+      }
+    }
+    Assert.assertEquals(4, cw.writes.take().size());
+
+    acw.close();
+  }
+
+  @Test
+  public void testGroupMax() throws Exception {
+    FakeWriter cw = new FakeWriter();
+    // a window long enough that only the max can end the first group
+    AsyncConditionalWriter acw = new AsyncConditionalWriter(newGroupConfig(60_000_000, 2),
+        METRIC_NAMES, cw, new MetricRegistry());
+
+    CompletableFuture<Iterator<Result>> f1 =
+        acw.apply(Collections.singletonList(newMutation("r1", "accept")));
+    CompletableFuture<Iterator<Result>> f2 =
+        acw.apply(Collections.singletonList(newMutation("r2", "accept")));
+    CompletableFuture<Iterator<Result>> f3 =
+        acw.apply(Collections.singletonList(newMutation("r3", "accept")));
+
+    Assert.assertEquals(Status.ACCEPTED, getOnlyResult(f1).getStatus());
+    Assert.assertEquals(Status.ACCEPTED, getOnlyResult(f2).getStatus());
+    Assert.assertEquals(2, cw.writes.take().size());
+    Assert.assertFalse(f3.isDone());
+
+    // the group being gathered when closed fails
+    acw.close();
+    try {
+      f3.get(10, TimeUnit.SECONDS);
+      Assert.fail();
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    Assert.assertTrue(cw.writes.isEmpty());
+  }
+
+  private static CompletableFuture<Iterator<Result>> apply(AsyncConditionalWriter acw,
+      ConditionalMutation cm) {
+    return acw.apply(Collections.singletonList(cm));
+  }
+
+  // callers are completed just before the bytes of their write are released
+  private static void assertNoBytesInFlight(Counter bytesInFlight) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (bytesInFlight.getCount() != 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(0, bytesInFlight.getCount());
+  }
+
+  @Test
+  public void testFifoAdmission() throws Exception {
+    ConditionalMutation big1 = newMutation("r1", new String(new char[1000]).replace('\0', 'a'));
+    ConditionalMutation big2 = newMutation("r2", new String(new char[1000]).replace('\0', 'b'));
+    ConditionalMutation small = newMutation("r3", "c");
+    long bigSize = AsyncConditionalWriter.estimateSize(big1);
+    long smallSize = AsyncConditionalWriter.estimateSize(small);
+
+    FakeWriter cw = new FakeWriter();
+    cw.permits.drainPermits();
+    MetricRegistry registry = new MetricRegistry();
+    // room for one big and the small mutation, but not both big ones
+    AsyncConditionalWriter acw =
+        new AsyncConditionalWriter(newMemoryConfig(2, bigSize + smallSize), METRIC_NAMES, cw,
+            registry);
+    Counter bytesInFlight = registry.counter(METRIC_NAMES.getCwBytesInFlight());
+
+    CompletableFuture<Iterator<Result>> f1 = apply(acw, big1);
+    CompletableFuture<Iterator<Result>> f2 = apply(acw, big2);
+    // fits under the limit, but waits behind big2
+    CompletableFuture<Iterator<Result>> f3 = apply(acw, small);
+
+    Assert.assertEquals(Collections.singletonList(big1), cw.writes.take());
+    Assert.assertNull(cw.writes.poll(100, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(bigSize, bytesInFlight.getCount());
+
+    cw.permits.release();
+    Assert.assertEquals(Status.ACCEPTED, getOnlyResult(f1).getStatus());
+    // both fit once big1 is done, and may start in either order
+    Set<List<ConditionalMutation>> started = new HashSet<>();
+    started.add(cw.writes.take());
+    started.add(cw.writes.take());
+    Assert.assertEquals(ImmutableSet.of(Collections.singletonList(big2),
+        Collections.singletonList(small)), started);
+    Assert.assertFalse(f2.isDone());
+    Assert.assertFalse(f3.isDone());
+    Assert.assertEquals(bigSize + smallSize, bytesInFlight.getCount());
+
+    cw.permits.release(2);
+    Assert.assertEquals(Status.ACCEPTED, getOnlyResult(f2).getStatus());
+    Assert.assertEquals(Status.ACCEPTED, getOnlyResult(f3).getStatus());
+    assertNoBytesInFlight(bytesInFlight);
+
+    acw.close();
+  }
+
+  @Test
+  public void testLargerThanLimit() throws Exception {
+    FakeWriter cw = new FakeWriter();
+    cw.permits.drainPermits();
+    MetricRegistry registry = new MetricRegistry();
+    AsyncConditionalWriter acw =
+        new AsyncConditionalWriter(newMemoryConfig(2, 1), METRIC_NAMES, cw, registry);
+    Counter bytesInFlight = registry.counter(METRIC_NAMES.getCwBytesInFlight());
+
+    // admitted because nothing else is in flight
+    ConditionalMutation cm1 = newMutation("r1", "a");
+    CompletableFuture<Iterator<Result>> f1 = apply(acw, cm1);
+    Assert.assertEquals(Collections.singletonList(cm1), cw.writes.take());
+    Assert.assertEquals(AsyncConditionalWriter.estimateSize(cm1), bytesInFlight.getCount());
+
+    // waits for the first write even though a thread is free
+    CompletableFuture<Iterator<Result>> f2 = apply(acw, newMutation("r2", "a"));
+    Assert.assertNull(cw.writes.poll(100, TimeUnit.MILLISECONDS));
+
+    cw.permits.release(2);
+    Assert.assertEquals(Status.ACCEPTED, getOnlyResult(f1).getStatus());
+    Assert.assertEquals(Status.ACCEPTED, getOnlyResult(f2).getStatus());
+    Assert.assertEquals(1, cw.writes.size());
+    assertNoBytesInFlight(bytesInFlight);
+
+    acw.close();
+  }
+
+  @Test
+  public void testBytesInFlightAfterFailure() throws Exception {
+    FakeWriter cw = new FakeWriter();
+    cw.failAfter = 0;
+    MetricRegistry registry = new MetricRegistry();
+    AsyncConditionalWriter acw =
+        new AsyncConditionalWriter(newMemoryConfig(2, 1_000_000), METRIC_NAMES, cw, registry);
+
+    List<CompletableFuture<Iterator<Result>>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      futures.add(apply(acw, newMutation("r" + i, "a")));
+    }
+    for (CompletableFuture<Iterator<Result>> future : futures) {
+      try {
+        future.get(10, TimeUnit.SECONDS);
+        Assert.fail();
+      } catch (ExecutionException e) {
+        Assert.assertEquals("write failed", e.getCause().getMessage());
+      }
+    }
+    assertNoBytesInFlight(registry.counter(METRIC_NAMES.getCwBytesInFlight()));
+
+    acw.close();
+  }
+
+  @Test
+  public void testCloseWithQueuedWrites() throws Exception {
+    FakeWriter cw = new FakeWriter();
+    cw.permits.drainPermits();
+    AsyncConditionalWriter acw = new AsyncConditionalWriter(newMemoryConfig(1, 1_000_000),
+        METRIC_NAMES, cw, new MetricRegistry());
+
+    CompletableFuture<Iterator<Result>> f1 = apply(acw, newMutation("r1", "a"));
+    Assert.assertEquals(1, cw.writes.take().size());
+    // admitted, but waits for the only thread
+    CompletableFuture<Iterator<Result>> f2 = apply(acw, newMutation("r2", "a"));
+    // lets the first write finish once the second has failed, so close does not wait for it
+    f2.whenComplete((r, t) -> cw.permits.release());
+
+    acw.close();
+    try {
+      f2.get(10, TimeUnit.SECONDS);
+      Assert.fail();
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    Assert.assertEquals(Status.ACCEPTED, getOnlyResult(f1).getStatus());
+    Assert.assertTrue(cw.writes.isEmpty());
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ActiveTimestampsTest {
+
+  @Test
+  public void testBasic() {
+    ActiveTimestamps timestamps = new ActiveTimestamps(1);
+    Assert.assertTrue(timestamps.isEmpty());
+    Assert.assertEquals(Long.MAX_VALUE, timestamps.oldest());
+
+    timestamps.add(5);
+    timestamps.add(7);
+    timestamps.add(3);
+    timestamps.add(5);
+    Assert.assertEquals(3, timestamps.oldest());
+
+    Assert.assertTrue(timestamps.remove(3));
+    Assert.assertFalse(timestamps.remove(3));
+    Assert.assertEquals(5, timestamps.oldest());
+    Assert.assertTrue(timestamps.remove(5));
+    Assert.assertEquals(5, timestamps.oldest());
+    Assert.assertTrue(timestamps.remove(5));
+    Assert.assertEquals(7, timestamps.oldest());
+    Assert.assertFalse(timestamps.remove(8));
+    Assert.assertTrue(timestamps.remove(7));
+    Assert.assertTrue(timestamps.isEmpty());
+  }
+
+  @Test
+  public void testRandom() {
+    Random rand = new Random(42);
+    for (int concurrency : new int[] {1, 3, 8}) {
+      ActiveTimestamps timestamps = new ActiveTimestamps(concurrency);
+      TreeMap<Long, Integer> expected = new TreeMap<>();
+      long next = 2;
+
+      for (int i = 0; i < 100_000; i++) {
+        if (expected.isEmpty() || rand.nextInt(100) < 52) {
+          // mostly increasing, with some timestamps arriving late or reused
+          long ts = rand.nextInt(10) == 0 ? Math.max(2, next - rand.nextInt(50)) : next++;
+          timestamps.add(ts);
+          expected.merge(ts, 1, Integer::sum);
+        } else {
+          // mostly remove old timestamps, sometimes a random one
+          long ts = rand.nextBoolean() ? expected.firstKey() : next - rand.nextInt(100);
+          boolean present = expected.containsKey(ts);
+          Assert.assertEquals(present, timestamps.remove(ts));
+          if (present) {
+            expected.computeIfPresent(ts, (k, v) -> v == 1 ? null : v - 1);
+          }
+        }
+
+        long oldest = expected.isEmpty() ? Long.MAX_VALUE : expected.firstKey();
+        Assert.assertEquals(oldest, timestamps.oldest());
+      }
+    }
+  }
+}
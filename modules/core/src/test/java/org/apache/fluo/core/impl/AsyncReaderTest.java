@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncReaderTest {
+
+  private static final Column COL = new Column("f", "q");
+
+  private static class Read {
+    final List<RowColumn> rowColumns;
+    final CompletableFuture<Map<RowColumn, Bytes>> result = new CompletableFuture<>();
+
+    Read(Collection<RowColumn> rowColumns) {
+      this.rowColumns = new ArrayList<>(rowColumns);
+    }
+
+    // every cell has its row as the value
+    void complete() {
+      Map<RowColumn, Bytes> values = new HashMap<>();
+      rowColumns.forEach(rc -> values.put(rc, rc.getRow()));
+      result.complete(values);
+    }
+  }
+
+  /**
+   * Records the batches read, which the test completes.
+   */
+  private static class FakeReader implements AsyncReader.BatchReader {
+    final BlockingQueue<Read> reads = new LinkedBlockingQueue<>();
+
+    @Override
+    public CompletableFuture<Map<RowColumn, Bytes>> read(Collection<RowColumn> rowColumns,
+        Executor executor) {
+      Read read = new Read(rowColumns);
+      reads.add(read);
+      return read.result;
+    }
+
+    Read take() throws InterruptedException {
+      Read read = reads.poll(10, TimeUnit.SECONDS);
+      Assert.assertNotNull(read);
+      return read;
+    }
+  }
+
+  private static AsyncReadExecutor newExecutor(int threads, long lingerMicros, int batchMax) {
+    FluoConfiguration conf = new FluoConfiguration();
+    conf.setProperty(FluoConfigurationImpl.ASYNC_READ_THREADS, threads);
+    conf.setProperty(FluoConfigurationImpl.ASYNC_READ_LINGER, lingerMicros);
+    conf.setProperty(FluoConfigurationImpl.ASYNC_READ_BATCH_MAX, batchMax);
+    return new AsyncReadExecutor(conf);
+  }
+
+  private static List<CompletableFuture<Bytes>> get(AsyncReader reader, String... rows) {
+    List<CompletableFuture<Bytes>> futures = new ArrayList<>();
+    for (String row : rows) {
+      futures.add(reader.get(Bytes.of(row), COL));
+    }
+    return futures;
+  }
+
+  private static List<RowColumn> rowColumns(String... rows) {
+    List<RowColumn> rowColumns = new ArrayList<>();
+    for (String row : rows) {
+      rowColumns.add(new RowColumn(Bytes.of(row), COL));
+    }
+    return rowColumns;
+  }
+
+  private static void assertFailed(CompletableFuture<Bytes> future) throws Exception {
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      Assert.fail();
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+  }
+
+  @Test
+  public void testBatches() throws Exception {
+    AsyncReadExecutor executor = newExecutor(2, 100_000, 2);
+    FakeReader fakeReader = new FakeReader();
+    AsyncReader reader = new AsyncReader(fakeReader, executor);
+
+    long t1 = System.nanoTime();
+    List<CompletableFuture<Bytes>> futures = get(reader, "r1", "r2", "r3", "r4", "r5");
+
+    // the gets made while the first batch lingered are split by the batch max
+    Read read1 = fakeReader.take();
+    Assert.assertTrue(System.nanoTime() - t1 >= TimeUnit.MICROSECONDS.toNanos(100_000));
+    Assert.assertEquals(rowColumns("r1", "r2"), read1.rowColumns);
+
+    // one batch per transaction is read at a time
+    Assert.assertNull(fakeReader.reads.poll(100, TimeUnit.MILLISECONDS));
+    read1.complete();
+    Assert.assertEquals(Bytes.of("r1"), futures.get(0).get());
+    Assert.assertEquals(Bytes.of("r2"), futures.get(1).get());
+
+    // gets that waited behind a batch are read without lingering again
+    t1 = System.nanoTime();
+    Read read2 = fakeReader.take();
+    Assert.assertTrue(System.nanoTime() - t1 < TimeUnit.MICROSECONDS.toNanos(100_000));
+    Assert.assertEquals(rowColumns("r3", "r4"), read2.rowColumns);
+    read2.complete();
+    Read read3 = fakeReader.take();
+    Assert.assertEquals(rowColumns("r5"), read3.rowColumns);
+    read3.complete();
+
+    for (int i = 2; i < futures.size(); i++) {
+      Assert.assertEquals(Bytes.of("r" + (i + 1)), futures.get(i).get());
+    }
+
+    executor.close();
+  }
+
+  @Test
+  public void testSharedPool() throws Exception {
+    AsyncReadExecutor executor = newExecutor(1, 0, 1000);
+
+    // the first reader holds the only thread while it reads
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    FakeReader fakeReader1 = new FakeReader() {
+      @Override
+      public CompletableFuture<Map<RowColumn, Bytes>> read(Collection<RowColumn> rowColumns,
+          Executor executor) {
+        reading.countDown();
+        Uninterruptibles.awaitUninterruptibly(release);
+        return super.read(rowColumns, executor);
+      }
+    };
+    FakeReader fakeReader2 = new FakeReader();
+    AsyncReader reader1 = new AsyncReader(fakeReader1, executor);
+    AsyncReader reader2 = new AsyncReader(fakeReader2, executor);
+
+    CompletableFuture<Bytes> f1 = reader1.get(Bytes.of("r1"), COL);
+    reading.await();
+    CompletableFuture<Bytes> f2 = reader2.get(Bytes.of("r2"), COL);
+    // the pool is bounded, so the second transaction waits for the thread
+    Assert.assertNull(fakeReader2.reads.poll(100, TimeUnit.MILLISECONDS));
+
+    release.countDown();
+    fakeReader1.take().complete();
+    fakeReader2.take().complete();
+    Assert.assertEquals(Bytes.of("r1"), f1.get());
+    Assert.assertEquals(Bytes.of("r2"), f2.get());
+
+    executor.close();
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    AsyncReadExecutor executor = newExecutor(1, 0, 1);
+    FakeReader fakeReader = new FakeReader();
+    AsyncReader reader = new AsyncReader(fakeReader, executor);
+
+    // a batch being read and a get queued behind it
+    List<CompletableFuture<Bytes>> futures = get(reader, "r1");
+    fakeReader.take();
+    futures.addAll(get(reader, "r2"));
+
+    // a reader whose batch lingers
+    AsyncReadExecutor lingerExecutor = newExecutor(1, 60_000_000, 1000);
+    FakeReader lingerFakeReader = new FakeReader();
+    AsyncReader lingerReader = new AsyncReader(lingerFakeReader, lingerExecutor);
+    CompletableFuture<Bytes> lingering = lingerReader.get(Bytes.of("r3"), COL);
+
+    executor.close();
+    lingerExecutor.close();
+    for (CompletableFuture<Bytes> future : futures) {
+      assertFailed(future);
+    }
+    assertFailed(lingering);
+
+    // gets made after close fail instead of waiting on a batch that will never run
+    assertFailed(reader.get(Bytes.of("r4"), COL));
+    assertFailed(lingerReader.get(Bytes.of("r5"), COL));
+    Assert.assertTrue(fakeReader.reads.isEmpty());
+    Assert.assertTrue(lingerFakeReader.reads.isEmpty());
+  }
+
+  @Test
+  public void testFailedRead() throws Exception {
+    AsyncReadExecutor executor = newExecutor(1, 0, 1000);
+    AtomicBoolean fail = new AtomicBoolean(true);
+    FakeReader fakeReader = new FakeReader() {
+      @Override
+      public CompletableFuture<Map<RowColumn, Bytes>> read(Collection<RowColumn> rowColumns,
+          Executor executor) {
+        if (fail.get()) {
+          throw new IllegalStateException("read failed");
+        }
+        return super.read(rowColumns, executor);
+      }
+    };
+    AsyncReader reader = new AsyncReader(fakeReader, executor);
+
+    try {
+      reader.get(Bytes.of("r1"), COL).get(10, TimeUnit.SECONDS);
+      Assert.fail();
+    } catch (ExecutionException e) {
+      Assert.assertEquals("read failed", e.getCause().getMessage());
+    }
+
+    // the failed batch does not leave the reader with a batch scheduled
+    fail.set(false);
+    CompletableFuture<Bytes> f2 = reader.get(Bytes.of("r2"), COL);
+    fakeReader.take().complete();
+    Assert.assertEquals(Bytes.of("r2"), f2.get(10, TimeUnit.SECONDS));
+
+    executor.close();
+  }
+}
@@ -42,4 +42,35 @@ public class FluoConfigurationImplTest {
 
     Assert.assertEquals(5, FluoConfigurationImpl.getNumCWThreads(conf, 3));
   }
+
+  private static void assertBadValue(Runnable getter) {
+    try {
+      getter.run();
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertTrue(e.getMessage().startsWith("Bad value for "));
+    }
+  }
+
+  @Test
+  public void testParallelScan() {
+    FluoConfiguration conf = new FluoConfiguration();
+
+    Assert.assertEquals(FluoConfigurationImpl.PARALLEL_SCAN_THREADS_MAX_DEFAULT,
+        FluoConfigurationImpl.getParallelScanMaxThreads(conf));
+    Assert.assertEquals(FluoConfigurationImpl.PARALLEL_SCAN_THREADS_BUDGET_DEFAULT,
+        FluoConfigurationImpl.getParallelScanThreadBudget(conf));
+    Assert.assertEquals(FluoConfigurationImpl.PARALLEL_SCAN_SPLITS_REFRESH_DEFAULT,
+        FluoConfigurationImpl.getParallelScanSplitsRefresh(conf));
+
+    conf.setProperty(FluoConfigurationImpl.PARALLEL_SCAN_THREADS_BUDGET, 0);
+    Assert.assertEquals(0, FluoConfigurationImpl.getParallelScanThreadBudget(conf));
+
+    conf.setProperty(FluoConfigurationImpl.PARALLEL_SCAN_THREADS_MAX, 0);
+    conf.setProperty(FluoConfigurationImpl.PARALLEL_SCAN_THREADS_BUDGET, -1);
+    conf.setProperty(FluoConfigurationImpl.PARALLEL_SCAN_SPLITS_REFRESH, 0);
+    assertBadValue(() -> FluoConfigurationImpl.getParallelScanMaxThreads(conf));
+    assertBadValue(() -> FluoConfigurationImpl.getParallelScanThreadBudget(conf));
+    assertBadValue(() -> FluoConfigurationImpl.getParallelScanSplitsRefresh(conf));
+  }
 }
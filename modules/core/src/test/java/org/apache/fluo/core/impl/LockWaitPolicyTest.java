@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LockWaitPolicyTest {
+
+  @Test
+  public void testBackoff() {
+    LockWaitPolicy policy = new LockWaitPolicy(50, 300);
+    Assert.assertEquals(50, policy.nextWait());
+    Assert.assertEquals(100, policy.nextWait());
+    Assert.assertEquals(200, policy.nextWait());
+    Assert.assertEquals(300, policy.nextWait());
+    Assert.assertEquals(300, policy.nextWait());
+  }
+
+  @Test
+  public void testFixed() {
+    LockWaitPolicy policy = new LockWaitPolicy(20, 20);
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals(20, policy.nextWait());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadTimes() {
+    new LockWaitPolicy(100, 50);
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.concurrent.Semaphore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.apache.fluo.core.impl.ParallelSnapshotScanner.acquireQueryThreads;
+import static org.apache.fluo.core.impl.ParallelSnapshotScanner.releaseQueryThreads;
+
+public class ParallelSnapshotScannerTest {
+
+  @Test
+  public void testAcquireQueryThreads() {
+    Semaphore budget = new Semaphore(5);
+
+    // limited by the max threads
+    int threads1 = acquireQueryThreads(10, 4, budget);
+    Assert.assertEquals(4, threads1);
+    Assert.assertEquals(2, budget.availablePermits());
+
+    // one tablet only needs the thread that does not come from the budget
+    Assert.assertEquals(1, acquireQueryThreads(1, 4, budget));
+    Assert.assertEquals(2, budget.availablePermits());
+
+    // limited by the budget
+    int threads2 = acquireQueryThreads(8, 8, budget);
+    Assert.assertEquals(3, threads2);
+    Assert.assertEquals(0, budget.availablePermits());
+
+    // an exhausted budget still leaves one thread
+    Assert.assertEquals(1, acquireQueryThreads(8, 8, budget));
+
+    releaseQueryThreads(threads1, budget);
+    Assert.assertEquals(3, budget.availablePermits());
+    releaseQueryThreads(threads2, budget);
+    Assert.assertEquals(5, budget.availablePermits());
+    releaseQueryThreads(1, budget);
+    Assert.assertEquals(5, budget.availablePermits());
+  }
+}
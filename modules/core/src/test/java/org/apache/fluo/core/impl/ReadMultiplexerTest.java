@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.core.metrics.MetricNames;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReadMultiplexerTest {
+
+  private static final MetricNames METRIC_NAMES = new MetricNames("test", "test");
+  private static final Column COL = new Column("f", "q");
+
+  // no client, so any batch that is dispatched fails its scan
+  private static ReadMultiplexer newMultiplexer(long windowMicros, int batchMax) {
+    FluoConfiguration conf = new FluoConfiguration();
+    conf.setProperty(FluoConfigurationImpl.READ_COALESCE_WINDOW, windowMicros);
+    conf.setProperty(FluoConfigurationImpl.READ_COALESCE_BATCH_MAX, batchMax);
+    return new ReadMultiplexer(conf, METRIC_NAMES, new MetricRegistry(), null, "test");
+  }
+
+  private static CompletableFuture<List<Entry<Key, Value>>> read(ReadMultiplexer rm, String row,
+      long startTs) {
+    return rm.read(Bytes.of(row), Collections.singleton(COL), startTs, Authorizations.EMPTY);
+  }
+
+  @Test
+  public void testFailedScan() throws Exception {
+    ReadMultiplexer rm = newMultiplexer(60_000_000, 1);
+    // the transaction reads it itself
+    Assert.assertNull(read(rm, "r1", 10).get(10, TimeUnit.SECONDS));
+    rm.close();
+  }
+
+  @Test
+  public void testCloseDuringWindow() throws Exception {
+    // a window long enough that only close can end the batch
+    ReadMultiplexer rm = newMultiplexer(60_000_000, 100);
+
+    CompletableFuture<List<Entry<Key, Value>>> f1 = read(rm, "r1", 10);
+    CompletableFuture<List<Entry<Key, Value>>> f2 = read(rm, "r2", 20);
+    // let the dispatcher take the reads into the batch it is gathering
+    Thread.sleep(100);
+    Assert.assertFalse(f1.isDone());
+
+    // reads in the batch being gathered and reads made after close complete
+    rm.close();
+    Assert.assertNull(f1.get(10, TimeUnit.SECONDS));
+    Assert.assertNull(f2.get(10, TimeUnit.SECONDS));
+    Assert.assertNull(read(rm, "r3", 30).get(10, TimeUnit.SECONDS));
+  }
+}
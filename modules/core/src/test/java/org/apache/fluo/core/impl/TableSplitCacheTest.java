@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.accumulo.core.data.Range;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TableSplitCacheTest {
+
+  private static List<Range> rows(String... rows) {
+    List<Range> ranges = new ArrayList<>();
+    for (String row : rows) {
+      ranges.add(Range.exact(row));
+    }
+    return ranges;
+  }
+
+  @Test
+  public void testCountTablets() {
+    Collection<Text> splits = Arrays.asList(new Text("m"), new Text("d"));
+    TableSplitCache cache = new TableSplitCache(() -> splits, 60000);
+
+    // tablets end with their split row
+    Assert.assertEquals(1, cache.countTablets(rows("a", "b", "d"), 8));
+    Assert.assertEquals(2, cache.countTablets(rows("a", "e"), 8));
+    Assert.assertEquals(3, cache.countTablets(rows("a", "e", "m", "n", "z"), 8));
+    Assert.assertEquals(2, cache.countTablets(rows("a", "e", "m", "n", "z"), 2));
+    Assert.assertEquals(2, cache.countTablets(Arrays.asList(new Range(), Range.exact("z")), 8));
+
+    TableSplitCache noSplits = new TableSplitCache(Collections::emptyList, 60000);
+    Assert.assertEquals(1, noSplits.countTablets(rows("a", "e", "z"), 8));
+  }
+
+  @Test
+  public void testRefresh() throws Exception {
+    AtomicInteger reads = new AtomicInteger();
+    TableSplitCache cache = new TableSplitCache(() -> {
+      reads.incrementAndGet();
+      return Collections.singletonList(new Text("m"));
+    }, 60000);
+
+    cache.countTablets(rows("a", "z"), 8);
+    cache.countTablets(rows("a", "z"), 8);
+    Assert.assertEquals(1, reads.get());
+
+    TableSplitCache refreshed = new TableSplitCache(() -> {
+      reads.incrementAndGet();
+      return Collections.singletonList(new Text("m"));
+    }, 1);
+    refreshed.countTablets(rows("a", "z"), 8);
+    Thread.sleep(10);
+    refreshed.countTablets(rows("a", "z"), 8);
+    Assert.assertEquals(3, reads.get());
+  }
+}
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
+import org.apache.fluo.core.metrics.MetricNames;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TxInfoCacheTest {
+
+  private static final MetricNames METRIC_NAMES = new MetricNames("test", "test");
+  private static final Column COL = new Column("f", "q");
+
+  /**
+   * Reports every transaction read with the configured status and a commit time one after its start
+   * time, and records the transactions of each read.
+   */
+  private static class FakeReader
+      implements Function<Collection<PrimaryRowColumn>, Map<PrimaryRowColumn, TxInfo>> {
+    final List<Collection<PrimaryRowColumn>> reads = new ArrayList<>();
+    TxStatus status = TxStatus.COMMITTED;
+    boolean fail = false;
+
+    @Override
+    public Map<PrimaryRowColumn, TxInfo> apply(Collection<PrimaryRowColumn> keys) {
+      reads.add(new HashSet<>(keys));
+      if (fail) {
+        throw new IllegalStateException("read failed");
+      }
+      Map<PrimaryRowColumn, TxInfo> txInfos = new HashMap<>();
+      for (PrimaryRowColumn key : keys) {
+        txInfos.put(key, new TxInfo(status, key.startTs + 1));
+      }
+      return txInfos;
+    }
+  }
+
+  private static PrimaryRowColumn newKey(String row, long startTs) {
+    return new PrimaryRowColumn(Bytes.of(row), COL, startTs);
+  }
+
+  @Test
+  public void testSharedLookup() throws Exception {
+    FakeReader reader = new FakeReader();
+    MetricRegistry registry = new MetricRegistry();
+    TxInfoCache cache = new TxInfoCache(new FluoConfiguration(), METRIC_NAMES, registry, reader);
+    List<Runnable> reads = new ArrayList<>();
+
+    PrimaryRowColumn key1 = newKey("r1", 10);
+    PrimaryRowColumn key2 = newKey("r2", 20);
+
+    CompletableFuture<Map<PrimaryRowColumn, TxInfo>> f1 =
+        cache.getTransactionInfosAsync(ImmutableSet.of(key1), reads::add);
+    // key1 is being read by the first lookup, so only key2 is read by the second
+    CompletableFuture<Map<PrimaryRowColumn, TxInfo>> f2 =
+        cache.getTransactionInfosAsync(ImmutableSet.of(key1, key2), reads::add);
+    Assert.assertEquals(2, reads.size());
+    Assert.assertEquals(1, registry.meter(METRIC_NAMES.getTxInfoSharedLookups()).getCount());
+    Assert.assertEquals(2, registry.meter(METRIC_NAMES.getTxInfoCacheMisses()).getCount());
+
+    reads.get(0).run();
+    Assert.assertTrue(f1.isDone());
+    Assert.assertFalse(f2.isDone());
+    reads.get(1).run();
+
+    Assert.assertEquals(Arrays.asList(ImmutableSet.of(key1), ImmutableSet.of(key2)),
+        reader.reads);
+    Assert.assertSame(f1.get().get(key1), f2.get().get(key1));
+    Assert.assertEquals(11, f2.get().get(key1).getCommitTs());
+    Assert.assertEquals(21, f2.get().get(key2).getCommitTs());
+
+    // committed transactions are cached
+    Assert.assertEquals(11, cache.getTransactionInfo(key1).getCommitTs());
+    Assert.assertEquals(2, reader.reads.size());
+    Assert.assertEquals(1, registry.meter(METRIC_NAMES.getTxInfoCacheHits()).getCount());
+  }
+
+  @Test
+  public void testStatusNotCached() {
+    FakeReader reader = new FakeReader();
+    reader.status = TxStatus.LOCKED;
+    TxInfoCache cache =
+        new TxInfoCache(new FluoConfiguration(), METRIC_NAMES, new MetricRegistry(), reader);
+
+    PrimaryRowColumn key = newKey("r1", 10);
+    Assert.assertEquals(TxStatus.LOCKED, cache.getTransactionInfo(key).getStatus());
+
+    // a lock may be resolved at any time, so it is read again
+    reader.status = TxStatus.ROLLED_BACK;
+    Assert.assertEquals(TxStatus.ROLLED_BACK, cache.getTransactionInfo(key).getStatus());
+    Assert.assertEquals(TxStatus.ROLLED_BACK, cache.getTransactionInfo(key).getStatus());
+    Assert.assertEquals(2, reader.reads.size());
+  }
+
+  @Test
+  public void testFailedLookup() throws Exception {
+    FakeReader reader = new FakeReader();
+    reader.fail = true;
+    TxInfoCache cache =
+        new TxInfoCache(new FluoConfiguration(), METRIC_NAMES, new MetricRegistry(), reader);
+    List<Runnable> reads = new ArrayList<>();
+
+    PrimaryRowColumn key = newKey("r1", 10);
+    CompletableFuture<Map<PrimaryRowColumn, TxInfo>> f1 =
+        cache.getTransactionInfosAsync(Collections.singleton(key), reads::add);
+    CompletableFuture<Map<PrimaryRowColumn, TxInfo>> f2 =
+        cache.getTransactionInfosAsync(Collections.singleton(key), reads::add);
+    Assert.assertEquals(1, reads.size());
+    reads.get(0).run();
+
+    // both lookups sharing the read fail
+    for (CompletableFuture<Map<PrimaryRowColumn, TxInfo>> future : Arrays.asList(f1, f2)) {
+      try {
+        future.get();
+        Assert.fail();
+      } catch (ExecutionException e) {
+        Assert.assertEquals("read failed", e.getCause().getMessage());
+      }
+    }
+
+    // a failed read is not shared with later lookups
+    reader.fail = false;
+    Assert.assertEquals(11, cache.getTransactionInfo(key).getCommitTs());
+    Assert.assertEquals(2, reader.reads.size());
+
+    // nor is a read the executor rejected
+    PrimaryRowColumn key2 = newKey("r2", 20);
+    CompletableFuture<Map<PrimaryRowColumn, TxInfo>> f3 =
+        cache.getTransactionInfosAsync(Collections.singleton(key2), r -> {
+          throw new RejectedExecutionException();
+        });
+    Assert.assertTrue(f3.isCompletedExceptionally());
+    Assert.assertEquals(21, cache.getTransactionInfo(key2).getCommitTs());
+  }
+
+  @Test
+  public void testQueuedLookups() throws Exception {
+    FakeReader reader = new FakeReader();
+    FluoConfiguration conf = new FluoConfiguration();
+    conf.setProperty(FluoConfigurationImpl.COMMIT_STATUS_THREADS, 1);
+    TxInfoCache cache = new TxInfoCache(conf, METRIC_NAMES, new MetricRegistry(), reader);
+    List<Runnable> reads = new ArrayList<>();
+
+    PrimaryRowColumn key1 = newKey("r1", 10);
+    PrimaryRowColumn key2 = newKey("r2", 20);
+    PrimaryRowColumn key3 = newKey("r3", 30);
+
+    CompletableFuture<TxInfo> f1 = cache.getTransactionInfoAsync(key1, reads::add);
+    CompletableFuture<TxInfo> f2 = cache.getTransactionInfoAsync(key2, reads::add);
+    CompletableFuture<TxInfo> f3 = cache.getTransactionInfoAsync(key1, reads::add);
+    // with one thread, only one batch is scheduled at a time
+    Assert.assertEquals(1, reads.size());
+    Assert.assertSame(f1, f3);
+
+    reads.get(0).run();
+    Assert.assertEquals(11, f1.get().getCommitTs());
+    Assert.assertEquals(21, f2.get().getCommitTs());
+    Assert.assertEquals(Collections.singletonList(ImmutableSet.of(key1, key2)), reader.reads);
+
+    // lookups queued after a batch was read schedule another
+    CompletableFuture<TxInfo> f4 = cache.getTransactionInfoAsync(key3, reads::add);
+    Assert.assertEquals(2, reads.size());
+    reads.get(1).run();
+    Assert.assertEquals(31, f4.get().getCommitTs());
+    Assert.assertEquals(ImmutableSet.of(key3), reader.reads.get(1));
+
+    // cached transactions are not read again
+    Assert.assertTrue(cache.getTransactionInfoAsync(key1, reads::add).isDone());
+    Assert.assertEquals(2, reads.size());
+
+    // lookups the executor rejected fail and are not left queued
+    PrimaryRowColumn key4 = newKey("r4", 40);
+    CompletableFuture<TxInfo> f5 = cache.getTransactionInfoAsync(key4, r -> {
+      throw new RejectedExecutionException();
+    });
+    Assert.assertTrue(f5.isCompletedExceptionally());
+    Assert.assertEquals(41, cache.getTransactionInfoAsync(key4, Runnable::run).get().getCommitTs());
+  }
+
+  @Test
+  public void testBlockedBatch() throws Exception {
+    PrimaryRowColumn key1 = newKey("r1", 10);
+    PrimaryRowColumn key2 = newKey("r2", 20);
+
+    FakeReader fakeReader = new FakeReader();
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch unblock = new CountDownLatch(1);
+    // reads of key1 wait, like a scan of a tablet that is not hosted
+    Function<Collection<PrimaryRowColumn>, Map<PrimaryRowColumn, TxInfo>> reader = keys -> {
+      if (keys.contains(key1)) {
+        reading.countDown();
+        Uninterruptibles.awaitUninterruptibly(unblock);
+      }
+      synchronized (fakeReader) {
+        return fakeReader.apply(keys);
+      }
+    };
+
+    FluoConfiguration conf = new FluoConfiguration();
+    conf.setProperty(FluoConfigurationImpl.COMMIT_STATUS_THREADS, 2);
+    TxInfoCache cache = new TxInfoCache(conf, METRIC_NAMES, new MetricRegistry(), reader);
+    ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      CompletableFuture<TxInfo> f1 = cache.getTransactionInfoAsync(key1, executor);
+      reading.await();
+
+      // read by another batch while the first one waits
+      Assert.assertEquals(21,
+          cache.getTransactionInfoAsync(key2, executor).get(10, TimeUnit.SECONDS).getCommitTs());
+      Assert.assertFalse(f1.isDone());
+
+      unblock.countDown();
+      Assert.assertEquals(11, f1.get(10, TimeUnit.SECONDS).getCommitTs());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testGroupByPrimary() {
+    PrimaryRowColumn key1 = newKey("r1", 10);
+    PrimaryRowColumn key2 = newKey("r1", 20);
+    PrimaryRowColumn key3 = newKey("r1", 30);
+    PrimaryRowColumn key4 = newKey("r2", 10);
+
+    // transactions that used the same primary column are checked in separate scans
+    List<Map<RowColumn, PrimaryRowColumn>> groups =
+        TxInfo.groupByPrimary(Arrays.asList(key1, key2, key4, key3));
+
+    RowColumn rc1 = new RowColumn(Bytes.of("r1"), COL);
+    RowColumn rc2 = new RowColumn(Bytes.of("r2"), COL);
+    Assert.assertEquals(Arrays.asList(ImmutableMap.of(rc1, key1, rc2, key4),
+        ImmutableMap.of(rc1, key2), ImmutableMap.of(rc1, key3)), groups);
+
+    Assert.assertTrue(TxInfo.groupByPrimary(Collections.emptyList()).isEmpty());
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TxReadCacheTest {
+
+  private static final Bytes ROW = Bytes.of("r1");
+  private static final Column COL1 = new Column("f", "q1");
+  private static final Column COL2 = new Column("f", "q2");
+  private static final Column COL3 = new Column("f", "q3");
+
+  @Test
+  public void testBasic() {
+    TxReadCache cache = new TxReadCache(100);
+    Set<Column> cols = ImmutableSet.of(COL1, COL2);
+
+    Map<Column, Bytes> result = new HashMap<>();
+    Assert.assertEquals(cols, cache.get(ROW, cols, result));
+    Assert.assertTrue(result.isEmpty());
+    Assert.assertNull(cache.get(ROW, COL1));
+
+    // COL2 was read and had no value
+    cache.put(ROW, cols, ImmutableMap.of(COL1, Bytes.of("v1")));
+
+    Assert.assertEquals(ImmutableSet.of(), cache.get(ROW, cols, result));
+    Assert.assertEquals(ImmutableMap.of(COL1, Bytes.of("v1")), result);
+    Assert.assertEquals(Bytes.of("v1"), cache.get(ROW, COL1));
+    Assert.assertTrue(TxReadCache.isAbsent(cache.get(ROW, COL2)));
+    Assert.assertFalse(TxReadCache.isAbsent(cache.get(ROW, COL1)));
+
+    result.clear();
+    Assert.assertEquals(ImmutableSet.of(COL3),
+        cache.get(ROW, ImmutableSet.of(COL1, COL2, COL3), result));
+    Assert.assertEquals(ImmutableMap.of(COL1, Bytes.of("v1")), result);
+
+    cache.put(ROW, COL3, null);
+    Assert.assertTrue(TxReadCache.isAbsent(cache.get(ROW, COL3)));
+    Assert.assertNull(cache.get(Bytes.of("r2"), COL3));
+  }
+
+  @Test
+  public void testUnrequestedColumn() {
+    TxReadCache cache = new TxReadCache(100);
+
+    // reading a column without a visibility returned a cell with a visibility
+    Column visCol = new Column("f", "q1", "A");
+    cache.put(ROW, ImmutableSet.of(COL1), ImmutableMap.of(visCol, Bytes.of("v")));
+    Assert.assertNull(cache.get(ROW, COL1));
+  }
+
+  @Test
+  public void testMaxCells() {
+    TxReadCache cache = new TxReadCache(2);
+    cache.put(ROW, ImmutableSet.of(COL1, COL2), ImmutableMap.of());
+    cache.put(ROW, COL3, Bytes.of("v3"));
+    Assert.assertNull(cache.get(ROW, COL3));
+    Assert.assertNotNull(cache.get(ROW, COL2));
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.oracle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StampRequestQueueTest {
+
+  @Test
+  public void testOrder() throws Exception {
+    StampRequestQueue queue = new StampRequestQueue();
+
+    CompletableFuture<Stamp> cf1 = new CompletableFuture<>();
+    CompletableFuture<Stamp> cf2 = new CompletableFuture<>();
+    queue.addAsync(cf1);
+    StampRequestQueue.Request request = queue.add();
+    queue.addAsync(cf2);
+
+    List<StampRequestQueue.Request> batch = new ArrayList<>();
+    Assert.assertEquals(3, queue.drainTo(batch, 1, TimeUnit.SECONDS));
+    Assert.assertSame(request, batch.get(1));
+    for (int i = 0; i < batch.size(); i++) {
+      batch.get(i).complete(10 + i, 5);
+    }
+
+    Assert.assertEquals(10, cf1.get().getTxTimestamp());
+    Assert.assertTrue(request.await(1, TimeUnit.SECONDS));
+    Assert.assertEquals(11, request.getStamp().getTxTimestamp());
+    Assert.assertEquals(5, request.getStamp().getGcTimestamp());
+    Assert.assertEquals(12, cf2.get().getTxTimestamp());
+
+    batch.clear();
+    Assert.assertEquals(0, queue.drainTo(batch, 1, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testReuse() throws Exception {
+    StampRequestQueue queue = new StampRequestQueue();
+    List<StampRequestQueue.Request> batch = new ArrayList<>();
+
+    StampRequestQueue.Request request = queue.add();
+    queue.drainTo(batch, 1, TimeUnit.SECONDS);
+    batch.get(0).complete(10, 5);
+    Assert.assertTrue(request.await(1, TimeUnit.SECONDS));
+
+    // a request that was answered is reused by the same thread
+    Assert.assertSame(request, queue.add());
+    Assert.assertFalse(request.await(1, TimeUnit.MILLISECONDS));
+
+    // one that may still be answered is not
+    queue.abandon(request);
+    StampRequestQueue.Request request2 = queue.add();
+    Assert.assertNotSame(request, request2);
+
+    batch.clear();
+    Assert.assertEquals(2, queue.drainTo(batch, 1, TimeUnit.SECONDS));
+    batch.get(0).complete(11, 5);
+    batch.get(1).complete(12, 5);
+    Assert.assertTrue(request2.await(1, TimeUnit.SECONDS));
+    Assert.assertEquals(12, request2.getStamp().getTxTimestamp());
+  }
+
+  @Test
+  public void testWakesTaker() throws Exception {
+    StampRequestQueue queue = new StampRequestQueue();
+
+    Thread taker = new Thread(() -> {
+      List<StampRequestQueue.Request> batch = new ArrayList<>();
+      while (batch.isEmpty()) {
+        queue.drainTo(batch, 1, TimeUnit.MINUTES);
+      }
+      batch.get(0).complete(42, 5);
+    });
+    taker.start();
+
+    StampRequestQueue.Request request = queue.add();
+    Assert.assertTrue(request.await(1, TimeUnit.MINUTES));
+    Assert.assertEquals(42, request.getStamp().getTxTimestamp());
+    taker.join();
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.oracle;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimestampBlockSizerTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void testStartsSmall() {
+    TimestampBlockSizer sizer = new TimestampBlockSizer(1000, 1_000_000);
+    Assert.assertEquals(1000, sizer.nextBlockSize(2, 0));
+    Assert.assertEquals(1000, sizer.getBlockSize());
+  }
+
+  @Test
+  public void testGrowsUnderLoad() {
+    TimestampBlockSizer sizer = new TimestampBlockSizer(1000, 1_000_000);
+
+    long ts = 2;
+    long time = 0;
+    long prev = sizer.nextBlockSize(ts, time);
+
+    // 200,000 stamps a second needs more than the max to cover the target period
+    for (int i = 0; i < 20; i++) {
+      long size = sizer.nextBlockSize(ts += prev, time += prev * SECOND / 200_000);
+      Assert.assertTrue(size >= prev);
+      Assert.assertTrue(size <= prev * 2);
+      prev = size;
+    }
+
+    Assert.assertEquals(1_000_000, prev);
+  }
+
+  @Test
+  public void testShrinksWhenIdle() {
+    TimestampBlockSizer sizer = new TimestampBlockSizer(1000, 1_000_000);
+
+    long ts = 2;
+    long time = 0;
+    long size = sizer.nextBlockSize(ts, time);
+    for (int i = 0; i < 20; i++) {
+      size = sizer.nextBlockSize(ts += size, time += size * SECOND / 200_000);
+    }
+
+    for (int i = 0; i < 20; i++) {
+      size = sizer.nextBlockSize(ts += 10, time += 60 * SECOND);
+    }
+
+    Assert.assertEquals(1000, size);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadSizes() {
+    new TimestampBlockSizer(1000, 10);
+  }
+}
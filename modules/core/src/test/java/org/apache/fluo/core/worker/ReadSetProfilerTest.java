@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.worker;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReadSetProfilerTest {
+
+  private static final Column COL_A = new Column("f", "a");
+  private static final Column COL_B = new Column("f", "b");
+  private static final Column COL_C = new Column("f", "c");
+
+  private static Map<Bytes, Set<Column>> reads(String row, Column... cols) {
+    Map<Bytes, Set<Column>> read = new HashMap<>();
+    read.put(Bytes.of(row), new HashSet<>(Arrays.asList(cols)));
+    return read;
+  }
+
+  @Test
+  public void testPredict() {
+    ReadSetProfiler profiler = new ReadSetProfiler(50);
+
+    for (int i = 0; i < ReadSetProfiler.MIN_SAMPLES; i++) {
+      Assert.assertEquals(Collections.emptyList(), profiler.predict("o1", Bytes.of("x:" + i)));
+
+      String row = "x:" + i;
+      Map<Bytes, Set<Column>> read = reads(row, COL_A);
+      // a row derived from the notification row by prefix
+      read.put(Bytes.of("x:"), Collections.singleton(COL_B));
+      // rows that can not be derived from the notification row are not learned
+      read.put(Bytes.of("y" + i), Collections.singleton(COL_A));
+      if (i % 3 == 0) {
+        read.get(Bytes.of(row)).add(COL_C);
+      }
+      profiler.record("o1", Bytes.of(row), read);
+    }
+
+    Set<RowColumn> expected = new HashSet<>(Arrays.asList(new RowColumn("x:99", COL_A),
+        new RowColumn("x:", COL_B)));
+    Assert.assertEquals(expected, new HashSet<>(profiler.predict("o1", Bytes.of("x:99"))));
+    Assert.assertEquals(Collections.emptyList(), profiler.predict("o2", Bytes.of("x:99")));
+
+    // the prefix row can not be derived from a shorter notification row
+    Assert.assertEquals(Collections.singletonList(new RowColumn("x", COL_A)),
+        profiler.predict("o1", Bytes.of("x")));
+  }
+
+  @Test
+  public void testDecay() {
+    ReadSetProfiler profiler = new ReadSetProfiler(50);
+
+    for (int i = 0; i < ReadSetProfiler.DECAY_SAMPLES; i++) {
+      profiler.record("o1", Bytes.of("r" + i), reads("r" + i, COL_A));
+    }
+    Assert.assertEquals(Collections.singletonList(new RowColumn("q", COL_A)),
+        profiler.predict("o1", Bytes.of("q")));
+
+    // the observer stops reading COL_A and starts reading COL_B
+    for (int i = 0; i < ReadSetProfiler.DECAY_SAMPLES; i++) {
+      profiler.record("o1", Bytes.of("r" + i), reads("r" + i, COL_B));
+    }
+    Assert.assertEquals(Collections.singletonList(new RowColumn("q", COL_B)),
+        profiler.predict("o1", Bytes.of("q")));
+  }
+
+  @Test
+  public void testCountHits() {
+    Map<Bytes, Set<Column>> read = reads("r1", COL_A, COL_B);
+    Assert.assertEquals(2, ReadSetProfiler.countHits(Arrays.asList(new RowColumn("r1", COL_A),
+        new RowColumn("r1", COL_B), new RowColumn("r1", COL_C), new RowColumn("r2", COL_A)), read));
+  }
+}
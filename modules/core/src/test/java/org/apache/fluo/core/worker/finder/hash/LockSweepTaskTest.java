@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.core.worker.finder.hash;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import org.apache.fluo.api.data.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+public class LockSweepTaskTest {
+
+  @Test
+  public void testMyRanges() {
+    IntFunction<String> nff = i -> String.format("f-%04d", i);
+
+    for (int numSplits : new int[] {1, 10, 100}) {
+      for (int numWorkers : new int[] {1, 5, 11}) {
+        for (int groupSize : new int[] {1, 2, 3, 7}) {
+          TreeSet<String> children = new TreeSet<>();
+          IntStream.range(0, numWorkers).mapToObj(nff).forEach(children::add);
+
+          Collection<Bytes> rows = IntStream.iterate(0, i -> i + 1000).limit(numSplits)
+              .mapToObj(i -> String.format("r%06d", i)).map(Bytes::of).collect(toList());
+          Collection<TableRange> tablets = TableRange.fromBytes(rows);
+
+          Map<Integer, Set<TableRange>> sweptByGroup = new HashMap<>();
+          Map<Integer, IntSummaryStatistics> countsByGroup = new HashMap<>();
+
+          for (int i = 0; i < numWorkers; i++) {
+            PartitionInfo pi =
+                PartitionManager.getGroupInfo(nff.apply(i), children, tablets, groupSize);
+            List<TableRange> myRanges = LockSweepTask.getMyRanges(pi);
+
+            Set<TableRange> groupsRanges = new HashSet<>();
+            pi.getMyGroupsRanges().forEach(groupsRanges::add);
+
+            // each tablet of a group is swept by one worker in the group
+            Set<TableRange> swept =
+                sweptByGroup.computeIfAbsent(pi.getMyGroupId(), k -> new HashSet<>());
+            for (TableRange tr : myRanges) {
+              Assert.assertTrue(groupsRanges.contains(tr));
+              Assert.assertTrue(swept.add(tr));
+            }
+            countsByGroup.computeIfAbsent(pi.getMyGroupId(), k -> new IntSummaryStatistics())
+                .accept(myRanges.size());
+          }
+
+          Assert.assertEquals(new HashSet<>(tablets), sweptByGroup.values().stream()
+              .flatMap(Set::stream).collect(toSet()));
+
+          // the workers of a group sweep about the same number of tablets
+          for (IntSummaryStatistics counts : countsByGroup.values()) {
+            Assert.assertTrue(counts.getMax() - counts.getMin() < 2);
+          }
+        }
+      }
+    }
+  }
+}
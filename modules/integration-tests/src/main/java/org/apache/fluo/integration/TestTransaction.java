@@ -150,6 +150,10 @@ public final class TestTransaction extends AbstractTransactionBase implements Tr
     return tx.getStats();
   }
 
+  public Map<Bytes, Set<Column>> getColumnsRead() {
+    return tx.getColumnsRead();
+  }
+
   @Override
   public void delete(Bytes row, Column col) {
     tx.delete(row, col);
@@ -185,6 +189,16 @@ public final class TestTransaction extends AbstractTransactionBase implements Tr
     return tx.get(rowColumns);
   }
 
+  @Override
+  public void prefetch(Collection<RowColumn> rowColumns) {
+    tx.prefetch(rowColumns);
+  }
+
+  @Override
+  public void prefetch(Collection<Bytes> rows, Set<Column> columns) {
+    tx.prefetch(rows, columns);
+  }
+
   @Override
   public ScannerBuilder scanner() {
     return tx.scanner();
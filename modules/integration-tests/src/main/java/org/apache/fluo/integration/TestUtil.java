@@ -19,6 +19,9 @@ import org.apache.fluo.api.client.SnapshotBase;
 import org.apache.fluo.api.client.TransactionBase;
 import org.apache.fluo.api.data.Bytes;
 import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.exceptions.CommitException;
+import org.apache.fluo.core.impl.Environment;
+import org.junit.Assert;
 
 public class TestUtil {
 
@@ -43,4 +46,44 @@ public class TestUtil {
     }
     return Integer.parseInt(val);
   }
+
+  /**
+   * Calls done() on a transaction and fails if it commits.
+   */
+  public static void assertCommitFails(TestTransaction tx) {
+    try {
+      tx.done();
+      Assert.fail();
+    } catch (CommitException ce) {
+      // expected
+    }
+  }
+
+  /**
+   * @return the number of calls the conditional writers of an environment have sent to Accumulo
+   */
+  public static long getConditionalWrites(Environment env) {
+    return env.getSharedResources().getMetricRegistry()
+        .timer(env.getMetricNames().getCwQueueTime()).getCount();
+  }
+
+  /**
+   * A commit made while timing commits.
+   */
+  public interface Commit {
+    void run(int i) throws Exception;
+  }
+
+  /**
+   * Makes commits one after another.
+   *
+   * @return the average time of a commit in nanoseconds
+   */
+  public static long timeCommits(int numTxs, Commit commit) throws Exception {
+    long t1 = System.nanoTime();
+    for (int i = 0; i < numTxs; i++) {
+      commit.run(i);
+    }
+    return (System.nanoTime() - t1) / numTxs;
+  }
 }
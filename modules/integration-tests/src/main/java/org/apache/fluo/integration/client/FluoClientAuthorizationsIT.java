@@ -28,6 +28,7 @@ import org.apache.fluo.api.client.Snapshot;
 import org.apache.fluo.api.client.Transaction;
 import org.apache.fluo.api.config.FluoConfiguration;
 import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
 import org.apache.fluo.api.exceptions.CommitException;
 import org.apache.fluo.core.util.AccumuloUtil;
 import org.apache.fluo.integration.ITBaseImpl;
@@ -39,6 +40,7 @@ import org.junit.rules.Timeout;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class FluoClientAuthorizationsIT extends ITBaseImpl {
@@ -124,6 +126,33 @@ public class FluoClientAuthorizationsIT extends ITBaseImpl {
     }
   }
 
+  @Test
+  public void testChangeAuthorizationsAfterRead() {
+    try (Snapshot snapshot = client.newSnapshot()) {
+      snapshot.setScanTimeAuthorizations(ImmutableList.of("PUBLIC"));
+      assertEquals("william", snapshot.gets("bill", name));
+      assertNull(snapshot.gets("bill", ssn));
+
+      // cells read with the old authorizations must not be returned from the read cache
+      snapshot.setScanTimeAuthorizations(ImmutableList.of("PRIVATE"));
+      assertNull(snapshot.gets("bill", name));
+      assertEquals("000-00-0001", snapshot.gets("bill", ssn));
+      assertEquals("1", snapshot.gets("bill", id));
+    }
+  }
+
+  @Test
+  public void testChangeAuthorizationsAfterPrefetch() {
+    try (Transaction txn = client.newTransaction()) {
+      txn.setScanTimeAuthorizations(ImmutableList.of("PUBLIC"));
+      txn.prefetch(ImmutableList.of(new RowColumn("bob", name), new RowColumn("bob", ssn)));
+
+      txn.setScanTimeAuthorizations(ImmutableList.of("PRIVATE"));
+      assertNull(txn.gets("bob", name));
+      assertEquals("000-00-0002", txn.gets("bob", ssn));
+    }
+  }
+
   // had some initial uses where I checked for Authorizations.EMPTY instead of null
   // or empty set of auths, which caused the underlying scanner to scan at max
   // authorizations. I want this call to explicitly say "only read data that is
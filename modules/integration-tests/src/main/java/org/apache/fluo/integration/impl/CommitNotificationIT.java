@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.integration.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
+import org.apache.fluo.api.observer.ObserverProvider;
+import org.apache.fluo.core.impl.Notification;
+import org.apache.fluo.core.impl.TransactionImpl.CommitData;
+import org.apache.fluo.core.oracle.Stamp;
+import org.apache.fluo.core.util.Flutation;
+import org.apache.fluo.integration.ITBaseImpl;
+import org.apache.fluo.integration.TestTransaction;
+import org.apache.fluo.integration.TestUtil;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.apache.fluo.api.observer.Observer.NotificationType.STRONG;
+import static org.apache.fluo.api.observer.Observer.NotificationType.WEAK;
+
+/**
+ * Tests notifications written with the locks and the primary commit of a transaction.
+ */
+public class CommitNotificationIT extends ITBaseImpl {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(getTestTimeout());
+
+  private static final Column DATA = new Column("d", "data");
+  private static final Column OBSERVED = new Column("d", "observed");
+  private static final Column CHANGED = new Column("d", "changed");
+
+  private static final Logger log = LoggerFactory.getLogger(CommitNotificationIT.class);
+
+  public static class NotificationObserverProvider implements ObserverProvider {
+    @Override
+    public void provide(Registry or, Context ctx) {
+      or.forColumn(OBSERVED, STRONG).useStrObserver((tx, row, col) -> {
+      });
+      or.forColumn(CHANGED, WEAK).useStrObserver((tx, row, col) -> {
+      });
+    }
+  }
+
+  @Override
+  protected Class<? extends ObserverProvider> getObserverProviderClass() {
+    return NotificationObserverProvider.class;
+  }
+
+  @Test
+  public void testObserverCollision() throws Exception {
+    TestTransaction tx1 = new TestTransaction(env);
+    tx1.set("r1", DATA, "a");
+    tx1.set("r2", OBSERVED, "a");
+    tx1.done();
+
+    long ntfyTs1 = TestTransaction.getNotificationTS(env, "r2", OBSERVED);
+
+    // the notification for r2 is written when it is locked
+    TestTransaction tx2 = new TestTransaction(env);
+    tx2.set("r1", DATA, "b");
+    tx2.set("r2", OBSERVED, "b");
+    CommitData cd = tx2.createCommitData();
+    Assert.assertTrue(tx2.preCommit(cd, new RowColumn("r1", DATA)));
+    Assert.assertEquals(tx2.getStartTs(), TestTransaction.getNotificationTS(env, "r2", OBSERVED));
+
+    // an observer that started after tx2 and before it commits must not delete its notification
+    TestTransaction tx3 = new TestTransaction(env, "r2", OBSERVED, ntfyTs1);
+    Assert.assertTrue(tx3.getStartTs() > tx2.getStartTs());
+
+    Stamp commitTs = env.getSharedResources().getOracleClient().getStamp();
+    Assert.assertTrue(tx2.commitPrimaryColumn(cd, commitTs));
+    tx2.finishCommit(cd, commitTs);
+    tx2.close();
+
+    tx3.set("r3", DATA, tx3.gets("r2", OBSERVED));
+    TestUtil.assertCommitFails(tx3);
+
+    // the notification is still there to trigger an observer that sees tx2's changes
+    TestTransaction tx4 = new TestTransaction(env, "r2", OBSERVED);
+    Assert.assertEquals("b", tx4.gets("r2", OBSERVED));
+    tx4.done();
+  }
+
+  @Test
+  public void testPrimaryNotification() throws Exception {
+    TestTransaction tx1 = new TestTransaction(env);
+    tx1.set("r1", OBSERVED, "a");
+    tx1.set("r2", DATA, "a");
+    tx1.done();
+
+    // an observer that writes the column that triggered it does not delete its new notification
+    TestTransaction tx2 = new TestTransaction(env, "r1", OBSERVED);
+    tx2.set("r1", OBSERVED, "b");
+    tx2.set("r2", DATA, "b");
+    tx2.done();
+
+    Assert.assertTrue(TestTransaction.getNotificationTS(env, "r1", OBSERVED) > tx2.getStartTs());
+    TestTransaction tx3 = new TestTransaction(env, "r1", OBSERVED);
+    Assert.assertEquals("b", tx3.gets("r1", OBSERVED));
+    tx3.done();
+  }
+
+  @Test
+  public void testWeakNotifications() throws Exception {
+    // weak notifications are not for locked columns, so they are written with the commit timestamp
+    TestTransaction tx1 = new TestTransaction(env);
+    tx1.set("r1", DATA, "a");
+    tx1.setWeakNotification("r1", CHANGED);
+    tx1.setWeakNotification("r2", CHANGED);
+    tx1.done();
+
+    Assert.assertTrue(TestTransaction.getNotificationTS(env, "r1", CHANGED) > tx1.getStartTs());
+    Assert.assertTrue(TestTransaction.getNotificationTS(env, "r2", CHANGED) > tx1.getStartTs());
+
+    TestTransaction tx2 = new TestTransaction(env, "r2", CHANGED);
+    Assert.assertEquals("a", tx2.gets("r1", DATA));
+    tx2.done();
+  }
+
+  @Test
+  public void testConditionalWrites() throws Exception {
+    TestTransaction tx1 = new TestTransaction(env);
+    tx1.set("r1", OBSERVED, "a");
+    tx1.set("r2", OBSERVED, "a");
+    tx1.set("r3", OBSERVED, "a");
+    tx1.set("r4", DATA, "a");
+    tx1.setWeakNotification("r5", CHANGED);
+    CommitData cd = tx1.createCommitData();
+
+    long writes = TestUtil.getConditionalWrites(env);
+    Assert.assertTrue(tx1.preCommit(cd, new RowColumn("r1", OBSERVED)));
+    // the primary lock and the locks of the other rows, with their notifications, are one
+    // conditional write each
+    Assert.assertEquals(writes + 2, TestUtil.getConditionalWrites(env));
+    Assert.assertEquals(tx1.getStartTs(), TestTransaction.getNotificationTS(env, "r2", OBSERVED));
+    Assert.assertEquals(tx1.getStartTs(), TestTransaction.getNotificationTS(env, "r3", OBSERVED));
+
+    Stamp commitTs = env.getSharedResources().getOracleClient().getStamp();
+    Assert.assertTrue(tx1.commitPrimaryColumn(cd, commitTs));
+    tx1.finishCommit(cd, commitTs);
+    tx1.close();
+
+    // the primary notification is written with the commit and the weak notification of another row
+    // by the batch writer, so no conditional write is added for notifications
+    Assert.assertEquals(writes + 3, TestUtil.getConditionalWrites(env));
+    Assert.assertEquals(commitTs.getTxTimestamp(),
+        TestTransaction.getNotificationTS(env, "r1", OBSERVED));
+    Assert.assertEquals(commitTs.getTxTimestamp(),
+        TestTransaction.getNotificationTS(env, "r5", CHANGED));
+  }
+
+  /**
+   * Commits a transaction that writes two observed columns outside its primary row. With a
+   * notification flush, the notifications are written again with a flush of the shared batch writer
+   * once the transaction commits, which is the step commits made before notifications were written
+   * with the locks.
+   */
+  private void commit(String prefix, int i, boolean notificationFlush) throws Exception {
+    TestTransaction tx = new TestTransaction(env);
+    tx.set(prefix + "r" + i, DATA, "v" + i);
+    tx.set(prefix + "s" + i, OBSERVED, "v" + i);
+    tx.set(prefix + "t" + i, OBSERVED, "v" + i);
+    tx.done();
+
+    if (notificationFlush) {
+      List<Mutation> mutations = new ArrayList<>();
+      for (String row : new String[] {prefix + "s" + i, prefix + "t" + i}) {
+        Flutation m = new Flutation(env, Bytes.of(row));
+        Notification.put(env, m, OBSERVED, tx.getStartTs());
+        mutations.add(m);
+      }
+      env.getSharedResources().getBatchWriter().writeMutations(mutations);
+    }
+  }
+
+  @Test
+  public void testLatency() throws Exception {
+    final int numTxs = 200;
+
+    // warm up both ways before timing them
+    TestUtil.timeCommits(20, i -> commit("w1", i, true));
+    TestUtil.timeCommits(20, i -> commit("w2", i, false));
+
+    long flushTime = TestUtil.timeCommits(numTxs, i -> commit("f", i, true));
+    long lockTime = TestUtil.timeCommits(numTxs, i -> commit("l", i, false));
+
+    log.info("Average commit time notification flush: {}us notifications with locks: {}us",
+        flushTime / 1000, lockTime / 1000);
+
+    // notifications written with the locks are there without the flush
+    for (int i = 0; i < numTxs; i++) {
+      TestTransaction.getNotificationTS(env, "ls" + i, OBSERVED);
+      TestTransaction.getNotificationTS(env, "lt" + i, OBSERVED);
+    }
+  }
+}
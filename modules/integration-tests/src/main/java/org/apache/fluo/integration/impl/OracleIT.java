@@ -19,16 +19,29 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.fluo.accumulo.util.LongUtil;
+import org.apache.fluo.accumulo.util.ZookeeperPath;
+import org.apache.fluo.api.config.FluoConfiguration;
 import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
 import org.apache.fluo.core.oracle.OracleClient;
 import org.apache.fluo.core.oracle.OracleServer;
 import org.apache.fluo.core.util.HostUtil;
@@ -36,6 +49,7 @@ import org.apache.fluo.core.util.PortUtils;
 import org.apache.fluo.integration.ITBaseImpl;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
+import org.apache.zookeeper.data.Stat;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -173,6 +187,57 @@ public class OracleIT extends ITBaseImpl {
     tpool.shutdown();
   }
 
+  /**
+   * The selector server reads requests on several threads, so requests from many clients are
+   * combined into one allocation. Each combined request must get its own contiguous range.
+   */
+  @Test
+  public void selectorServerTest() throws Exception {
+
+    int numClients = 5;
+    int numThreads = 8;
+    int numTimes = 200;
+
+    oserver.stop();
+
+    FluoConfiguration conf = new FluoConfiguration(config);
+    conf.setProperty(FluoConfigurationImpl.ORACLE_SERVER_TYPE_PROP,
+        FluoConfigurationImpl.ORACLE_SERVER_TYPE_SELECTOR);
+
+    try (Environment selectorEnv = new Environment(conf)) {
+      OracleServer selectorServer = new OracleServer(selectorEnv);
+      selectorServer.start();
+      sleepUntil(selectorServer::isLeader);
+
+      List<Long> output = Collections.synchronizedList(new ArrayList<Long>());
+      ExecutorService tpool = Executors.newFixedThreadPool(numClients * numThreads);
+      CountDownLatch cdl = new CountDownLatch(numClients * numThreads);
+
+      // each environment has its own oracle client and connection
+      List<Environment> clientEnvs = new ArrayList<>();
+      for (int i = 0; i < numClients; i++) {
+        Environment clientEnv = new Environment(config);
+        clientEnvs.add(clientEnv);
+        for (int j = 0; j < numThreads; j++) {
+          tpool.execute(new TimestampFetcher(numTimes, clientEnv, output, cdl));
+        }
+      }
+
+      cdl.await();
+      tpool.shutdown();
+      clientEnvs.forEach(Environment::close);
+
+      TreeSet<Long> stamps = new TreeSet<>(output);
+
+      // ranges are disjoint
+      assertEquals(numClients * numThreads * numTimes, stamps.size());
+      // no leader changed and only these clients requested, so the ranges leave no gaps
+      assertEquals(stamps.size(), stamps.last() - stamps.first() + 1);
+
+      selectorServer.stop();
+    }
+  }
+
   /**
    * If multiple {@link org.apache.fluo.core.oracle.OracleServer} instances are competing leadership
    * and fail, the {@link OracleClient} should failover to them as they go down and serve up new
@@ -322,6 +387,248 @@ public class OracleIT extends ITBaseImpl {
     oserver3.close();
   }
 
+  /**
+   * A timestamp and when the request for it was made and when it returned.
+   */
+  private static class TimedStamp {
+    final long requested;
+    final long returned;
+    final long stamp;
+
+    TimedStamp(long requested, long returned, long stamp) {
+      this.requested = requested;
+      this.returned = returned;
+      this.stamp = stamp;
+    }
+  }
+
+  /**
+   * Asserts that no timestamp was given out twice and that a request made after another request
+   * returned got a larger timestamp.
+   */
+  private static void assertUniqueAndMonotonic(List<TimedStamp> stamps) {
+    assertEquals(stamps.size(), stamps.stream().map(ts -> ts.stamp).distinct().count());
+
+    List<TimedStamp> byRequested = new ArrayList<>(stamps);
+    byRequested.sort(Comparator.comparingLong(ts -> ts.requested));
+    List<TimedStamp> byReturned = new ArrayList<>(stamps);
+    byReturned.sort(Comparator.comparingLong(ts -> ts.returned));
+
+    // largest timestamp returned before the current request was made
+    long maxReturned = Long.MIN_VALUE;
+    int i = 0;
+    for (TimedStamp ts : byRequested) {
+      while (i < byReturned.size() && byReturned.get(i).returned < ts.requested) {
+        maxReturned = Math.max(maxReturned, byReturned.get(i).stamp);
+        i++;
+      }
+      assertTrue(maxReturned + " " + ts.stamp, ts.stamp > maxReturned);
+    }
+  }
+
+  /**
+   * With several batches in flight, timestamps from concurrent callers must stay unique and
+   * monotonic when the leader is killed and every connection reconnects to the next leader.
+   */
+  @Test
+  public void threadFailoverInFlightTest() throws Exception {
+
+    int maxInFlight = 4;
+    int numThreads = 20;
+
+    int port2 = PortUtils.getRandomFreePort();
+    TestOracle oserver2 = createExtraOracle(port2);
+    oserver2.start();
+    sleepUntil(oserver2::isConnected);
+
+    FluoConfiguration conf = new FluoConfiguration(config);
+    conf.setProperty(FluoConfigurationImpl.ORACLE_CLIENT_MAX_INFLIGHT_PROP, maxInFlight);
+
+    try (Environment inFlightEnv = new Environment(conf)) {
+      OracleClient client = inFlightEnv.getSharedResources().getOracleClient();
+      Timer reconnectTimer = inFlightEnv.getSharedResources().getMetricRegistry()
+          .timer(inFlightEnv.getMetricNames().getOracleClientReconnectTime());
+
+      List<TimedStamp> stamps = Collections.synchronizedList(new ArrayList<>());
+      AtomicBoolean stop = new AtomicBoolean(false);
+      ExecutorService tpool = Executors.newFixedThreadPool(numThreads);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < numThreads; i++) {
+        futures.add(tpool.submit(() -> {
+          while (!stop.get()) {
+            long requested = System.nanoTime();
+            long stamp = client.getStamp().getTxTimestamp();
+            stamps.add(new TimedStamp(requested, System.nanoTime(), stamp));
+          }
+        }));
+      }
+
+      sleepUntil(() -> stamps.size() >= 1000);
+      long reconnects = reconnectTimer.getCount();
+
+      oserver.stop();
+      sleepUntil(oserver2::isLeader);
+
+      // keep requesting until every connection has moved to the new leader
+      sleepUntil(() -> reconnectTimer.getCount() >= reconnects + maxInFlight);
+      int failedOver = stamps.size();
+      sleepUntil(() -> stamps.size() >= failedOver + 1000);
+
+      stop.set(true);
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      tpool.shutdown();
+
+      assertTrue(client.getOracle().endsWith(Integer.toString(port2)));
+      assertUniqueAndMonotonic(stamps);
+    }
+
+    oserver2.stop();
+    oserver2.close();
+  }
+
+  /**
+   * A new leader announces itself once it is ready to serve. Clients waiting on a failover wake
+   * up on that announcement rather than sleeping, so they get a timestamp soon after the new leader
+   * is ready.
+   */
+  @Test
+  public void failover_clientsWakeOnLeaderChange() throws Exception {
+
+    int numFailovers = 3;
+
+    sleepUntil(oserver::isConnected);
+
+    OracleClient client = env.getSharedResources().getOracleClient();
+    Timer reconnectTimer = env.getSharedResources().getMetricRegistry()
+        .timer(env.getMetricNames().getOracleClientReconnectTime());
+
+    // keep a request outstanding so one is waiting whenever a leader is killed
+    List<TimedStamp> stamps = Collections.synchronizedList(new ArrayList<>());
+    AtomicBoolean stop = new AtomicBoolean(false);
+    ExecutorService tpool = Executors.newSingleThreadExecutor();
+    Future<?> fetcher = tpool.submit(() -> {
+      while (!stop.get()) {
+        long requested = System.nanoTime();
+        long stamp = client.getStamp().getTxTimestamp();
+        stamps.add(new TimedStamp(requested, System.nanoTime(), stamp));
+      }
+    });
+    sleepUntil(() -> !stamps.isEmpty());
+
+    List<TestOracle> extraOracles = new ArrayList<>();
+    OracleServer leader = oserver;
+    long totalWait = 0;
+
+    for (int i = 0; i < numFailovers; i++) {
+      TestOracle follower = createExtraOracle(PortUtils.getRandomFreePort());
+      extraOracles.add(follower);
+      follower.start();
+      sleepUntil(follower::isConnected);
+
+      long reconnects = reconnectTimer.getCount();
+
+      CompletableFuture<Long> readyTime = CompletableFuture.supplyAsync(() -> {
+        while (!follower.isLeader()) {
+          Uninterruptibles.sleepUninterruptibly(1, TimeUnit.MILLISECONDS);
+        }
+        return System.nanoTime();
+      });
+      leader.stop();
+      long ready = readyTime.get();
+
+      sleepUntil(() -> firstReturnedAfter(stamps, ready) != null);
+      totalWait += firstReturnedAfter(stamps, ready).returned - ready;
+
+      String leaderId = HostUtil.getHostName() + ":" + follower.getPort();
+      assertEquals(leaderId, new String(env.getSharedResources().getCurator().getData()
+          .forPath(ZookeeperPath.ORACLE_LEADER), StandardCharsets.UTF_8));
+      assertEquals(leaderId, client.getOracle());
+      assertTrue(reconnectTimer.getCount() > reconnects);
+
+      leader = follower;
+    }
+
+    stop.set(true);
+    fetcher.get();
+    tpool.shutdown();
+
+    // clients that polled slept 100ms to 1s after a failed attempt
+    long averageWait = TimeUnit.NANOSECONDS.toMillis(totalWait / numFailovers);
+    assertTrue("Average wait " + averageWait + "ms", averageWait < 100);
+    assertUniqueAndMonotonic(stamps);
+
+    for (TestOracle extraOracle : extraOracles) {
+      extraOracle.stop();
+      extraOracle.close();
+    }
+  }
+
+  private static TimedStamp firstReturnedAfter(List<TimedStamp> stamps, long time) {
+    synchronized (stamps) {
+      return stamps.stream().filter(ts -> ts.returned > time)
+          .min(Comparator.comparingLong(ts -> ts.returned)).orElse(null);
+    }
+  }
+
+  /**
+   * A follower caches the leader's max timestamp, so a new leader usually reserves its first block
+   * with a single versioned write. When the cached version is stale, that write fails and the max
+   * timestamp is read from Zookeeper instead.
+   */
+  @Test
+  public void failover_reserveFirstBlock() throws Exception {
+
+    sleepUntil(oserver::isConnected);
+
+    OracleClient client = env.getSharedResources().getOracleClient();
+    long ts1 = client.getStamp().getTxTimestamp();
+
+    try (Environment env2 = new Environment(config); Environment env3 = new Environment(config)) {
+      OracleServer oserver2 = new OracleServer(env2);
+      oserver2.start();
+      sleepUntil(oserver2::isConnected);
+
+      // the cached version is older than the one in Zookeeper and the cached max timestamp would
+      // repeat timestamps if it were used
+      OracleServer oserver3 = new OracleServer(env3) {
+        @Override
+        protected ChildData getCachedMaxTimestamp() {
+          ChildData cached = super.getCachedMaxTimestamp();
+          Stat stale = new Stat();
+          stale.setVersion(cached.getStat().getVersion() - 1);
+          return new ChildData(cached.getPath(), stale, LongUtil.toByteArray(0L));
+        }
+      };
+      oserver3.start();
+      sleepUntil(oserver3::isConnected);
+
+      oserver.stop();
+      sleepUntil(oserver2::isLeader);
+
+      long ts2 = client.getStamp().getTxTimestamp();
+      assertTrue(ts1 + " " + ts2, ts1 < ts2);
+      // reserved with the cached version
+      assertEquals(1, getAllocations(env2));
+
+      oserver2.stop();
+      sleepUntil(oserver3::isLeader);
+
+      long ts3 = client.getStamp().getTxTimestamp();
+      assertTrue(ts2 + " " + ts3, ts2 < ts3);
+      // the write with the stale version failed, then reserved with the version read
+      assertEquals(2, getAllocations(env3));
+
+      oserver3.stop();
+    }
+  }
+
+  private static long getAllocations(Environment oracleEnv) {
+    return oracleEnv.getSharedResources().getMetricRegistry()
+        .timer(oracleEnv.getMetricNames().getOracleServerAllocationTime()).getCount();
+  }
+
   private void sleepUntil(Supplier<Boolean> condition) throws InterruptedException {
     sleepWhile(() -> !condition.get());
   }
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.integration.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
+import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
+import org.apache.fluo.core.impl.TransactionImpl.CommitData;
+import org.apache.fluo.core.impl.TransactorNode;
+import org.apache.fluo.core.oracle.Stamp;
+import org.apache.fluo.integration.ITBaseImpl;
+import org.apache.fluo.integration.TestTransaction;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Tests reading cells into a transaction's read cache with prefetch
+ */
+public class PrefetchIT extends ITBaseImpl {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(getTestTimeout());
+
+  private static final Column COL1 = new Column("f", "q1");
+  private static final Column COL2 = new Column("f", "q2");
+
+  private void write(int numRows, String prefix) throws Exception {
+    TestTransaction tx = new TestTransaction(env);
+    for (int i = 0; i < numRows; i++) {
+      tx.set("r" + i, COL1, prefix + i);
+      tx.set("r" + i, COL2, prefix + "x" + i);
+    }
+    tx.done();
+  }
+
+  private static List<RowColumn> cells(int numRows, Column col) {
+    List<RowColumn> cells = new ArrayList<>();
+    for (int i = 0; i < numRows; i++) {
+      cells.add(new RowColumn("r" + i, col));
+    }
+    return cells;
+  }
+
+  @Test
+  public void testPrefetchThenGet() throws Exception {
+    write(10, "a");
+
+    TestTransaction tx1 = new TestTransaction(env);
+    tx1.prefetch(cells(10, COL1));
+    // prefetching a cell that does not exist caches its absence
+    tx1.prefetch(ImmutableSet.of(new RowColumn("r10", COL1)));
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals("a" + i, tx1.gets("r" + i, COL1));
+    }
+    Assert.assertNull(tx1.gets("r10", COL1));
+    Assert.assertEquals(11, tx1.getStats().getReadCacheHits());
+    Assert.assertEquals(0, tx1.getStats().getReadCacheMisses());
+    tx1.close();
+
+    TestTransaction tx2 = new TestTransaction(env);
+    List<Bytes> rows = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      rows.add(Bytes.of("r" + i));
+    }
+    tx2.prefetch(rows, ImmutableSet.of(COL1, COL2));
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(ImmutableMap.of(COL1, Bytes.of("a" + i), COL2, Bytes.of("ax" + i)),
+          tx2.get(Bytes.of("r" + i), ImmutableSet.of(COL1, COL2)));
+    }
+    Assert.assertEquals(20, tx2.getStats().getReadCacheHits());
+    Assert.assertEquals(0, tx2.getStats().getReadCacheMisses());
+    tx2.close();
+  }
+
+  @Test
+  public void testUnreadPrefetchNoCollision() throws Exception {
+    write(2, "a");
+
+    TestTransaction tx1 = new TestTransaction(env);
+    tx1.prefetch(cells(2, COL1));
+    Assert.assertEquals("a0", tx1.gets("r0", COL1));
+    tx1.set("r2", COL1, "b");
+
+    // a concurrent write to a prefetched cell that tx1 never reads
+    TestTransaction tx2 = new TestTransaction(env);
+    tx2.set("r1", COL1, "c");
+    tx2.done();
+
+    Assert.assertEquals(ImmutableMap.of(Bytes.of("r0"), ImmutableSet.of(COL1)),
+        tx1.getColumnsRead());
+    tx1.done();
+
+    TestTransaction tx3 = new TestTransaction(env);
+    Assert.assertEquals("b", tx3.gets("r2", COL1));
+    Assert.assertEquals("c", tx3.gets("r1", COL1));
+    tx3.close();
+  }
+
+  private CommitData partiallyCommit(TestTransaction tx, boolean commitPrimary) throws Exception {
+    CommitData cd = tx.createCommitData();
+    Assert.assertTrue(tx.preCommit(cd, new RowColumn("r0", COL1)));
+    if (commitPrimary) {
+      Stamp commitTs = env.getSharedResources().getOracleClient().getStamp();
+      Assert.assertTrue(tx.commitPrimaryColumn(cd, commitTs));
+    }
+    return cd;
+  }
+
+  private void testPrefetchLock(boolean commitPrimary) throws Exception {
+    write(2, "a");
+
+    // leave locks from a transaction whose transactor is dead
+    TransactorNode transactor = new TransactorNode(env);
+    TestTransaction tx1 = new TestTransaction(env, transactor);
+    tx1.set("r0", COL1, "b0");
+    tx1.set("r1", COL1, "b1");
+    partiallyCommit(tx1, commitPrimary);
+    transactor.close();
+
+    // the prefetch resolves the lock on r1 the same way a get would
+    TestTransaction tx2 = new TestTransaction(env);
+    tx2.prefetch(ImmutableSet.of(new RowColumn("r1", COL1)));
+    Assert.assertEquals(commitPrimary ? "b1" : "a1", tx2.gets("r1", COL1));
+    Assert.assertEquals(1, tx2.getStats().getReadCacheHits());
+    tx2.close();
+
+    TestTransaction tx3 = new TestTransaction(env);
+    Assert.assertEquals(commitPrimary ? "b0" : "a0", tx3.gets("r0", COL1));
+    tx3.close();
+  }
+
+  @Test
+  public void testPrefetchRollback() throws Exception {
+    testPrefetchLock(false);
+  }
+
+  @Test
+  public void testPrefetchRollforward() throws Exception {
+    testPrefetchLock(true);
+  }
+
+  @Test
+  public void testRunOnWaiter() throws Exception {
+    write(2, "a");
+
+    FluoConfiguration conf = new FluoConfiguration(config);
+    conf.setProperty(FluoConfigurationImpl.ASYNC_READ_THREADS, 1);
+
+    try (Environment oneThreadEnv = new Environment(conf)) {
+      // keeps the only async read thread busy resolving a lock of a live transaction
+      TestTransaction tx1 = new TestTransaction(env);
+      tx1.set("r0", COL1, "b0");
+      partiallyCommit(tx1, false);
+
+      TestTransaction tx2 = new TestTransaction(oneThreadEnv);
+      tx2.prefetch(ImmutableSet.of(new RowColumn("r0", COL1)));
+
+      // this prefetch is queued behind tx2's, so the get runs it
+      TestTransaction tx3 = new TestTransaction(oneThreadEnv);
+      tx3.prefetch(ImmutableSet.of(new RowColumn("r1", COL1)));
+      Assert.assertEquals("a1", tx3.gets("r1", COL1));
+      Assert.assertEquals(1, tx3.getStats().getReadCacheHits());
+      tx3.close();
+
+      Assert.assertEquals("a0", tx2.gets("r0", COL1));
+      tx2.close();
+    }
+  }
+
+  @Test
+  public void testCommitDoesNotWait() throws Exception {
+    write(2, "a");
+
+    FluoConfiguration conf = new FluoConfiguration(config);
+    conf.setTransactionRollbackTime(60, TimeUnit.SECONDS);
+
+    try (Environment slowRollbackEnv = new Environment(conf)) {
+      // a lock of a live transaction that a prefetch waits on
+      TestTransaction tx1 = new TestTransaction(env);
+      tx1.set("r0", COL1, "b0");
+      tx1.set("r1", COL2, "b1");
+      CommitData cd = partiallyCommit(tx1, false);
+
+      // the prefetched cell is never read, so the commit does not wait for the prefetch
+      TestTransaction tx2 = new TestTransaction(slowRollbackEnv);
+      tx2.prefetch(ImmutableSet.of(new RowColumn("r0", COL1)));
+      tx2.set("r1", COL1, "c1");
+      long t1 = System.currentTimeMillis();
+      tx2.done();
+      Assert.assertTrue(System.currentTimeMillis() - t1 < 30000);
+
+      // the lock was not rolled back by the prefetch
+      Stamp commitTs = env.getSharedResources().getOracleClient().getStamp();
+      Assert.assertTrue(tx1.commitPrimaryColumn(cd, commitTs));
+      tx1.finishCommit(cd, commitTs);
+      tx1.close();
+    }
+
+    TestTransaction tx3 = new TestTransaction(env);
+    Assert.assertEquals("b0", tx3.gets("r0", COL1));
+    Assert.assertEquals("c1", tx3.gets("r1", COL1));
+    tx3.close();
+  }
+
+  @Test
+  public void testNoReadCache() throws Exception {
+    write(2, "a");
+
+    FluoConfiguration conf = new FluoConfiguration(config);
+    conf.setProperty(FluoConfigurationImpl.TX_READ_CACHE_MAX_CELLS_PROP, 0);
+
+    try (Environment noCacheEnv = new Environment(conf)) {
+      TestTransaction tx = new TestTransaction(noCacheEnv);
+      tx.prefetch(cells(2, COL1));
+      tx.prefetch(ImmutableSet.of(Bytes.of("r0")), ImmutableSet.of(COL2));
+      Assert.assertEquals("a0", tx.gets("r0", COL1));
+      Assert.assertEquals("ax0", tx.gets("r0", COL2));
+      Assert.assertEquals("a1", tx.gets("r1", COL1));
+      Assert.assertEquals(0, tx.getStats().getReadCacheHits());
+      tx.close();
+    }
+  }
+}
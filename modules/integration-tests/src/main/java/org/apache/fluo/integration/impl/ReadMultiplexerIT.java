@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.integration.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
+import org.apache.fluo.core.impl.TransactionImpl;
+import org.apache.fluo.integration.ITBaseImpl;
+import org.apache.fluo.integration.TestTransaction;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Tests reads from concurrent transactions that are coalesced by the ReadMultiplexer
+ */
+public class ReadMultiplexerIT extends ITBaseImpl {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(getTestTimeout());
+
+  private static final Column COL1 = new Column("f", "q1");
+  private static final Column COL2 = new Column("f", "q2");
+
+  private void write(int numRows, String prefix) throws Exception {
+    TestTransaction tx = new TestTransaction(env);
+    for (int i = 0; i < numRows; i++) {
+      tx.set("r" + i, COL1, prefix + i);
+      tx.set("r" + i, COL2, prefix + "x" + i);
+    }
+    tx.done();
+  }
+
+  @Test
+  public void testSnapshots() throws Exception {
+    final int numRows = 20;
+    write(numRows, "a");
+
+    FluoConfiguration conf = new FluoConfiguration(config);
+    conf.setProperty(FluoConfigurationImpl.READ_COALESCE_WINDOW, 2000);
+
+    ExecutorService executor = Executors.newFixedThreadPool(numRows * 2);
+    try (Environment coalescingEnv = new Environment(conf)) {
+      Assert.assertNotNull(coalescingEnv.getSharedResources().getReadMultiplexer());
+
+      // read the same rows from transactions started before and after the rows are updated
+      List<TestTransaction> oldTxs = new ArrayList<>();
+      for (int i = 0; i < numRows; i++) {
+        oldTxs.add(new TestTransaction(coalescingEnv));
+      }
+      write(numRows, "b");
+      List<TestTransaction> newTxs = new ArrayList<>();
+      for (int i = 0; i < numRows; i++) {
+        newTxs.add(new TestTransaction(coalescingEnv));
+      }
+
+      List<Future<Map<Column, Bytes>>> oldReads = new ArrayList<>();
+      List<Future<Map<Column, Bytes>>> newReads = new ArrayList<>();
+      for (int i = 0; i < numRows; i++) {
+        Bytes row = Bytes.of("r" + i);
+        TestTransaction oldTx = oldTxs.get(i);
+        TestTransaction newTx = newTxs.get(i);
+        oldReads.add(executor.submit(() -> oldTx.get(row, ImmutableSet.of(COL1, COL2))));
+        newReads.add(executor.submit(() -> newTx.get(row, ImmutableSet.of(COL1))));
+      }
+
+      for (int i = 0; i < numRows; i++) {
+        Assert.assertEquals(
+            ImmutableMap.of(COL1, Bytes.of("a" + i), COL2, Bytes.of("ax" + i)),
+            oldReads.get(i).get());
+        Assert.assertEquals(ImmutableMap.of(COL1, Bytes.of("b" + i)), newReads.get(i).get());
+      }
+
+      oldTxs.forEach(TestTransaction::close);
+      newTxs.forEach(TestTransaction::close);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testAsyncGets() throws Exception {
+    final int numRows = 20;
+    write(numRows, "a");
+
+    FluoConfiguration conf = new FluoConfiguration(config);
+    conf.setProperty(FluoConfigurationImpl.READ_COALESCE_WINDOW, 2000);
+
+    try (Environment coalescingEnv = new Environment(conf)) {
+      // async gets of transactions with different start timestamps go through the multiplexer
+      TransactionImpl oldTx = new TransactionImpl(coalescingEnv);
+      write(numRows, "b");
+      TransactionImpl newTx = new TransactionImpl(coalescingEnv);
+
+      List<CompletableFuture<Bytes>> oldReads = new ArrayList<>();
+      List<CompletableFuture<Bytes>> newReads = new ArrayList<>();
+      for (int i = 0; i < numRows; i++) {
+        oldReads.add(oldTx.getAsync(Bytes.of("r" + i), COL1));
+        newReads.add(newTx.getAsync(Bytes.of("r" + i), COL2));
+      }
+      CompletableFuture<Bytes> absent = newTx.getAsync(Bytes.of("r" + numRows), COL1);
+
+      for (int i = 0; i < numRows; i++) {
+        Assert.assertEquals(Bytes.of("a" + i), oldReads.get(i).get());
+        Assert.assertEquals(Bytes.of("bx" + i), newReads.get(i).get());
+      }
+      Assert.assertNull(absent.get());
+
+      Assert.assertTrue(coalescingEnv.getSharedResources().getMetricRegistry().getHistograms()
+          .get(coalescingEnv.getMetricNames().getReadMultiplexerBatchSize()).getCount() > 0);
+
+      oldTx.close();
+      newTx.close();
+    }
+  }
+
+  @Test
+  public void testLockFallback() throws Exception {
+    write(1, "a");
+
+    FluoConfiguration conf = new FluoConfiguration(config);
+    conf.setProperty(FluoConfigurationImpl.READ_COALESCE_WINDOW, 500);
+
+    try (Environment coalescingEnv = new Environment(conf)) {
+      // leave a lock from a transaction that will not commit
+      TestTransaction tx1 = new TestTransaction(env);
+      tx1.set("r0", COL1, "b0");
+      Assert.assertTrue(tx1.preCommit(tx1.createCommitData()));
+
+      // the coalesced read sees the lock and the transaction resolves it on its own
+      TestTransaction tx2 = new TestTransaction(coalescingEnv);
+      Assert.assertEquals(Bytes.of("a0"), tx2.get(Bytes.of("r0"), COL1));
+      tx2.close();
+    }
+  }
+}
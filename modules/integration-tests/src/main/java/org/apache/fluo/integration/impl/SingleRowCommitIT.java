@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.integration.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
+import org.apache.fluo.integration.ITBaseImpl;
+import org.apache.fluo.integration.TestTransaction;
+import org.apache.fluo.integration.TestUtil;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests transactions whose updates are all in one row, which are committed with one lock and one
+ * commit write.
+ */
+public class SingleRowCommitIT extends ITBaseImpl {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(getTestTimeout());
+
+  private static final Logger log = LoggerFactory.getLogger(SingleRowCommitIT.class);
+
+  private static final Column COL1 = new Column("f", "q1");
+  private static final Column COL2 = new Column("f", "q2");
+  private static final Column COL3 = new Column("f", "q3");
+
+  @Test
+  public void testCommit() throws Exception {
+    Assert.assertTrue(env.getSharedResources().isSingleRowCommitEnabled());
+
+    TestTransaction tx1 = new TestTransaction(env);
+    tx1.set("r1", COL1, "a");
+    tx1.set("r1", COL2, "b");
+    tx1.set("r1", COL3, "c");
+    tx1.done();
+
+    TestTransaction tx2 = new TestTransaction(env);
+    Assert.assertEquals(ImmutableMap.of(COL1, Bytes.of("a"), COL2, Bytes.of("b"), COL3,
+        Bytes.of("c")), tx2.get(Bytes.of("r1"), ImmutableSet.of(COL1, COL2, COL3)));
+    tx2.delete("r1", COL2);
+    tx2.set("r1", COL3, "d");
+    tx2.done();
+
+    TestTransaction tx3 = new TestTransaction(env);
+    Assert.assertEquals(ImmutableMap.of(COL1, Bytes.of("a"), COL3, Bytes.of("d")),
+        tx3.get(Bytes.of("r1"), ImmutableSet.of(COL1, COL2, COL3)));
+    tx3.close();
+  }
+
+  @Test
+  public void testCollision() throws Exception {
+    TestTransaction tx1 = new TestTransaction(env);
+    tx1.set("r1", COL1, "a");
+    tx1.set("r1", COL2, "a");
+    tx1.done();
+
+    TestTransaction tx2 = new TestTransaction(env);
+    TestTransaction tx3 = new TestTransaction(env);
+
+    Assert.assertEquals("a", tx2.gets("r1", COL1));
+    tx2.set("r1", COL1, "b");
+    tx2.set("r1", COL2, "b");
+
+    // only overlaps tx2 in a column that is not its primary
+    Assert.assertEquals("a", tx3.gets("r1", COL2));
+    tx3.set("r1", COL2, "c");
+    tx3.set("r1", COL3, "c");
+
+    tx2.done();
+    TestUtil.assertCommitFails(tx3);
+
+    // none of the columns of the failed transaction were written or left locked
+    TestTransaction tx4 = new TestTransaction(env);
+    Assert.assertEquals(ImmutableMap.of(COL1, Bytes.of("b"), COL2, Bytes.of("b")),
+        tx4.get(Bytes.of("r1"), ImmutableSet.of(COL1, COL2, COL3)));
+    tx4.close();
+  }
+
+  private static void commitRow(Environment commitEnv, String row) throws Exception {
+    TestTransaction tx = new TestTransaction(commitEnv);
+    tx.set(row, COL1, "v");
+    tx.set(row, COL2, "v");
+    tx.set(row, COL3, "v");
+    tx.done();
+  }
+
+  @Test
+  public void testLatency() throws Exception {
+    final int numTxs = 200;
+
+    FluoConfiguration conf = new FluoConfiguration(config);
+    conf.setProperty(FluoConfigurationImpl.TX_SINGLE_ROW_COMMIT_ENABLED, false);
+
+    try (Environment fullCommitEnv = new Environment(conf)) {
+      Assert.assertFalse(fullCommitEnv.getSharedResources().isSingleRowCommitEnabled());
+
+      // warm up both paths before timing them
+      TestUtil.timeCommits(20, i -> commitRow(fullCommitEnv, "w1" + i));
+      TestUtil.timeCommits(20, i -> commitRow(env, "w2" + i));
+
+      long fullWrites = TestUtil.getConditionalWrites(fullCommitEnv);
+      long fullCommitTime = TestUtil.timeCommits(numTxs, i -> commitRow(fullCommitEnv, "f" + i));
+      long singleRowWrites = TestUtil.getConditionalWrites(env);
+      long singleRowTime = TestUtil.timeCommits(numTxs, i -> commitRow(env, "s" + i));
+
+      log.info("Average single row commit time full commit: {}us single row commit: {}us",
+          fullCommitTime / 1000, singleRowTime / 1000);
+
+      // the full chain makes the primary lock, the other locks and the primary commit. A single
+      // row is locked by one conditional write and committed by another, its other columns are
+      // not locked separately and there is no separate commit of the primary column.
+      Assert.assertEquals(fullWrites + 3 * numTxs, TestUtil.getConditionalWrites(fullCommitEnv));
+      Assert.assertEquals(singleRowWrites + 2 * numTxs, TestUtil.getConditionalWrites(env));
+    }
+
+    TestTransaction tx = new TestTransaction(env);
+    for (int i = 0; i < numTxs; i++) {
+      Assert.assertEquals("v", tx.gets("f" + i, COL3));
+      Assert.assertEquals("v", tx.gets("s" + i, COL3));
+    }
+    tx.close();
+  }
+}
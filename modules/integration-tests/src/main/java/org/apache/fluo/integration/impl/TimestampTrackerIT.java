@@ -15,13 +15,16 @@
 
 package org.apache.fluo.integration.impl;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.fluo.accumulo.util.LongUtil;
 import org.apache.fluo.accumulo.util.ZookeeperPath;
+import org.apache.fluo.accumulo.util.ZookeeperUtil;
 import org.apache.fluo.core.impl.TimestampTracker;
 import org.apache.fluo.core.impl.TransactorID;
 import org.apache.fluo.integration.ITBaseImpl;
@@ -101,6 +104,50 @@ public class TimestampTrackerIT extends ITBaseImpl {
     tracker.close();
   }
 
+  @Test
+  public void testStaleAllocation() throws Exception {
+    TimestampTracker tracker = new TimestampTracker(env, new TransactorID(env));
+    final long ts1 = tracker.allocateTimestamp().getTxTimestamp();
+    final long ts2 = tracker.allocateTimestamp(Duration.ofMinutes(10)).getTxTimestamp();
+    Assert.assertEquals(ts1, ts2);
+    final long ts3 = tracker.allocateTimestamp(Duration.ZERO).getTxTimestamp();
+    Assert.assertTrue(ts3 > ts1);
+    tracker.removeTimestamp(ts1);
+    Assert.assertEquals(ts1, tracker.getOldestActiveTimestamp());
+    tracker.removeTimestamp(ts2);
+    Assert.assertEquals(ts3, tracker.getOldestActiveTimestamp());
+    tracker.removeTimestamp(ts3);
+    Assert.assertTrue(tracker.isEmpty());
+
+    // the node in zookeeper is not above the newest timestamp, so it can still be reused
+    final long ts4 = tracker.allocateTimestamp(Duration.ofMinutes(10)).getTxTimestamp();
+    Assert.assertEquals(ts3, ts4);
+    tracker.removeTimestamp(ts4);
+    tracker.close();
+  }
+
+  @Test
+  public void testGcTimestampAdvancesWithinPublishPeriod() throws Exception {
+    // the node is only closed or refreshed every minute, but changes are published every second
+    TimestampTracker tracker = new TimestampTracker(env, new TransactorID(env), 60000, 1000);
+    final long ts1 = tracker.allocateTimestamp().getTxTimestamp();
+    final long ts2 = tracker.allocateTimestamp().getTxTimestamp();
+    Assert.assertTrue(ZookeeperUtil.getGcTimestamp(config.getAppZookeepers()) < ts1);
+
+    tracker.removeTimestamp(ts1);
+    long start = System.nanoTime();
+    while (ZookeeperUtil.getGcTimestamp(config.getAppZookeepers()) < ts2) {
+      Thread.sleep(100);
+    }
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    // one publish period for the tracker plus one second for the oracle, with room for slow hosts
+    Assert.assertTrue("GC timestamp took " + elapsedMs + "ms to advance", elapsedMs < 10000);
+    Assert.assertEquals(ts2, ZookeeperUtil.getGcTimestamp(config.getAppZookeepers()));
+    tracker.removeTimestamp(ts2);
+    tracker.close();
+  }
+
   @Test
   public void testTimestampUtilGetOldestTs() throws Exception {
     Assert.assertEquals(0, getOldestTs());
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.integration.impl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.fluo.api.data.Bytes;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
+import org.apache.fluo.core.impl.TransactionImpl.CommitData;
+import org.apache.fluo.core.impl.TransactorNode;
+import org.apache.fluo.integration.ITBaseImpl;
+import org.apache.fluo.integration.TestTransaction;
+import org.apache.fluo.integration.TestUtil;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Tests that reads answered from a transaction's read cache behave like reads from Accumulo
+ */
+public class TxReadCacheIT extends ITBaseImpl {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(getTestTimeout());
+
+  private static final Column COL1 = new Column("f", "q1");
+  private static final Column COL2 = new Column("f", "q2");
+
+  private static final Bytes R0 = Bytes.of("r0");
+
+  private void write(String prefix) throws Exception {
+    TestTransaction tx = new TestTransaction(env);
+    tx.set("r0", COL1, prefix + "0");
+    tx.set("r0", COL2, prefix + "x0");
+    tx.done();
+  }
+
+  @Test
+  public void testWholeRowGet() throws Exception {
+    write("a");
+
+    TestTransaction tx = new TestTransaction(env);
+    Assert.assertEquals("a0", tx.gets("r0", COL1));
+    // a get with no columns reads the whole row, even when some of its columns are cached
+    Assert.assertEquals(ImmutableMap.of(COL1, Bytes.of("a0"), COL2, Bytes.of("ax0")),
+        tx.get(R0, Collections.emptySet()));
+    Assert.assertEquals(ImmutableMap.of(COL1, Bytes.of("a0"), COL2, Bytes.of("ax0")),
+        tx.get(R0, Collections.emptySet()));
+    Assert.assertEquals("ax0", tx.gets("r0", COL2));
+    tx.close();
+  }
+
+  @Test
+  public void testCachedGetCollides() throws Exception {
+    // each way of reading r0:COL1, all answered from the cache filled by a prefetch
+    List<Function<TestTransaction, Object>> reads = ImmutableList.of(tx -> tx.get(R0, COL1),
+        tx -> tx.get(R0, ImmutableSet.of(COL1)),
+        tx -> tx.get(ImmutableList.of(R0), ImmutableSet.of(COL1)),
+        tx -> tx.get(ImmutableList.of(new RowColumn(R0, COL1))));
+
+    write("a");
+
+    for (int i = 0; i < reads.size(); i++) {
+      TestTransaction tx1 = new TestTransaction(env);
+      tx1.prefetch(ImmutableSet.of(new RowColumn(R0, COL1)));
+      Assert.assertNotNull(reads.get(i).apply(tx1));
+      Assert.assertEquals(1, tx1.getStats().getReadCacheHits());
+      // a prefetch does not add to the columns read, the cached get does
+      Assert.assertEquals(ImmutableMap.of(R0, ImmutableSet.of(COL1)), tx1.getColumnsRead());
+      tx1.set("r1", COL1, "b" + i);
+
+      TestTransaction tx2 = new TestTransaction(env);
+      tx2.set("r0", COL1, "c" + i);
+      tx2.done();
+
+      TestUtil.assertCommitFails(tx1);
+    }
+
+    TestTransaction tx3 = new TestTransaction(env);
+    Assert.assertNull(tx3.gets("r1", COL1));
+    Assert.assertEquals("c" + (reads.size() - 1), tx3.gets("r0", COL1));
+    tx3.close();
+  }
+
+  @Test
+  public void testCachedGetTracksReadLock() throws Exception {
+    write("a");
+
+    // leave a read lock on r0:COL1 from a transaction whose transactor is dead
+    TransactorNode transactor = new TransactorNode(env);
+    TestTransaction tx1 = new TestTransaction(env, transactor);
+    Assert.assertEquals("a0", tx1.withReadLock().gets("r0", COL1));
+    tx1.set("r1", COL1, "b");
+    CommitData cd = tx1.createCommitData();
+    Assert.assertTrue(tx1.preCommit(cd));
+    transactor.close();
+
+    // the prefetch sees the read lock, the get that writes the cell is answered from the cache
+    TestTransaction tx2 = new TestTransaction(env);
+    tx2.prefetch(ImmutableSet.of(new RowColumn(R0, COL1)));
+    Assert.assertEquals("a0", tx2.gets("r0", COL1));
+    Assert.assertEquals(1, tx2.getStats().getReadCacheHits());
+    tx2.set("r0", COL1, "c");
+
+    // the read lock fails the commit, since the cached get kept the read lock the prefetch saw,
+    // the failed commit rolls back the orphaned read lock instead of leaving it for the next try
+    TestUtil.assertCommitFails(tx2);
+
+    TestTransaction tx3 = new TestTransaction(env);
+    Assert.assertEquals("a0", tx3.gets("r0", COL1));
+    tx3.set("r0", COL1, "d");
+    tx3.done();
+
+    TestTransaction tx4 = new TestTransaction(env);
+    Assert.assertEquals("d", tx4.gets("r0", COL1));
+    Assert.assertNull(tx4.gets("r1", COL1));
+    tx4.close();
+  }
+}
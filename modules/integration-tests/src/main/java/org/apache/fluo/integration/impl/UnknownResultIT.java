@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.fluo.integration.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.accumulo.core.client.ConditionalWriter;
+import org.apache.accumulo.core.data.ConditionalMutation;
+import org.apache.fluo.api.config.FluoConfiguration;
+import org.apache.fluo.api.data.Column;
+import org.apache.fluo.api.data.RowColumn;
+import org.apache.fluo.core.async.AsyncConditionalWriter;
+import org.apache.fluo.core.impl.Environment;
+import org.apache.fluo.core.impl.FluoConfigurationImpl;
+import org.apache.fluo.core.impl.TransactionImpl.CommitData;
+import org.apache.fluo.core.oracle.Stamp;
+import org.apache.fluo.integration.ITBaseImpl;
+import org.apache.fluo.integration.TestTransaction;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Tests commits whose primary lock or primary commit had an unknown result.
+ */
+public class UnknownResultIT extends ITBaseImpl {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(getTestTimeout());
+
+  private static final Column COL = new Column("f", "q");
+
+  /**
+   * Returns unknown for the first mutation it is given, after writing it if told to.
+   */
+  private static class UnknownWriter implements ConditionalWriter {
+
+    private final ConditionalWriter cw;
+    private final boolean write;
+    private boolean returnedUnknown = false;
+
+    UnknownWriter(ConditionalWriter cw, boolean write) {
+      this.cw = cw;
+      this.write = write;
+    }
+
+    @Override
+    public synchronized Iterator<Result> write(Iterator<ConditionalMutation> mutations) {
+      List<Result> results = new ArrayList<>();
+      while (mutations.hasNext()) {
+        ConditionalMutation cm = mutations.next();
+        if (returnedUnknown) {
+          results.add(cw.write(cm));
+        } else {
+          if (write) {
+            cw.write(cm);
+          }
+          results.add(new Result(Status.UNKNOWN, cm, null));
+          returnedUnknown = true;
+        }
+      }
+      return results.iterator();
+    }
+
+    @Override
+    public Result write(ConditionalMutation mutation) {
+      return write(Collections.singleton(mutation).iterator()).next();
+    }
+
+    @Override
+    public void close() {
+      // the wrapped writer is shared
+    }
+  }
+
+  private static AsyncConditionalWriter newUnknownWriter(Environment env, boolean write) {
+    return new AsyncConditionalWriter(env,
+        new UnknownWriter(env.getSharedResources().getConditionalWriter(), write),
+        new MetricRegistry());
+  }
+
+  private static long getUnknownCount(Environment env) {
+    return env.getSharedResources().getMetricRegistry().meter(env.getMetricNames().getCwUnknown())
+        .getCount();
+  }
+
+  private void testUnknown(boolean unknownLock, boolean written) throws Exception {
+    testUnknown(env, unknownLock, written);
+  }
+
+  private static void testUnknown(Environment env, boolean unknownLock, boolean written)
+      throws Exception {
+    TestTransaction tx1 = new TestTransaction(env);
+    tx1.set("r1", COL, "a");
+    tx1.set("r2", COL, "a");
+    tx1.done();
+
+    long unknownCount = getUnknownCount(env);
+
+    TestTransaction tx2 = new TestTransaction(env);
+    Assert.assertEquals("a", tx2.gets("r1", COL));
+    tx2.set("r1", COL, "b");
+    tx2.set("r2", COL, "b");
+
+    AsyncConditionalWriter acw = newUnknownWriter(env, written);
+    try {
+      CommitData cd = tx2.createCommitData();
+      if (unknownLock) {
+        cd.setConditionalWriter(acw);
+      }
+      Assert.assertTrue(tx2.preCommit(cd, new RowColumn("r1", COL)));
+      cd.setConditionalWriter(acw);
+      Stamp commitTs = env.getSharedResources().getOracleClient().getStamp();
+      Assert.assertTrue(tx2.commitPrimaryColumn(cd, commitTs));
+      tx2.finishCommit(cd, commitTs);
+      tx2.close();
+    } finally {
+      acw.close();
+    }
+
+    Assert.assertEquals(unknownCount + 1, getUnknownCount(env));
+
+    TestTransaction tx3 = new TestTransaction(env);
+    Assert.assertEquals("b", tx3.gets("r1", COL));
+    Assert.assertEquals("b", tx3.gets("r2", COL));
+    tx3.close();
+  }
+
+  @Test
+  public void testUnknownLockWritten() throws Exception {
+    testUnknown(true, true);
+  }
+
+  @Test
+  public void testUnknownLockNotWritten() throws Exception {
+    testUnknown(true, false);
+  }
+
+  @Test
+  public void testUnknownCommitWritten() throws Exception {
+    testUnknown(false, true);
+  }
+
+  @Test
+  public void testUnknownCommitNotWritten() throws Exception {
+    testUnknown(false, false);
+  }
+
+  @Test
+  public void testCollisionChecksBusy() throws Exception {
+    FluoConfiguration conf = new FluoConfiguration(config);
+    conf.setProperty(FluoConfigurationImpl.SYNC_COMMIT_THREADS, 1);
+
+    try (Environment env2 = new Environment(conf)) {
+      // occupy the only collision check thread, like a check waiting on a lock
+      CountDownLatch release = new CountDownLatch(1);
+      env2.getSharedResources().getSyncCommitExecutor().execute(() -> {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+
+      try {
+        // reading the status of an unknown result does not wait for the collision check
+        testUnknown(env2, true, true);
+        testUnknown(env2, false, false);
+      } finally {
+        release.countDown();
+      }
+    }
+  }
+}